@@ -0,0 +1,70 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.util.Random;
+
+/**
+ * Builds the key sets used by the benchmarks.
+ */
+final class BenchmarkKeys {
+
+  static final int LOOKUP_SIZE = 1 << 12;
+  static final int LOOKUP_MASK = LOOKUP_SIZE - 1;
+
+  private static final long SEED = 42L;
+
+  private BenchmarkKeys() {
+  }
+
+  /**
+   * Creates count distinct keys of the key type, the first half of the id space is used for keys that are present.
+   *
+   * @param keyType the type of key to create
+   * @param count   the number of keys
+   * @return the keys
+   */
+  static Object[] present(final KeyType keyType, final int count) {
+
+    return create(keyType, count, 0);
+  }
+
+  /**
+   * Creates count distinct keys of the key type that never overlap with {@link #present(KeyType, int)}.
+   *
+   * @param keyType the type of key to create
+   * @param count   the number of keys
+   * @return the keys
+   */
+  static Object[] absent(final KeyType keyType, final int count) {
+
+    return create(keyType, count, Integer.MAX_VALUE / 2);
+  }
+
+  /**
+   * Creates a shuffled sequence of {@link #LOOKUP_SIZE} keys where hitRatio of them are drawn from present.
+   *
+   * @param present  the keys present in the table
+   * @param absent   the keys not present in the table
+   * @param hitRatio the fraction of lookups that should hit
+   * @return the lookup sequence
+   */
+  static Object[] lookups(final Object[] present, final Object[] absent, final double hitRatio) {
+
+    final var random = new Random(SEED);
+    final var lookups = new Object[LOOKUP_SIZE];
+    for (int i = 0; i < LOOKUP_SIZE; i++) {
+      lookups[i] = random.nextDouble() < hitRatio
+          ? present[random.nextInt(present.length)]
+          : absent[random.nextInt(absent.length)];
+    }
+    return lookups;
+  }
+
+  private static Object[] create(final KeyType keyType, final int count, final int firstId) {
+
+    final var keys = new Object[count];
+    for (int i = 0; i < count; i++) {
+      keys[i] = keyType.create(firstId + i);
+    }
+    return keys;
+  }
+}
@@ -0,0 +1,77 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares looking up keys held in a direct buffer, as they arrive from the network, with
+ * {@link BinaryOpenAddressingIndex} reading the buffer in place, against copying each key out and wrapping it in a
+ * {@link BytesKey} for {@link OpenAddressingIndex}.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class BinaryOpenAddressingIndexBenchmark {
+
+  private static final int CAPACITY = 1 << 16;
+
+  @Param({"8", "16", "40"})
+  public int keyLength;
+
+  private BinaryOpenAddressingIndex binary;
+  private OpenAddressingIndex<BytesKey> wrapped;
+  private ByteBuffer buffer;
+  private int next;
+
+  /**
+   * Fills both indexes with the same random keys to three quarters of their size, and lays lookups out in a buffer.
+   */
+  @Setup(Level.Trial)
+  public void setup() {
+
+    final var random = new Random(42L);
+    final var keys = new byte[CAPACITY * 3 / 4][keyLength];
+
+    binary = new BinaryOpenAddressingIndex(CAPACITY, keyLength);
+    wrapped = new OpenAddressingIndex<>(CAPACITY);
+    for (final var key : keys) {
+      random.nextBytes(key);
+      binary.getExistingOrAssign(key, 0);
+      wrapped.getExistingOrAssign(new BytesKey(key));
+    }
+
+    buffer = ByteBuffer.allocateDirect(BenchmarkKeys.LOOKUP_SIZE * keyLength);
+    for (int i = 0; i < BenchmarkKeys.LOOKUP_SIZE; i++) {
+      buffer.put(i * keyLength, keys[random.nextInt(keys.length)]);
+    }
+  }
+
+  @Benchmark
+  public int binaryGet() {
+    return binary.get(buffer, (next++ & BenchmarkKeys.LOOKUP_MASK) * keyLength);
+  }
+
+  @Benchmark
+  public Integer wrappedGet() {
+
+    final var key = new byte[keyLength];
+    buffer.get((next++ & BenchmarkKeys.LOOKUP_MASK) * keyLength, key);
+    return wrapped.get(new BytesKey(key));
+  }
+}
@@ -0,0 +1,29 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.util.Arrays;
+
+/**
+ * Wraps a byte array so it can be used as a key, comparing on the contents of the array.
+ *
+ * @param bytes the key bytes
+ */
+public record BytesKey(byte[] bytes) {
+
+  @Override
+  public boolean equals(final Object o) {
+
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return Arrays.equals(bytes, ((BytesKey) o).bytes);
+  }
+
+  @Override
+  public int hashCode() {
+
+    return Arrays.hashCode(bytes);
+  }
+}
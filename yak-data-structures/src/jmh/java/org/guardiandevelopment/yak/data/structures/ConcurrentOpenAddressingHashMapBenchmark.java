@@ -0,0 +1,110 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares throughput of {@link ConcurrentOpenAddressingHashMap} against a synchronized
+ * {@link OpenAddressingHashMap} and {@link ConcurrentHashMap} under a shared workload of 90% get and 10% put,
+ * run with more threads using {@code -t}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Threads(4)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ConcurrentOpenAddressingHashMapBenchmark {
+
+  private static final int CAPACITY = 1 << 16;
+  private static final Object VALUE = new Object();
+
+  @Param({"0.5", "0.9"})
+  public double loadFactor;
+
+  @Param({"INTEGER", "STRING"})
+  public KeyType keyType;
+
+  private ConcurrentOpenAddressingHashMap<Object, Object> yak;
+  private OpenAddressingHashMap<Object, Object> locked;
+  private ConcurrentHashMap<Object, Object> jdk;
+  private Object[] lookups;
+
+  /**
+   * The position of each thread within the lookup sequence.
+   */
+  @State(Scope.Thread)
+  public static class Cursor {
+
+    private int next;
+
+    /**
+     * Starts each thread at a different point of the lookup sequence.
+     */
+    @Setup(Level.Trial)
+    public void setup() {
+      next = (int) Thread.currentThread().getId() * 997;
+    }
+  }
+
+  /**
+   * Fills every map with the same keys up to the load factor.
+   */
+  @Setup(Level.Trial)
+  public void setup() {
+
+    final var present = BenchmarkKeys.present(keyType, (int) (CAPACITY * loadFactor));
+    final var absent = BenchmarkKeys.absent(keyType, present.length);
+
+    yak = new ConcurrentOpenAddressingHashMap<>(CAPACITY);
+    locked = new OpenAddressingHashMap<>(CAPACITY);
+    jdk = new ConcurrentHashMap<>(CAPACITY);
+    for (final var key : present) {
+      yak.put(key, VALUE);
+      locked.put(key, VALUE);
+      jdk.put(key, VALUE);
+    }
+
+    lookups = BenchmarkKeys.lookups(present, absent, 1.0);
+  }
+
+  @Benchmark
+  public Object yakReadMostly(final Cursor cursor) {
+
+    final var operation = cursor.next++;
+    final var key = lookups[operation & BenchmarkKeys.LOOKUP_MASK];
+    return operation % 10 == 0 ? yak.put(key, VALUE) : yak.get(key);
+  }
+
+  @Benchmark
+  public Object synchronizedReadMostly(final Cursor cursor) {
+
+    final var operation = cursor.next++;
+    final var key = lookups[operation & BenchmarkKeys.LOOKUP_MASK];
+    synchronized (locked) {
+      return operation % 10 == 0 ? locked.put(key, VALUE) : locked.get(key);
+    }
+  }
+
+  @Benchmark
+  public Object jdkReadMostly(final Cursor cursor) {
+
+    final var operation = cursor.next++;
+    final var key = lookups[operation & BenchmarkKeys.LOOKUP_MASK];
+    return operation % 10 == 0 ? jdk.put(key, VALUE) : jdk.get(key);
+  }
+}
@@ -0,0 +1,75 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Samples the latency of putting new keys into a growable {@link OpenAddressingHashMap}, which moves its keys a few
+ * at a time as it grows, against a {@link HashMap}, which rehashes every key in the put that crosses its threshold.
+ *
+ * <p>
+ * Both maps start small and are recreated every iteration, so the upper percentiles show the cost of growing.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class GrowthBenchmark {
+
+  private static final int INITIAL_SIZE = 16;
+  private static final int KEY_COUNT = 1 << 20;
+  private static final Object VALUE = new Object();
+
+  @Param({"INTEGER", "STRING"})
+  public KeyType keyType;
+
+  private Object[] keys;
+  private OpenAddressingHashMap<Object, Object> yak;
+  private HashMap<Object, Object> jdk;
+  private int next;
+
+  /**
+   * Creates the keys once, as creating them dominates a put.
+   */
+  @Setup(Level.Trial)
+  public void createKeys() {
+
+    keys = BenchmarkKeys.present(keyType, KEY_COUNT);
+  }
+
+  /**
+   * Starts every iteration with empty maps of the initial size.
+   */
+  @Setup(Level.Iteration)
+  public void setup() {
+
+    yak = new OpenAddressingHashMap<>(INITIAL_SIZE, 0.75f, Hasher.murmur3(), true);
+    jdk = new HashMap<>(INITIAL_SIZE);
+    next = 0;
+  }
+
+  @Benchmark
+  public Object yakPutNew() {
+    return yak.put(keys[next++ & (KEY_COUNT - 1)], VALUE);
+  }
+
+  @Benchmark
+  public Object jdkPutNew() {
+    return jdk.put(keys[next++ & (KEY_COUNT - 1)], VALUE);
+  }
+}
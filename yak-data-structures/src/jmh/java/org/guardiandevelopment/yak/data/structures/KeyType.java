@@ -0,0 +1,31 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The shapes of key used when benchmarking the tables, each created deterministically from an integer id.
+ */
+public enum KeyType {
+
+  INTEGER {
+    @Override
+    Object create(final int id) {
+      return id;
+    }
+  },
+  STRING {
+    @Override
+    Object create(final int id) {
+      return "key-" + id;
+    }
+  },
+  BYTES {
+    // the second long mixes the id, as Arrays.hashCode of an id and its complement collapses many ids onto few codes
+    @Override
+    Object create(final int id) {
+      return new BytesKey(ByteBuffer.allocate(16).putLong(id).putLong(id * 0x9E37_79B9_7F4A_7C15L).array());
+    }
+  };
+
+  abstract Object create(int id);
+}
@@ -0,0 +1,73 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link LongOpenAddressingIndex} against {@link OpenAddressingIndex} holding boxed {@link Long} keys.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LongOpenAddressingIndexBenchmark {
+
+  private static final int CAPACITY = 1 << 16;
+
+  @Param({"0.5", "0.75", "0.9"})
+  public double loadFactor;
+
+  private LongOpenAddressingIndex primitive;
+  private OpenAddressingIndex<Long> boxed;
+  private long[] lookups;
+  private int next;
+
+  /**
+   * Fills both indexes with the same random ids up to the load factor.
+   */
+  @Setup(Level.Trial)
+  public void setup() {
+
+    final var random = new Random(42L);
+    final var ids = random.longs(0, Long.MAX_VALUE)
+        .distinct()
+        .limit((long) (CAPACITY * loadFactor))
+        .toArray();
+
+    primitive = new LongOpenAddressingIndex(CAPACITY);
+    boxed = new OpenAddressingIndex<>(CAPACITY);
+    for (final var id : ids) {
+      primitive.getExistingOrAssign(id);
+      boxed.getExistingOrAssign(id);
+    }
+
+    lookups = new long[BenchmarkKeys.LOOKUP_SIZE];
+    for (int i = 0; i < lookups.length; i++) {
+      lookups[i] = ids[random.nextInt(ids.length)];
+    }
+  }
+
+  @Benchmark
+  public int primitiveGet() {
+    return primitive.get(lookups[next++ & BenchmarkKeys.LOOKUP_MASK]);
+  }
+
+  @Benchmark
+  public Integer boxedGet() {
+    return boxed.get(lookups[next++ & BenchmarkKeys.LOOKUP_MASK]);
+  }
+}
@@ -0,0 +1,184 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares get and put of {@link OpenAddressingHashMap}, {@link RobinHoodHashMap}, {@link SwissHashMap} and
+ * {@link CuckooHashMap} against {@link HashMap} across load factors, hit ratios and key types.
+ *
+ * <p>
+ * The batch benchmarks look up {@value #BATCH_SIZE} keys per operation, one at a time or with
+ * {@link OpenAddressingHashMap#getAll(Object[], Object[])}.
+ * </p>
+ * <p>
+ * The cuckoo hash map is filled in its own state, as it cannot hold every set of keys the other maps can, so a fill it
+ * refuses only fails the cuckoo benchmarks of that trial.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class OpenAddressingHashMapBenchmark {
+
+  private static final int CAPACITY = 1 << 16;
+  private static final Object VALUE = new Object();
+  private static final int BATCH_SIZE = 256;
+
+  @Param({"0.5", "0.75", "0.9", "0.95"})
+  public double loadFactor;
+
+  @Param({"1.0", "0.5", "0.0"})
+  public double hitRatio;
+
+  @Param({"INTEGER", "STRING", "BYTES"})
+  public KeyType keyType;
+
+  private OpenAddressingHashMap<Object, Object> yak;
+  private RobinHoodHashMap<Object, Object> robinHood;
+  private SwissHashMap<Object, Object> swiss;
+  private HashMap<Object, Object> jdk;
+  private Object[] present;
+  private Object[] lookups;
+  private Object[] updates;
+  private Object[][] batches;
+  private final Object[] results = new Object[BATCH_SIZE];
+  private int next;
+
+  /**
+   * Fills every map but the cuckoo hash map with the same keys up to the load factor.
+   */
+  @Setup(Level.Trial)
+  public void setup() {
+
+    present = BenchmarkKeys.present(keyType, (int) (CAPACITY * loadFactor));
+    final var absent = BenchmarkKeys.absent(keyType, present.length);
+
+    yak = new OpenAddressingHashMap<>(CAPACITY);
+    robinHood = new RobinHoodHashMap<>(CAPACITY);
+    swiss = new SwissHashMap<>(CAPACITY);
+    jdk = new HashMap<>(CAPACITY);
+    for (final var key : present) {
+      yak.put(key, VALUE);
+      robinHood.put(key, VALUE);
+      swiss.put(key, VALUE);
+      jdk.put(key, VALUE);
+    }
+
+    lookups = BenchmarkKeys.lookups(present, absent, hitRatio);
+    updates = BenchmarkKeys.lookups(present, absent, 1.0);
+    batches = new Object[BenchmarkKeys.LOOKUP_SIZE / BATCH_SIZE][BATCH_SIZE];
+    for (int i = 0; i < batches.length; i++) {
+      System.arraycopy(lookups, i * BATCH_SIZE, batches[i], 0, BATCH_SIZE);
+    }
+  }
+
+  @Benchmark
+  public Object yakGet() {
+    return yak.get(lookups[next++ & BenchmarkKeys.LOOKUP_MASK]);
+  }
+
+  @Benchmark
+  public Object robinHoodGet() {
+    return robinHood.get(lookups[next++ & BenchmarkKeys.LOOKUP_MASK]);
+  }
+
+  @Benchmark
+  public Object swissGet() {
+    return swiss.get(lookups[next++ & BenchmarkKeys.LOOKUP_MASK]);
+  }
+
+  @Benchmark
+  public Object cuckooGet(final CuckooState state) {
+    return state.cuckoo.get(lookups[next++ & BenchmarkKeys.LOOKUP_MASK]);
+  }
+
+  @Benchmark
+  public Object jdkGet() {
+    return jdk.get(lookups[next++ & BenchmarkKeys.LOOKUP_MASK]);
+  }
+
+  @Benchmark
+  public Object yakPutExisting() {
+    return yak.put(updates[next++ & BenchmarkKeys.LOOKUP_MASK], VALUE);
+  }
+
+  @Benchmark
+  public Object robinHoodPutExisting() {
+    return robinHood.put(updates[next++ & BenchmarkKeys.LOOKUP_MASK], VALUE);
+  }
+
+  @Benchmark
+  public Object swissPutExisting() {
+    return swiss.put(updates[next++ & BenchmarkKeys.LOOKUP_MASK], VALUE);
+  }
+
+  @Benchmark
+  public Object cuckooPutExisting(final CuckooState state) {
+    return state.cuckoo.put(updates[next++ & BenchmarkKeys.LOOKUP_MASK], VALUE);
+  }
+
+  @Benchmark
+  public Object jdkPutExisting() {
+    return jdk.put(updates[next++ & BenchmarkKeys.LOOKUP_MASK], VALUE);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public Object[] yakGetEach() {
+
+    final var batch = batches[next++ & (batches.length - 1)];
+    for (int i = 0; i < BATCH_SIZE; i++) {
+      results[i] = yak.get(batch[i]);
+    }
+    return results;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public Object[] yakGetAll() {
+
+    yak.getAll(batches[next++ & (batches.length - 1)], results);
+    return results;
+  }
+
+  /**
+   * Holds the cuckoo hash map, filled with the same keys as the other maps.
+   */
+  @State(Scope.Thread)
+  public static class CuckooState {
+
+    private CuckooHashMap<Object, Object> cuckoo;
+
+    /**
+     * Fills the cuckoo hash map with the present keys of the benchmark.
+     *
+     * @param benchmark the benchmark holding the keys, already set up
+     * @throws RuntimeException if the cuckoo hash map cannot hold every key, failing only the cuckoo benchmarks
+     */
+    @Setup(Level.Trial)
+    public void setup(final OpenAddressingHashMapBenchmark benchmark) {
+
+      cuckoo = new CuckooHashMap<>(CAPACITY);
+      for (final var key : benchmark.present) {
+        cuckoo.put(key, VALUE);
+      }
+    }
+  }
+}
@@ -0,0 +1,91 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares get and getExistingOrAssign of {@link OpenAddressingIndex} against a {@link HashMap} of key to slot across
+ * load factors, hit ratios and key types.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class OpenAddressingIndexBenchmark {
+
+  private static final int CAPACITY = 1 << 16;
+
+  @Param({"0.5", "0.75", "0.9", "0.95"})
+  public double loadFactor;
+
+  @Param({"1.0", "0.5", "0.0"})
+  public double hitRatio;
+
+  @Param({"INTEGER", "STRING", "BYTES"})
+  public KeyType keyType;
+
+  @Param({"identity", "murmur3"})
+  public String hasher;
+
+  @Param({"false", "true"})
+  public boolean cacheHashes;
+
+  private OpenAddressingIndex<Object> yak;
+  private HashMap<Object, Integer> jdk;
+  private Object[] lookups;
+  private Object[] existing;
+  private int next;
+
+  /**
+   * Fills both indexes with the same keys up to the load factor.
+   */
+  @Setup(Level.Trial)
+  public void setup() {
+
+    final var present = BenchmarkKeys.present(keyType, (int) (CAPACITY * loadFactor));
+    final var absent = BenchmarkKeys.absent(keyType, present.length);
+
+    yak = new OpenAddressingIndex<>(CAPACITY, "murmur3".equals(hasher) ? Hasher.murmur3() : Hasher.identity(), cacheHashes);
+    jdk = new HashMap<>(CAPACITY);
+    for (final var key : present) {
+      jdk.put(key, yak.getExistingOrAssign(key));
+    }
+
+    lookups = BenchmarkKeys.lookups(present, absent, hitRatio);
+    existing = BenchmarkKeys.lookups(present, absent, 1.0);
+  }
+
+  @Benchmark
+  public Integer yakGet() {
+    return yak.get(lookups[next++ & BenchmarkKeys.LOOKUP_MASK]);
+  }
+
+  @Benchmark
+  public Integer jdkGet() {
+    return jdk.get(lookups[next++ & BenchmarkKeys.LOOKUP_MASK]);
+  }
+
+  @Benchmark
+  public Integer yakGetExistingOrAssign() {
+    return yak.getExistingOrAssign(existing[next++ & BenchmarkKeys.LOOKUP_MASK]);
+  }
+
+  @Benchmark
+  public Integer jdkGetExistingOrAssign() {
+    return jdk.putIfAbsent(existing[next++ & BenchmarkKeys.LOOKUP_MASK], jdk.size());
+  }
+}
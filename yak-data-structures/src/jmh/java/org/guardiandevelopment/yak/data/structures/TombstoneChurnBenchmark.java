@@ -0,0 +1,99 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a steady delete then insert churn, which leaves a deleted marker behind on every operation.
+ *
+ * <p>
+ * The tables hold a sliding window of keys: each operation deletes the oldest key of the window and inserts the key
+ * following the newest, so the number of live keys stays at the load factor while deleted markers accumulate.
+ * The map compacts a few locations on every put and delete, the bare index only clears markers no key passes through.
+ * </p>
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TombstoneChurnBenchmark {
+
+  private static final int CAPACITY = 1 << 16;
+  private static final Object VALUE = new Object();
+
+  @Param({"0.5", "0.75", "0.9", "0.95"})
+  public double loadFactor;
+
+  @Param({"INTEGER", "STRING", "BYTES"})
+  public KeyType keyType;
+
+  private OpenAddressingHashMap<Object, Object> yakMap;
+  private OpenAddressingIndex<Object> yakIndex;
+  private HashMap<Object, Object> jdk;
+  private Object[] keys;
+  private int live;
+  private int oldest;
+
+  /**
+   * Fills the tables with the first window of keys.
+   */
+  @Setup(Level.Trial)
+  public void setup() {
+
+    live = (int) (CAPACITY * loadFactor);
+    keys = BenchmarkKeys.present(keyType, live * 2);
+
+    yakMap = new OpenAddressingHashMap<>(CAPACITY);
+    yakIndex = new OpenAddressingIndex<>(CAPACITY);
+    jdk = new HashMap<>(CAPACITY);
+    for (int i = 0; i < live; i++) {
+      yakMap.put(keys[i], VALUE);
+      yakIndex.getExistingOrAssign(keys[i]);
+      jdk.put(keys[i], VALUE);
+    }
+  }
+
+  @Benchmark
+  public Object yakMapDeleteThenPut() {
+    final var removed = keys[oldest];
+    final var added = keys[(oldest + live) % keys.length];
+    oldest = (oldest + 1) % keys.length;
+
+    yakMap.delete(removed);
+    return yakMap.put(added, VALUE);
+  }
+
+  @Benchmark
+  public Integer yakIndexDeleteThenAssign() {
+    final var removed = keys[oldest];
+    final var added = keys[(oldest + live) % keys.length];
+    oldest = (oldest + 1) % keys.length;
+
+    yakIndex.delete(removed);
+    return yakIndex.getExistingOrAssign(added);
+  }
+
+  @Benchmark
+  public Object jdkDeleteThenPut() {
+    final var removed = keys[oldest];
+    final var added = keys[(oldest + live) % keys.length];
+    oldest = (oldest + 1) % keys.length;
+
+    jdk.remove(removed);
+    return jdk.put(added, VALUE);
+  }
+}
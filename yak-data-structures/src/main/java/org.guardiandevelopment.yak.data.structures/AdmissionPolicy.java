@@ -0,0 +1,21 @@
+package org.guardiandevelopment.yak.data.structures;
+
+/**
+ * Decides whether a new key is worth evicting an existing key for, when a table using {@link EvictionPolicy#CLOCK} is
+ * full.
+ *
+ * @param <K> the type of the key
+ */
+@FunctionalInterface
+public interface AdmissionPolicy<K> {
+
+  /**
+   * Returns true if the candidate should replace the victim chosen for eviction, else the candidate is rejected and
+   * the victim is kept.
+   *
+   * @param candidate the new key
+   * @param victim    the existing key chosen for eviction
+   * @return true to evict the victim and admit the candidate
+   */
+  boolean admit(K candidate, K victim);
+}
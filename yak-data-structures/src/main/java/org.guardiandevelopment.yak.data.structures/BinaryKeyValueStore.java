@@ -0,0 +1,138 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Provides a fixed size store of fixed length binary key to fixed size binary value, where the values are held
+ * outside the java heap.
+ *
+ * <p>
+ * Keys are held inline by a {@link BinaryOpenAddressingIndex}, and the location the index assigns to a key addresses
+ * its value directly within a direct memory slab. Keys are read straight from the buffer holding them and values are
+ * copied between the slab and caller supplied buffers, so serving a request held in a direct buffer never allocates.
+ * </p>
+ * <p>
+ * The direct memory is released when the store is no longer reachable.
+ * </p>
+ */
+public final class BinaryKeyValueStore {
+
+  private final BinaryOpenAddressingIndex index;
+  private final ByteSlab values;
+  private final int valueSize;
+
+  /**
+   * Creates a store of the fixedSize, holding keys of exactly keyLength bytes and values of exactly valueSize bytes.
+   *
+   * <p>
+   * The fixed size must be a power of 2, as this allows for better resolutions of collisions as we use
+   * Double Hashing when probing the table.
+   * </p>
+   *
+   * @param fixedSize the number of values the store can hold
+   * @param keyLength the length in bytes of every key
+   * @param valueSize the size in bytes of every value
+   */
+  public BinaryKeyValueStore(final int fixedSize, final int keyLength, final int valueSize) {
+
+    assert valueSize > 0 : "the size of a value must be positive";
+
+    this.index = new BinaryOpenAddressingIndex(fixedSize, keyLength);
+    this.values = ByteSlab.allocateDirect(fixedSize, valueSize);
+    this.valueSize = valueSize;
+  }
+
+  /**
+   * Copies the value associated with the key held at offset in key into dst.
+   *
+   * <p>
+   * On success {@link #valueSize()} bytes are written at the position of dst and its position is advanced past them,
+   * else dst is left untouched. The position of key is never changed.
+   * </p>
+   *
+   * @param key    the buffer holding the key
+   * @param offset the index of the first byte of the key
+   * @param dst    the buffer to copy the value into
+   * @return true if the key exists and the value was copied, else false
+   * @throws IndexOutOfBoundsException if dst has fewer than {@link #valueSize()} bytes remaining
+   */
+  public boolean get(final ByteBuffer key, final int offset, final ByteBuffer dst) {
+
+    final var location = index.get(key, offset);
+    if (location == BinaryOpenAddressingIndex.NO_SLOT) {
+      return false;
+    }
+
+    values.copyOut(location, dst);
+    return true;
+  }
+
+  /**
+   * Copies {@link #valueSize()} bytes from the position of src into the value associated with the key held at offset
+   * in key.
+   *
+   * @param key    the buffer holding the key
+   * @param offset the index of the first byte of the key
+   * @param src    the buffer holding the value, its position is advanced past the value once stored
+   * @return true if the value was stored, false if the store is full and the key does not currently exist
+   * @throws IndexOutOfBoundsException if src has fewer than {@link #valueSize()} bytes remaining
+   */
+  public boolean put(final ByteBuffer key, final int offset, final ByteBuffer src) {
+
+    // check before assigning, so a short buffer never leaves the key assigned to a stale value
+    Objects.checkFromIndexSize(src.position(), valueSize, src.limit());
+
+    final var location = index.getExistingOrAssign(key, offset);
+    if (location == BinaryOpenAddressingIndex.NO_SLOT) {
+      return false;
+    }
+
+    values.copyIn(location, src);
+    return true;
+  }
+
+  /**
+   * Deletes the value currently associated with the key held at offset in key.
+   *
+   * @param key    the buffer holding the key
+   * @param offset the index of the first byte of the key
+   * @return true if the key was present, else false
+   */
+  public boolean delete(final ByteBuffer key, final int offset) {
+
+    final var location = index.get(key, offset);
+    if (location == BinaryOpenAddressingIndex.NO_SLOT) {
+      return false;
+    }
+
+    return index.release(location);
+  }
+
+  /**
+   * The most locations any key held was probed to when assigned, which bounds the locations any search examines.
+   *
+   * @return the longest probe
+   */
+  public int longestProbe() {
+    return index.longestProbe();
+  }
+
+  /**
+   * Returns the length in bytes of every key held by the store.
+   *
+   * @return the length of a key
+   */
+  public int keyLength() {
+    return index.keyLength();
+  }
+
+  /**
+   * Returns the size in bytes of every value held by the store.
+   *
+   * @return the size of a value
+   */
+  public int valueSize() {
+    return valueSize;
+  }
+}
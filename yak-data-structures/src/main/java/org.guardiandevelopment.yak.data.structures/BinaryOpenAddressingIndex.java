@@ -0,0 +1,456 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Provides an index of fixed length binary key to int, where the int is equal to the index of the key in the map.
+ *
+ * <p>
+ * The bytes of every key are copied inline into a single flat array, one key length per location. A key is hashed
+ * with xxHash and compared directly from where it arrived, a range of a byte array or of a {@link ByteBuffer}, so
+ * looking a key up never wraps it in an object, and only assigning a new key copies it.
+ * </p>
+ * <p>
+ * The hash of every key is cached alongside it, so a probe only compares the bytes of keys of equal hash.
+ * </p>
+ * <p>
+ * The longest probe any key held needed when assigned is recorded, and no search probes further, so under delete churn
+ * a search for a missing key stops there, rather than walking every location once none are left empty. A new key takes
+ * the first deleted location on its probe path, so the longest probe follows the load of the index, not its history.
+ * </p>
+ */
+public final class BinaryOpenAddressingIndex {
+
+  /**
+   * Returned when a key is not present, or when the index is full and the key cannot be assigned.
+   */
+  public static final int NO_SLOT = -1;
+
+  private static final byte EMPTY = 0;
+  private static final byte OCCUPIED = 1;
+  private static final byte DELETED = 2;
+
+  // "YAKB", followed by the format version
+  private static final int SNAPSHOT_MAGIC = 0x59414B42;
+  private static final int SNAPSHOT_VERSION = 2;
+
+  private static final VarHandle LITTLE_ENDIAN_LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final VarHandle BIG_ENDIAN_LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.BIG_ENDIAN);
+
+  private final byte[] keys;
+  private final int[] hashes;
+  private final byte[] states;
+  private final int keyLength;
+
+  // m, a power of 2, masked by m - 1
+  // h1(k) = hash(k) & (m - 1) = initial location
+  // h2(k) = ((hash(k) * 2^32 / phi) >>> (32 - log2(m))) | 1 = increment between locations, from every bit of the
+  // hash, odd so every location is visited
+  private final int mask;
+  private final int shift;
+
+  private int size;
+
+  // the most locations any key held was probed to, so no search needs to probe further. only raised as keys are
+  // assigned, as a deleted key cannot tell whether it was the furthest
+  private int longestProbe = 1;
+
+  /**
+   * Creates an index of the fixedSize, for keys of the keyLength, using the open addressing collision resolution
+   * technique.
+   *
+   * <p>
+   * The fixed size must be a power of 2, as this allows for better resolutions of collisions as we use
+   * Double Hashing when probing the table.
+   * </p>
+   *
+   * @param fixedSize the size of the index
+   * @param keyLength the number of bytes of every key
+   */
+  public BinaryOpenAddressingIndex(final int fixedSize, final int keyLength) {
+
+    assert IntegerExtensions.isPowerOf2(fixedSize) : "the size of the index must be a power of 2";
+    assert keyLength > 0 && (long) fixedSize * keyLength <= Integer.MAX_VALUE - 8 : "the keys must fit in one array";
+
+    this.keys = new byte[fixedSize * keyLength];
+    this.hashes = new int[fixedSize];
+    this.states = new byte[fixedSize];
+    this.keyLength = keyLength;
+    this.mask = fixedSize - 1;
+    this.shift = Integer.numberOfTrailingZeros(fixedSize);
+  }
+
+  /**
+   * Searches for the location of the key held in the array, from the offset.
+   *
+   * @param key    the array holding the key
+   * @param offset the index of the first byte of the key
+   * @return the location of the key if it exists, else {@link #NO_SLOT}
+   */
+  public int get(final byte[] key, final int offset) {
+
+    return locate(key, offset, XxHash32.hash(key, offset, keyLength));
+  }
+
+  /**
+   * Searches for the location of the key held in the buffer, from the offset.
+   *
+   * <p>
+   * The key is read by absolute index, so the position and limit of the buffer are left untouched.
+   * </p>
+   *
+   * @param key    the buffer holding the key
+   * @param offset the index of the first byte of the key
+   * @return the location of the key if it exists, else {@link #NO_SLOT}
+   */
+  public int get(final ByteBuffer key, final int offset) {
+
+    return locate(key, offset, XxHash32.hash(key, offset, keyLength));
+  }
+
+  /**
+   * Assigns the key held in the array, from the offset, to a fixed location in the index.
+   *
+   * <p>
+   * Follows the same probing as {@link OpenAddressingIndex#getExistingOrAssign(Object)}: the existing location of the
+   * key is returned if present, else the first empty or deleted location on the probe path.
+   * </p>
+   *
+   * @param key    the array holding the key
+   * @param offset the index of the first byte of the key
+   * @return the assignment, or {@link #NO_SLOT} if the index is full and the key does not currently exist
+   */
+  public int getExistingOrAssign(final byte[] key, final int offset) {
+
+    return locateOrAssign(key, offset, XxHash32.hash(key, offset, keyLength));
+  }
+
+  /**
+   * Assigns the key held in the buffer, from the offset, to a fixed location in the index.
+   *
+   * @param key    the buffer holding the key
+   * @param offset the index of the first byte of the key
+   * @return the assignment, or {@link #NO_SLOT} if the index is full and the key does not currently exist
+   * @see #getExistingOrAssign(byte[], int)
+   */
+  public int getExistingOrAssign(final ByteBuffer key, final int offset) {
+
+    return locateOrAssign(key, offset, XxHash32.hash(key, offset, keyLength));
+  }
+
+  /**
+   * Ensures the key held in the array, from the offset, is no longer present in the index.
+   *
+   * @param key    the array holding the key
+   * @param offset the index of the first byte of the key
+   * @return true if the key is no longer present in the index.
+   */
+  public boolean delete(final byte[] key, final int offset) {
+
+    return release(get(key, offset));
+  }
+
+  /**
+   * Ensures the key held in the buffer, from the offset, is no longer present in the index.
+   *
+   * @param key    the buffer holding the key
+   * @param offset the index of the first byte of the key
+   * @return true if the key is no longer present in the index.
+   */
+  public boolean delete(final ByteBuffer key, final int offset) {
+
+    return release(get(key, offset));
+  }
+
+  /**
+   * Copies the key assigned to the location into the array.
+   *
+   * @param location    a location returned for a key still present
+   * @param destination the array to copy the key into
+   * @param offset      the index to copy the first byte of the key to
+   */
+  public void copyKey(final int location, final byte[] destination, final int offset) {
+
+    assert states[location] == OCCUPIED : "the location must hold a key";
+
+    System.arraycopy(keys, location * keyLength, destination, offset, keyLength);
+  }
+
+  /**
+   * The number of bytes of every key.
+   *
+   * @return the key length
+   */
+  public int keyLength() {
+    return keyLength;
+  }
+
+  /**
+   * The number of keys in the index.
+   *
+   * @return the number of keys
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * The most locations any key held was probed to when assigned, which bounds the locations any search examines.
+   *
+   * @return the longest probe
+   */
+  public int longestProbe() {
+    return longestProbe;
+  }
+
+  /**
+   * Writes every location of the index to the channel, as the arrays are held.
+   *
+   * @param channel the channel to write to, left open
+   * @throws IOException if the channel cannot be written to
+   */
+  public void snapshot(final WritableByteChannel channel) throws IOException {
+
+    final var out = new SnapshotWriter(channel);
+    out.writeInt(SNAPSHOT_MAGIC);
+    out.writeInt(SNAPSHOT_VERSION);
+    out.writeInt(states.length);
+    out.writeInt(keyLength);
+    out.writeBytes(states);
+    out.writeInts(hashes);
+    out.writeBytes(keys);
+    out.flush();
+  }
+
+  /**
+   * Replaces every location of the index with those read from the channel, written by
+   * {@link #snapshot(WritableByteChannel)} from an index of the same size, copying the arrays straight back.
+   *
+   * <p>
+   * If the snapshot ends, or cannot be read, part way through the locations, the index is left empty.
+   * </p>
+   *
+   * @param channel the channel to read from, left open
+   * @throws IOException if the channel cannot be read from, or does not hold a snapshot of an index of this size
+   */
+  public void restore(final ReadableByteChannel channel) throws IOException {
+
+    final var in = new SnapshotReader(channel);
+    if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+      throw new IOException("not a snapshot of an index");
+    }
+    final var snapshotSize = in.readInt();
+    if (snapshotSize != states.length) {
+      throw new IOException("the snapshot holds " + snapshotSize + " locations, the index " + states.length);
+    }
+    final var snapshotKeyLength = in.readInt();
+    if (snapshotKeyLength != keyLength) {
+      throw new IOException("the snapshot holds keys of " + snapshotKeyLength + " bytes, the index " + keyLength);
+    }
+
+    try {
+      in.readBytes(states);
+      in.readInts(hashes);
+      in.readBytes(keys);
+    } catch (final IOException | RuntimeException e) {
+      Arrays.fill(states, EMPTY);
+      size = 0;
+      longestProbe = 1;
+      throw e;
+    }
+
+    // the keys are back at the locations they were assigned, so walk each probe path to find the longest again
+    size = 0;
+    longestProbe = 1;
+    for (int location = 0; location < states.length; location++) {
+      if (states[location] == OCCUPIED) {
+        size++;
+        longestProbe = Math.max(longestProbe, probesTo(location));
+      }
+    }
+  }
+
+  // the key is a byte[] or a ByteBuffer, the only two types the public operations accept
+  private int locate(final Object key, final int offset, final int hash) {
+
+    final var position = hash & mask;
+
+    // if location is empty, return no slot
+    if (states[position] == EMPTY) {
+      return NO_SLOT;
+    }
+
+    if (matches(position, key, offset, hash)) {
+      return position;
+    }
+
+    // collision happened, search for potential key in remaining set, no key held is further along than the longest probe
+    final var searchIncrement = IntegerExtensions.probeIncrement(hash, shift, mask);
+    var searchingPosition = (position + searchIncrement) & mask;
+
+    for (int probes = 2; probes <= longestProbe; probes++) {
+
+      // if empty, key cant be present
+      if (states[searchingPosition] == EMPTY) {
+        return NO_SLOT;
+      }
+
+      // if equal, found key, return position
+      if (matches(searchingPosition, key, offset, hash)) {
+        return searchingPosition;
+      }
+
+      // not found, but not hit exit condition, continue searching
+      searchingPosition = (searchingPosition + searchIncrement) & mask;
+    }
+
+    return NO_SLOT;
+  }
+
+  private int locateOrAssign(final Object key, final int offset, final int hash) {
+
+    final var position = hash & mask;
+    final var stateAtPosition = states[position];
+
+    // if location is empty, or key present is equal to param, return position of the key
+    if (stateAtPosition == EMPTY) {
+      return assign(position, key, offset, hash, 1);
+    }
+
+    if (matches(position, key, offset, hash)) {
+      return position;
+    }
+
+    // collision happened, search for potential key in remaining set, no key held is further along than the longest
+    // probe. the first deleted location is the next viable insert location, preferring the initial location
+    final var searchIncrement = IntegerExtensions.probeIncrement(hash, shift, mask);
+    var searchingPosition = (position + searchIncrement) & mask;
+    var nextViableInsertLocation = stateAtPosition == DELETED ? position : NO_SLOT;
+    var nextViableInsertProbes = 1;
+    var probes = 1;
+
+    while (probes < longestProbe) {
+      probes++;
+      final var searchingState = states[searchingPosition];
+
+      // if empty, key cant be present already, assign to this slot, unless a deleted one came first
+      if (searchingState == EMPTY) {
+        return nextViableInsertLocation == NO_SLOT
+            ? assign(searchingPosition, key, offset, hash, probes)
+            : assign(nextViableInsertLocation, key, offset, hash, nextViableInsertProbes);
+      }
+
+      // mark the first deleted entry we find as the next viable insert location if we don't find an empty location
+      if (searchingState == DELETED && nextViableInsertLocation == NO_SLOT) {
+        nextViableInsertLocation = searchingPosition;
+        nextViableInsertProbes = probes;
+      }
+
+      // if equal, found key, return position
+      if (matches(searchingPosition, key, offset, hash)) {
+        return searchingPosition;
+      }
+
+      // not found, but not hit exit condition, continue searching
+      searchingPosition = (searchingPosition + searchIncrement) & mask;
+    }
+
+    if (nextViableInsertLocation != NO_SLOT) {
+      return assign(nextViableInsertLocation, key, offset, hash, nextViableInsertProbes);
+    }
+
+    // key does not exist in set, carry on along the probe path for a free location, unless every location holds a key
+    if (size == states.length) {
+      return NO_SLOT;
+    }
+
+    while (states[searchingPosition] == OCCUPIED) {
+      probes++;
+      searchingPosition = (searchingPosition + searchIncrement) & mask;
+    }
+    return assign(searchingPosition, key, offset, hash, probes + 1);
+  }
+
+  private int assign(final int location, final Object key, final int offset, final int hash, final int probes) {
+
+    if (key instanceof byte[] bytes) {
+      System.arraycopy(bytes, offset, keys, location * keyLength, keyLength);
+    } else {
+      ((ByteBuffer) key).get(offset, keys, location * keyLength, keyLength);
+    }
+    hashes[location] = hash;
+    states[location] = OCCUPIED;
+    size++;
+    longestProbe = Math.max(longestProbe, probes);
+    return location;
+  }
+
+  // package-private for stores that must know whether the key was present, which delete does not report
+  boolean release(final int location) {
+
+    if (location != NO_SLOT) {
+      states[location] = DELETED;
+      size--;
+    }
+    return true;
+  }
+
+  // the number of locations probed to reach the location along the probe path of the key it holds
+  private int probesTo(final int location) {
+
+    final var hash = hashes[location];
+    final var searchIncrement = IntegerExtensions.probeIncrement(hash, shift, mask);
+    var searchingPosition = hash & mask;
+    var probes = 1;
+    while (searchingPosition != location) {
+      probes++;
+      searchingPosition = (searchingPosition + searchIncrement) & mask;
+    }
+    return probes;
+  }
+
+  // a cached hash that differs rules the key out without comparing its bytes
+  private boolean matches(final int location, final Object key, final int offset, final int hash) {
+
+    if (states[location] != OCCUPIED || hashes[location] != hash) {
+      return false;
+    }
+
+    final var start = location * keyLength;
+    if (key instanceof byte[] bytes) {
+      return Arrays.equals(keys, start, start + keyLength, bytes, offset, offset + keyLength);
+    }
+
+    final var buffer = (ByteBuffer) key;
+    if (buffer.hasArray()) {
+      final var from = buffer.arrayOffset() + offset;
+      return Arrays.equals(keys, start, start + keyLength, buffer.array(), from, from + keyLength);
+    }
+    return equalsDirect(start, buffer, offset);
+  }
+
+  // compares 8 bytes at a time, reading the held key in the order of the buffer so both reads agree
+  private boolean equalsDirect(final int start, final ByteBuffer buffer, final int offset) {
+
+    final var longs = buffer.order() == ByteOrder.BIG_ENDIAN ? BIG_ENDIAN_LONGS : LITTLE_ENDIAN_LONGS;
+    var i = 0;
+    for (; i + Long.BYTES <= keyLength; i += Long.BYTES) {
+      if ((long) longs.get(keys, start + i) != buffer.getLong(offset + i)) {
+        return false;
+      }
+    }
+    for (; i < keyLength; i++) {
+      if (keys[start + i] != buffer.get(offset + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -0,0 +1,173 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * A fixed number of fixed size slots held outside the java heap, either in direct memory or mapped from a file.
+ *
+ * <p>
+ * A single {@link ByteBuffer} can address at most {@link Integer#MAX_VALUE} bytes, so the slots are split across
+ * equally sized chunks, each holding a power of 2 number of slots. A slot never spans two chunks, so locating a slot
+ * is a shift and a mask.
+ * </p>
+ */
+final class ByteSlab {
+
+  private final ByteBuffer[] chunks;
+  private final int slotSize;
+  private final int chunkShift;
+  private final int chunkMask;
+
+  private ByteSlab(final ByteBuffer[] chunks, final int slotSize, final int slotsPerChunk) {
+    this.chunks = chunks;
+    this.slotSize = slotSize;
+    this.chunkShift = Integer.numberOfTrailingZeros(slotsPerChunk);
+    this.chunkMask = slotsPerChunk - 1;
+  }
+
+  /**
+   * Allocates a slab of direct memory.
+   *
+   * @param slots    the number of slots, must be a power of 2
+   * @param slotSize the size in bytes of each slot
+   * @return the slab
+   */
+  static ByteSlab allocateDirect(final int slots, final int slotSize) {
+
+    return allocateDirect(slots, slotSize, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Allocates a slab of direct memory, where no chunk is larger than maxChunkBytes.
+   *
+   * @param slots         the number of slots, must be a power of 2
+   * @param slotSize      the size in bytes of each slot
+   * @param maxChunkBytes the largest size of a single chunk
+   * @return the slab
+   */
+  static ByteSlab allocateDirect(final int slots, final int slotSize, final int maxChunkBytes) {
+
+    final var slotsPerChunk = slotsPerChunk(slots, slotSize, maxChunkBytes);
+    final var chunks = new ByteBuffer[slots / slotsPerChunk];
+    for (int i = 0; i < chunks.length; i++) {
+      chunks[i] = ByteBuffer.allocateDirect(slotsPerChunk * slotSize);
+    }
+    return new ByteSlab(chunks, slotSize, slotsPerChunk);
+  }
+
+  /**
+   * Maps a slab from the region of the file starting at position, the file is grown to hold the region if required.
+   *
+   * @param channel  the file to map, opened for reading and writing
+   * @param position the offset within the file the slab starts at
+   * @param slots    the number of slots, must be a power of 2
+   * @param slotSize the size in bytes of each slot
+   * @return the slab
+   * @throws IOException if the file cannot be mapped
+   */
+  static ByteSlab map(final FileChannel channel, final long position, final int slots, final int slotSize)
+      throws IOException {
+
+    final var slotsPerChunk = slotsPerChunk(slots, slotSize, Integer.MAX_VALUE);
+    final var chunkBytes = (long) slotsPerChunk * slotSize;
+    final var chunks = new ByteBuffer[slots / slotsPerChunk];
+    for (int i = 0; i < chunks.length; i++) {
+      chunks[i] = channel.map(FileChannel.MapMode.READ_WRITE, position + i * chunkBytes, chunkBytes);
+    }
+    return new ByteSlab(chunks, slotSize, slotsPerChunk);
+  }
+
+  /**
+   * Returns the size in bytes of a slab of slots.
+   *
+   * @param slots    the number of slots
+   * @param slotSize the size in bytes of each slot
+   * @return the size of the slab
+   */
+  static long sizeOf(final int slots, final int slotSize) {
+
+    return (long) slots * slotSize;
+  }
+
+  /**
+   * Returns the largest power of 2 number of slots that fit in a chunk, capped at the total number of slots.
+   *
+   * @param slots         the total number of slots, must be a power of 2
+   * @param slotSize      the size in bytes of each slot
+   * @param maxChunkBytes the largest size of a single chunk
+   * @return the number of slots held by each chunk
+   */
+  static int slotsPerChunk(final int slots, final int slotSize, final int maxChunkBytes) {
+
+    assert IntegerExtensions.isPowerOf2(slots) : "the number of slots must be a power of 2";
+    assert slotSize > 0 && slotSize <= maxChunkBytes : "a slot must fit within a single chunk";
+
+    final var fitting = Integer.highestOneBit(maxChunkBytes / slotSize);
+    return Math.min(slots, fitting);
+  }
+
+  /**
+   * Copies a slot worth of bytes from the position of src into the slot, advancing the position of src.
+   *
+   * @param slot the slot to write
+   * @param src  the bytes to copy
+   */
+  void copyIn(final int slot, final ByteBuffer src) {
+
+    final var position = src.position();
+    chunk(slot).put(offset(slot), src, position, slotSize);
+    src.position(position + slotSize);
+  }
+
+  /**
+   * Copies the bytes of the slot into dst at its position, advancing the position of dst.
+   *
+   * @param slot the slot to read
+   * @param dst  the buffer to copy into
+   */
+  void copyOut(final int slot, final ByteBuffer dst) {
+
+    final var position = dst.position();
+    dst.put(position, chunk(slot), offset(slot), slotSize);
+    dst.position(position + slotSize);
+  }
+
+  byte getByte(final int slot) {
+    return chunk(slot).get(offset(slot));
+  }
+
+  void putByte(final int slot, final byte value) {
+    chunk(slot).put(offset(slot), value);
+  }
+
+  long getLong(final int slot) {
+    return chunk(slot).getLong(offset(slot));
+  }
+
+  void putLong(final int slot, final long value) {
+    chunk(slot).putLong(offset(slot), value);
+  }
+
+  /**
+   * Writes any changes to a mapped slab through to the file, does nothing for a slab held in direct memory.
+   */
+  void force() {
+
+    for (final var chunk : chunks) {
+      if (chunk instanceof MappedByteBuffer mapped) {
+        mapped.force();
+      }
+    }
+  }
+
+  private ByteBuffer chunk(final int slot) {
+    return chunks[slot >>> chunkShift];
+  }
+
+  private int offset(final int slot) {
+    return (slot & chunkMask) * slotSize;
+  }
+}
@@ -0,0 +1,42 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Loads the value of a key missing from a {@link LoadingCache}, typically from the slower store the cache is in front
+ * of.
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the value
+ */
+@FunctionalInterface
+public interface CacheLoader<K, V> {
+
+  /**
+   * Loads the value of the key.
+   *
+   * @param key the key missing from the cache
+   * @return the value, or null if the key has no value, which is then not cached
+   * @throws Exception if the value cannot be loaded, failing every caller waiting on the load
+   */
+  V load(K key) throws Exception;
+
+  /**
+   * Loads the values of many keys at once, so a store able to answer a batch of keys in a single request can be
+   * overridden to do so, by default each key is loaded in turn.
+   *
+   * @param keys the keys missing from the cache
+   * @return the value of each key that has one, a key without a value may be left out, or null if no key has a value
+   * @throws Exception if the values cannot be loaded, failing every caller waiting on any of the keys
+   */
+  default Map<K, V> loadAll(final List<K> keys) throws Exception {
+
+    final var values = new HashMap<K, V>();
+    for (final var key : keys) {
+      values.put(key, load(key));
+    }
+    return values;
+  }
+}
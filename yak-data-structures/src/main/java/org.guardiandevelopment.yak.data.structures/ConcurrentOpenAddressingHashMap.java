@@ -0,0 +1,270 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Provides a fixed size, thread safe HashMap implementation using open addressing collision resolution technique.
+ *
+ * <p>
+ * The locations are split into contiguous lock stripes, each guarded by a {@link StampedLock}. A key belongs to the
+ * stripe holding its initial location, and every write of a key holds the write lock of that stripe only, so writes
+ * of keys in different stripes run in parallel. As a probe path can cross into other stripes, a write claims an empty
+ * or deleted location with a compare and set, so two writers can never take the same location.
+ * </p>
+ * <p>
+ * Reads take an optimistic stamp on the stripe of the key and probe without locking, and only retry, under the read
+ * lock, if a write of a key in the same stripe raced them. A write of a key in another stripe can never change the
+ * result of a read, as it only ever claims a location for a different key.
+ * </p>
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the value
+ */
+public final class ConcurrentOpenAddressingHashMap<K, V> implements FixedSizeMap<K, V> {
+
+  private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Object[].class);
+  private static final Object DELETED = new Object();
+  private static final int NO_SLOT = -1;
+
+  private final Object[] keys;
+  private final Object[] values;
+  private final StampedLock[] stripes;
+  private final int stripeShift;
+
+  // m, a power of 2, masked by m - 1
+  // h1(k) = hash(k) & (m - 1) = initial location
+  // h2(k) = ((hash(k) * 2^32 / phi) >>> (32 - log2(m))) | 1 = increment between locations, from every bit of the
+  // hash, odd so every location is visited
+  private final int mask;
+  private final int shift;
+
+  /**
+   * Creates a hash map of the fixedSize, with 4 lock stripes per available processor, rounded up to a power of 2.
+   *
+   * <p>
+   * The fixed size must be a power of 2, as this allows for better resolutions of collisions
+   * as we use Double Hashing when probing the table.
+   * </p>
+   *
+   * @param fixedSize the size of the hash map
+   */
+  public ConcurrentOpenAddressingHashMap(final int fixedSize) {
+
+    this(fixedSize, Math.min(fixedSize, Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 4 - 1) << 1));
+  }
+
+  /**
+   * Creates a hash map of the fixedSize, split into the number of lock stripes.
+   *
+   * @param fixedSize   the size of the hash map
+   * @param stripeCount the number of lock stripes, a power of 2 no larger than the fixed size
+   */
+  public ConcurrentOpenAddressingHashMap(final int fixedSize, final int stripeCount) {
+
+    assert IntegerExtensions.isPowerOf2(fixedSize) : "the size of the hashmap must be a power of 2";
+    assert IntegerExtensions.isPowerOf2(stripeCount) && stripeCount <= fixedSize
+        : "the number of stripes must be a power of 2 no larger than the size of the hashmap";
+
+    this.keys = new Object[fixedSize];
+    this.values = new Object[fixedSize];
+    this.stripes = new StampedLock[stripeCount];
+    for (int i = 0; i < stripeCount; i++) {
+      stripes[i] = new StampedLock();
+    }
+    this.stripeShift = Integer.numberOfTrailingZeros(fixedSize) - Integer.numberOfTrailingZeros(stripeCount);
+    this.mask = fixedSize - 1;
+    this.shift = Integer.numberOfTrailingZeros(fixedSize);
+  }
+
+  /**
+   * Searches for the value associated with the key.
+   *
+   * @param key the key to search for
+   * @return the value if the key exists, else null
+   */
+  @Override
+  public V get(final K key) {
+
+    if (key == null) {
+      return null;
+    }
+
+    final var hash = hash(key);
+    final var stripe = stripeOf(hash);
+
+    final var optimistic = stripe.tryOptimisticRead();
+    if (optimistic != 0) {
+      final var value = find(key, hash);
+      if (stripe.validate(optimistic)) {
+        return value;
+      }
+    }
+
+    // a write of a key in the same stripe raced the read, so read again with writes of the stripe held off
+    final var stamp = stripe.readLock();
+    try {
+      return find(key, hash);
+    } finally {
+      stripe.unlockRead(stamp);
+    }
+  }
+
+  /**
+   * Puts a key into the hash map.
+   *
+   * @param key   the key to assign the value to
+   * @param value the value to insert
+   * @return the old value, or null
+   * @throws RuntimeException if there is no further room in the hash map for the value
+   */
+  @Override
+  public V put(final K key, final V value) {
+
+    if (key == null) {
+      return null;
+    }
+
+    final var hash = hash(key);
+    final var stripe = stripeOf(hash);
+    final var stamp = stripe.writeLock();
+    try {
+      return insert(key, value, hash);
+    } finally {
+      stripe.unlockWrite(stamp);
+    }
+  }
+
+  /**
+   * Deletes the value currently associated with the key.
+   *
+   * @param key the key to remove
+   * @return the old value, or null
+   */
+  @Override
+  public V delete(final K key) {
+
+    if (key == null) {
+      return null;
+    }
+
+    final var hash = hash(key);
+    final var stripe = stripeOf(hash);
+    final var stamp = stripe.writeLock();
+    try {
+      final var location = locate(key, hash);
+      if (location == NO_SLOT) {
+        return null;
+      }
+
+      // clear the value before releasing the location, as once deleted another stripe may claim it
+      final var old = valueAt(location);
+      SLOTS.setRelease(values, location, null);
+      SLOTS.setRelease(keys, location, DELETED);
+      return old;
+    } finally {
+      stripe.unlockWrite(stamp);
+    }
+  }
+
+  private V find(final K key, final int hash) {
+
+    final var location = locate(key, hash);
+    return location == NO_SLOT ? null : valueAt(location);
+  }
+
+  private int locate(final K key, final int hash) {
+
+    final var position = hash & mask;
+    final var searchIncrement = IntegerExtensions.probeIncrement(hash, shift, mask);
+    var searchingPosition = position;
+
+    do {
+      final var searchingEntry = SLOTS.getAcquire(keys, searchingPosition);
+
+      // if empty, key cant be present
+      if (searchingEntry == null) {
+        return NO_SLOT;
+      }
+
+      // if equal, found key, return position
+      if (searchingEntry != DELETED && searchingEntry.equals(key)) {
+        return searchingPosition;
+      }
+
+      // not found, but not hit exit condition, continue searching
+      searchingPosition = (searchingPosition + searchIncrement) & mask;
+    } while (searchingPosition != position);
+
+    return NO_SLOT;
+  }
+
+  // called holding the write lock of the key's stripe, so no other thread can add or remove this key
+  private V insert(final K key, final V value, final int hash) {
+
+    final var position = hash & mask;
+    final var searchIncrement = IntegerExtensions.probeIncrement(hash, shift, mask);
+
+    while (true) {
+      var searchingPosition = position;
+      var nextViableInsertLocation = NO_SLOT;
+
+      do {
+        var searchingEntry = SLOTS.getAcquire(keys, searchingPosition);
+
+        // if empty, key cant be present, claim this location, or the first deleted location passed
+        if (searchingEntry == null) {
+          if (nextViableInsertLocation != NO_SLOT) {
+            break;
+          }
+          if (SLOTS.compareAndSet(keys, searchingPosition, null, key)) {
+            SLOTS.setRelease(values, searchingPosition, value);
+            return null;
+          }
+
+          // another stripe claimed the location first, a claimed location is never empty again
+          searchingEntry = SLOTS.getAcquire(keys, searchingPosition);
+        }
+
+        // mark the first deleted entry we find as the next viable insert location if we don't find an empty location
+        if (searchingEntry == DELETED) {
+          if (nextViableInsertLocation == NO_SLOT) {
+            nextViableInsertLocation = searchingPosition;
+          }
+        } else if (searchingEntry.equals(key)) {
+          final var old = valueAt(searchingPosition);
+          SLOTS.setRelease(values, searchingPosition, value);
+          return old;
+        }
+
+        // not found, but not hit exit condition, continue searching
+        searchingPosition = (searchingPosition + searchIncrement) & mask;
+      } while (searchingPosition != position);
+
+      if (nextViableInsertLocation == NO_SLOT) {
+        throw new RuntimeException("hash map is full");
+      }
+
+      if (SLOTS.compareAndSet(keys, nextViableInsertLocation, DELETED, key)) {
+        SLOTS.setRelease(values, nextViableInsertLocation, value);
+        return null;
+      }
+
+      // another stripe claimed the deleted location first, so search again
+    }
+  }
+
+  private StampedLock stripeOf(final int hash) {
+    return stripes[(hash & mask) >>> stripeShift];
+  }
+
+  @SuppressWarnings("unchecked")
+  private V valueAt(final int location) {
+    return (V) SLOTS.getAcquire(values, location);
+  }
+
+  private static int hash(final Object key) {
+    return key.hashCode();
+  }
+}
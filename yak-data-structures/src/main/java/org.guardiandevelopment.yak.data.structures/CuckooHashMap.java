@@ -0,0 +1,356 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * Provides a fixed size HashMap implementation using bucketized cuckoo hashing, where every key can only be held in
+ * one of two buckets of 4 locations, so a search examines at most 8 locations, however full the hash map is.
+ *
+ * <p>
+ * Every location has a tag byte, holding 8 bits of the hash of its key, or 0 for an empty location. A search reads the
+ * 4 tags of each of the two buckets of the key as a single int, and only calls {@link Object#equals(Object)} on the
+ * keys whose tag matches. There are no deleted markers, a delete just empties the location, so the cost of a search
+ * does not depend on the history of the hash map either.
+ * </p>
+ * <p>
+ * A put of a new key into two full buckets kicks a key out of one of them into its other bucket, and so on, for at
+ * most 500 kicks. The key left without a location after the last kick is held in a small stash, which is searched
+ * after both buckets, but only while it holds any key. Keys in the stash move back into a bucket as soon as a delete
+ * empties a location in either of their buckets.
+ * </p>
+ * <p>
+ * Keys of equal hash codes share both of their buckets, so at most 16 of them can be held, the 8 locations of their
+ * buckets and the 8 of the stash, a put of a further such key throws, however empty the rest of the hash map is. Keys
+ * must have well spread hash codes.
+ * </p>
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the value
+ */
+public final class CuckooHashMap<K, V> implements FixedSizeMap<K, V> {
+
+  private static final VarHandle TAG_BUCKETS = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final int BUCKET_WIDTH = Integer.BYTES;
+  private static final int BUCKET_SHIFT = 2;
+
+  // the most keys moved to their other bucket by a single put, before the key left over is stashed
+  private static final int MAX_KICKS = 500;
+  private static final int STASH_SIZE = 8;
+
+  private static final byte EMPTY = 0;
+
+  private static final int LOWEST_BITS = 0x0101_0101;
+  private static final int HIGHEST_BITS = 0x8080_8080;
+
+  private final byte[] tags;
+  private final Object[] keys;
+  private final Object[] values;
+  private final int bucketMask;
+
+  private final Object[] stashKeys = new Object[STASH_SIZE];
+  private final Object[] stashValues = new Object[STASH_SIZE];
+  private int stashed;
+
+  private int size;
+
+  // picks the location a kick evicts from a full bucket, moving on with every kick so a chain of kicks does not cycle
+  // between the same keys
+  private int kickCursor;
+
+  /**
+   * Creates a hash map of the fixedSize.
+   *
+   * <p>
+   * The fixed size must be a power of 2, and at least the 4 locations of a single bucket. The stash can hold a further
+   * 8 keys.
+   * </p>
+   *
+   * @param fixedSize the size of the hash map
+   */
+  public CuckooHashMap(final int fixedSize) {
+
+    assert IntegerExtensions.isPowerOf2(fixedSize) && fixedSize >= BUCKET_WIDTH
+        : "the size of the hashmap must be a power of 2, of at least " + BUCKET_WIDTH;
+
+    this.tags = new byte[fixedSize];
+    this.keys = new Object[fixedSize];
+    this.values = new Object[fixedSize];
+    this.bucketMask = (fixedSize >>> BUCKET_SHIFT) - 1;
+  }
+
+  @Override
+  public V get(final K key) {
+
+    if (key == null) {
+      return null;
+    }
+
+    final var hash = hash(key);
+    final var tag = tag(hash);
+    final var first = firstBucket(hash);
+
+    var location = locate(first, tag, key);
+    if (location == OpenAddressingIndex.NO_SLOT) {
+      location = locate(secondBucket(hash, first), tag, key);
+    }
+    if (location != OpenAddressingIndex.NO_SLOT) {
+      return valueAt(location);
+    }
+
+    final var stashLocation = stashed == 0 ? OpenAddressingIndex.NO_SLOT : locateStashed(key);
+    return stashLocation == OpenAddressingIndex.NO_SLOT ? null : stashedValueAt(stashLocation);
+  }
+
+  /**
+   * Puts a key into the hash map.
+   *
+   * @param key   the key to assign the value to
+   * @param value the value to insert
+   * @return the old value, or null
+   * @throws RuntimeException if there is no further room in the hash map for the value, as both buckets of the key are
+   *                          full and the stash is full, in which case the hash map is left unchanged
+   */
+  @Override
+  public V put(final K key, final V value) {
+
+    if (key == null) {
+      return null;
+    }
+
+    final var hash = hash(key);
+    final var tag = tag(hash);
+    final var first = firstBucket(hash);
+    final var second = secondBucket(hash, first);
+
+    // the key is only ever held in one of its two buckets, or the stash
+    var location = locate(first, tag, key);
+    if (location == OpenAddressingIndex.NO_SLOT) {
+      location = locate(second, tag, key);
+    }
+    if (location != OpenAddressingIndex.NO_SLOT) {
+      final var old = valueAt(location);
+      values[location] = value;
+      return old;
+    }
+
+    final var stashLocation = stashed == 0 ? OpenAddressingIndex.NO_SLOT : locateStashed(key);
+    if (stashLocation != OpenAddressingIndex.NO_SLOT) {
+      final var old = stashedValueAt(stashLocation);
+      stashValues[stashLocation] = value;
+      return old;
+    }
+
+    if (!store(first, tag, key, value) && !store(second, tag, key, value)) {
+      // a chain of kicks may end with any key left over, so only start one that can always stash it
+      if (stashed == STASH_SIZE) {
+        throw new RuntimeException("hash map is full");
+      }
+      kick(first, tag, key, value);
+    }
+
+    size++;
+    return null;
+  }
+
+  @Override
+  public V delete(final K key) {
+
+    if (key == null) {
+      return null;
+    }
+
+    final var hash = hash(key);
+    final var tag = tag(hash);
+    final var first = firstBucket(hash);
+
+    var bucket = first;
+    var location = locate(bucket, tag, key);
+    if (location == OpenAddressingIndex.NO_SLOT) {
+      bucket = secondBucket(hash, first);
+      location = locate(bucket, tag, key);
+    }
+
+    if (location != OpenAddressingIndex.NO_SLOT) {
+      final var old = valueAt(location);
+      tags[location] = EMPTY;
+      keys[location] = null;
+      values[location] = null;
+      size--;
+      unstash(bucket);
+      return old;
+    }
+
+    final var stashLocation = stashed == 0 ? OpenAddressingIndex.NO_SLOT : locateStashed(key);
+    if (stashLocation == OpenAddressingIndex.NO_SLOT) {
+      return null;
+    }
+
+    final var old = stashedValueAt(stashLocation);
+    removeStashed(stashLocation);
+    size--;
+    return old;
+  }
+
+  /**
+   * The number of keys in the hash map, including those in the stash.
+   *
+   * @return the number of keys
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * The number of keys held in the stash, as no location in either of their buckets was free.
+   *
+   * @return the number of stashed keys
+   */
+  public int stashed() {
+    return stashed;
+  }
+
+  private int locate(final int bucket, final byte tag, final K key) {
+
+    final var base = bucket << BUCKET_SHIFT;
+    final var tagBucket = (int) TAG_BUCKETS.get(tags, base);
+
+    // check every location of the bucket holding the same tag as the key
+    for (var matches = match(tagBucket, tag); matches != 0; matches &= matches - 1) {
+      final var location = base + (Integer.numberOfTrailingZeros(matches) >>> 3);
+      if (key.equals(keys[location])) {
+        return location;
+      }
+    }
+    return OpenAddressingIndex.NO_SLOT;
+  }
+
+  private int locateStashed(final K key) {
+
+    for (int i = 0; i < stashed; i++) {
+      if (key.equals(stashKeys[i])) {
+        return i;
+      }
+    }
+    return OpenAddressingIndex.NO_SLOT;
+  }
+
+  // puts the entry into the first empty location of the bucket, if it has one
+  private boolean store(final int bucket, final byte tag, final Object key, final Object value) {
+
+    final var base = bucket << BUCKET_SHIFT;
+    final var empty = match((int) TAG_BUCKETS.get(tags, base), EMPTY);
+    if (empty == 0) {
+      return false;
+    }
+
+    final var location = base + (Integer.numberOfTrailingZeros(empty) >>> 3);
+    tags[location] = tag;
+    keys[location] = key;
+    values[location] = value;
+    return true;
+  }
+
+  // both buckets of the entry are full, so it takes the location of a key of the bucket, which moves to its other
+  // bucket, and so on, until a key finds an empty location, or the last key kicked is stashed
+  private void kick(final int bucket, final byte tag, final Object key, final Object value) {
+
+    var kickedBucket = bucket;
+    var kickedTag = tag;
+    var kickedKey = key;
+    var kickedValue = value;
+
+    for (int kicks = 0; kicks < MAX_KICKS; kicks++) {
+      final var location = (kickedBucket << BUCKET_SHIFT) + (kickCursor++ & (BUCKET_WIDTH - 1));
+
+      final var victimTag = tags[location];
+      final var victimKey = keys[location];
+      final var victimValue = values[location];
+      tags[location] = kickedTag;
+      keys[location] = kickedKey;
+      values[location] = kickedValue;
+
+      // the victim is held in the bucket it was kicked from, so its other bucket is whichever of its two that is not
+      final var victimHash = hash(victimKey);
+      final var victimFirst = firstBucket(victimHash);
+      final var victimBucket = victimFirst == kickedBucket ? secondBucket(victimHash, victimFirst) : victimFirst;
+      if (store(victimBucket, victimTag, victimKey, victimValue)) {
+        return;
+      }
+
+      kickedBucket = victimBucket;
+      kickedTag = victimTag;
+      kickedKey = victimKey;
+      kickedValue = victimValue;
+    }
+
+    stashKeys[stashed] = kickedKey;
+    stashValues[stashed] = kickedValue;
+    stashed++;
+  }
+
+  // a location of the bucket was just emptied, so moves back a stashed key that may be held in it
+  private void unstash(final int bucket) {
+
+    for (int i = 0; i < stashed; i++) {
+      final var hash = hash(stashKeys[i]);
+      final var first = firstBucket(hash);
+      if (first == bucket || secondBucket(hash, first) == bucket) {
+        store(bucket, tag(hash), stashKeys[i], stashValues[i]);
+        removeStashed(i);
+        return;
+      }
+    }
+  }
+
+  private void removeStashed(final int stashLocation) {
+
+    stashed--;
+    stashKeys[stashLocation] = stashKeys[stashed];
+    stashValues[stashLocation] = stashValues[stashed];
+    stashKeys[stashed] = null;
+    stashValues[stashed] = null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private V valueAt(final int location) {
+    return (V) values[location];
+  }
+
+  @SuppressWarnings("unchecked")
+  private V stashedValueAt(final int stashLocation) {
+    return (V) stashValues[stashLocation];
+  }
+
+  private int firstBucket(final long hash) {
+    return (int) hash & bucketMask;
+  }
+
+  // always a different bucket to the first, unless there is only one, using bits of the hash independent of the first
+  private int secondBucket(final long hash, final int first) {
+    return (first ^ ((int) (hash >>> 32) | 1)) & bucketMask;
+  }
+
+  // sets the highest bit of every byte equal to the tag, a byte just above a match may also be set, which only costs
+  // an extra equals, as the key at that location differs. the lowest bit set is always a match
+  private static int match(final int tagBucket, final byte tag) {
+
+    final var difference = tagBucket ^ (LOWEST_BITS * (tag & 0xFF));
+    return (difference - LOWEST_BITS) & ~difference & HIGHEST_BITS;
+  }
+
+  // any of the 8 bits below the first bucket bits, never 0, as that marks an empty location
+  private static byte tag(final long hash) {
+
+    final var tag = (byte) (hash >>> 24);
+    return tag == EMPTY ? 1 : tag;
+  }
+
+  // the lowest bits pick the first bucket and the highest the second, so spread every bit of the hash code over both
+  private static long hash(final Object key) {
+
+    final var hash = key.hashCode() * 0x9E37_79B9_7F4A_7C15L;
+    return hash ^ (hash >>> 29);
+  }
+}
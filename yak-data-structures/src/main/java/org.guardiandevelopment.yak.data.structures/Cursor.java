@@ -0,0 +1,43 @@
+package org.guardiandevelopment.yak.data.structures;
+
+/**
+ * Moves over the entries of a table location by location, reading each key and value in place, so a scan allocates
+ * nothing beyond the cursor.
+ *
+ * <p>
+ * A cursor starts before the first entry, {@link #next()} moves it to the next location holding a key. The table must
+ * not be changed while a cursor is in use, other than through {@link #remove()}.
+ * </p>
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the value
+ */
+public interface Cursor<K, V> {
+
+  /**
+   * Moves to the next entry.
+   *
+   * @return true if the cursor is on an entry, false once every entry has been visited
+   */
+  boolean next();
+
+  /**
+   * The key of the entry the cursor is on.
+   *
+   * @return the key
+   */
+  K key();
+
+  /**
+   * The value of the entry the cursor is on.
+   *
+   * @return the value, may be null
+   */
+  V value();
+
+  /**
+   * Deletes the entry the cursor is on, leaving the cursor where it is, so {@link #next()} moves on to the entry after
+   * it.
+   */
+  void remove();
+}
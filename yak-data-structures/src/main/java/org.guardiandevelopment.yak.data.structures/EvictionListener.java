@@ -0,0 +1,20 @@
+package org.guardiandevelopment.yak.data.structures;
+
+/**
+ * Notified when an entry leaves an {@link OpenAddressingHashMap} because of its {@link EvictionPolicy}, either because
+ * it was evicted, or because it was refused admission by the {@link AdmissionPolicy}.
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the value
+ */
+@FunctionalInterface
+public interface EvictionListener<K, V> {
+
+  /**
+   * Called with the entry that is no longer held.
+   *
+   * @param key   the key of the entry
+   * @param value the value of the entry
+   */
+  void onEviction(K key, V value);
+}
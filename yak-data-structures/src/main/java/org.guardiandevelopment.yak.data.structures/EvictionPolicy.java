@@ -0,0 +1,24 @@
+package org.guardiandevelopment.yak.data.structures;
+
+/**
+ * Decides what a fixed size table does when a new key is added and there is no free location for it.
+ */
+public enum EvictionPolicy {
+
+  /**
+   * The key is rejected, and the table reports that it is full.
+   */
+  NONE,
+
+  /**
+   * An existing key is evicted to make room, chosen by a CLOCK (second chance) sweep.
+   *
+   * <p>
+   * Every read of a key sets its reference bit. When the table is full, the locations along the probe path of the new
+   * key are swept in order: a referenced key has its reference bit cleared and is passed over, and the first key that
+   * is not referenced is evicted. Its location is handed to the new key, so the location never becomes empty and the
+   * probe paths of the remaining keys are unaffected.
+   * </p>
+   */
+  CLOCK
+}
@@ -0,0 +1,175 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.util.function.IntConsumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Provides a fixed size HashMap where each entry can be given a time to live, after which it is removed.
+ *
+ * <p>
+ * Keys are held by an {@link OpenAddressingIndex} and values in a parallel array, as in {@link OpenAddressingHashMap}.
+ * The deadline of each location is held in a parallel long array owned by a {@link HierarchicalTimingWheel}. Lookups
+ * treat a location past its deadline as deleted, and every put or delete first moves the wheel forward, deleting the
+ * entries that have expired since in O(1) each, so the table is never swept.
+ * </p>
+ * <p>
+ * Time is read in milliseconds from the supplied clock. {@link #expire()} can be called from a timer to remove
+ * expired entries while the map is otherwise idle.
+ * </p>
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the value
+ */
+public final class ExpiringOpenAddressingHashMap<K, V> implements FixedSizeMap<K, V> {
+
+  private final OpenAddressingIndex<K> index;
+  private final Object[] values;
+  private final HierarchicalTimingWheel wheel;
+  private final LongSupplier clock;
+  private final IntConsumer onExpired = this::expired;
+
+  /**
+   * Creates a hash map of the fixedSize, reading time from {@link System#currentTimeMillis()}.
+   *
+   * <p>
+   * The fixed size must be a power of 2, as this allows for better resolutions of collisions
+   * as we use Double Hashing when probing the table.
+   * </p>
+   *
+   * @param fixedSize the size of the hash map
+   */
+  public ExpiringOpenAddressingHashMap(final int fixedSize) {
+
+    this(fixedSize, EvictionPolicy.NONE, System::currentTimeMillis);
+  }
+
+  /**
+   * Creates a hash map of the fixedSize, using the eviction policy when a new key is put into a full hash map.
+   *
+   * @param fixedSize      the size of the hash map
+   * @param evictionPolicy what to do when there is no free location for a new key
+   * @param clock          supplies the current time in milliseconds
+   */
+  public ExpiringOpenAddressingHashMap(
+      final int fixedSize,
+      final EvictionPolicy evictionPolicy,
+      final LongSupplier clock) {
+
+    assert IntegerExtensions.isPowerOf2(fixedSize) : "the size of the hashmap must be a power of 2";
+
+    this.index = new OpenAddressingIndex<>(fixedSize, evictionPolicy, this::evicted);
+    this.values = new Object[fixedSize];
+    this.wheel = new HierarchicalTimingWheel(fixedSize, clock.getAsLong());
+    this.clock = clock;
+  }
+
+  /**
+   * Searches for the value associated with the key, ignoring it if it has expired.
+   *
+   * @param key the key to search for
+   * @return the value if the key exists and has not expired, else null
+   */
+  @Override
+  public V get(final K key) {
+
+    final var location = index.locate(key);
+    if (location == OpenAddressingIndex.NO_SLOT || wheel.deadline(location) <= clock.getAsLong()) {
+      return null;
+    }
+    return valueAt(location);
+  }
+
+  /**
+   * Puts a key into the hash map that never expires, replacing any time to live the key had.
+   *
+   * @param key   the key to assign the value to
+   * @param value the value to insert
+   * @return the old value, or null
+   * @throws RuntimeException if there is no further room in the hash map for the value, and no key can be evicted
+   */
+  @Override
+  public V put(final K key, final V value) {
+
+    return put(key, value, HierarchicalTimingWheel.NEVER);
+  }
+
+  /**
+   * Puts a key into the hash map that expires once the time to live has passed.
+   *
+   * @param key       the key to assign the value to
+   * @param value     the value to insert
+   * @param ttlMillis the time to live in milliseconds
+   * @return the old value, or null
+   * @throws RuntimeException if there is no further room in the hash map for the value, and no key can be evicted
+   */
+  public V put(final K key, final V value, final long ttlMillis) {
+
+    assert ttlMillis > 0 : "the time to live must be positive";
+
+    if (key == null) {
+      return null;
+    }
+
+    final var now = clock.getAsLong();
+    wheel.advance(now, onExpired);
+
+    final var location = index.locateOrAssign(key);
+    if (location == OpenAddressingIndex.NO_SLOT) {
+      throw new RuntimeException("hash map is full");
+    }
+
+    final var old = valueAt(location);
+    values[location] = value;
+    wheel.schedule(location, ttlMillis >= HierarchicalTimingWheel.NEVER - now
+        ? HierarchicalTimingWheel.NEVER
+        : now + ttlMillis);
+    return old;
+  }
+
+  /**
+   * Deletes the value currently associated with the key.
+   *
+   * @param key the key to remove
+   * @return the old value, or null if the key does not exist or has expired
+   */
+  @Override
+  public V delete(final K key) {
+
+    wheel.advance(clock.getAsLong(), onExpired);
+
+    final var location = index.remove(key);
+    if (location == OpenAddressingIndex.NO_SLOT) {
+      return null;
+    }
+
+    final var old = valueAt(location);
+    values[location] = null;
+    wheel.cancel(location);
+    return old;
+  }
+
+  /**
+   * Removes every entry whose time to live has passed.
+   */
+  public void expire() {
+
+    wheel.advance(clock.getAsLong(), onExpired);
+  }
+
+  private void expired(final int location) {
+
+    index.removeAt(location);
+    values[location] = null;
+  }
+
+  private void evicted(final K key, final int location) {
+
+    values[location] = null;
+    wheel.cancel(location);
+  }
+
+  @SuppressWarnings("unchecked")
+  private V valueAt(final int location) {
+    return (V) values[location];
+  }
+}
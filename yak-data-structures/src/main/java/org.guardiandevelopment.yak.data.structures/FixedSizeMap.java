@@ -0,0 +1,40 @@
+package org.guardiandevelopment.yak.data.structures;
+
+/**
+ * A map of key to value, holding at most the fixed number of entries it was created with, unless created growable.
+ *
+ * <p>
+ * Implemented by every hash map of this package, so the collision resolution, eviction or concurrency of a cache can
+ * be chosen when it is created, without changing the code that uses it.
+ * </p>
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the value
+ */
+public interface FixedSizeMap<K, V> {
+
+  /**
+   * Searches for the value associated with the key.
+   *
+   * @param key the key to search for
+   * @return the value if the key exists, else null
+   */
+  V get(K key);
+
+  /**
+   * Puts a key into the map.
+   *
+   * @param key   the key to assign the value to
+   * @param value the value to insert
+   * @return the old value, or null
+   */
+  V put(K key, V value);
+
+  /**
+   * Deletes the value currently associated with the key.
+   *
+   * @param key the key to remove
+   * @return the old value, or null
+   */
+  V delete(K key);
+}
@@ -0,0 +1,115 @@
+package org.guardiandevelopment.yak.data.structures;
+
+/**
+ * A count-min sketch estimating how often each key has been seen, held in a primitive long array of 4-bit counters.
+ *
+ * <p>
+ * Each key maps to one counter in each of 4 rows, and its frequency is the smallest of the 4. Counters saturate at
+ * 15, and once the number of increments reaches 10 times the expected size every counter is halved, so the sketch
+ * ages out keys that were popular in the past but are no longer.
+ * </p>
+ * <p>
+ * Neither incrementing nor estimating a frequency allocates.
+ * </p>
+ */
+public final class FrequencySketch {
+
+  private static final long[] SEEDS = {
+      0xc3a5c85c97cb3127L, 0xb492b66fbe98f273L, 0x9ae16a3b2f90404fL, 0xcbf29ce484222325L
+  };
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final int MAX_COUNT = 15;
+  private static final int MIN_TABLE_SIZE = 16;
+
+  private final long[] table;
+  private final int tableMask;
+  private final int sampleSize;
+  private int additions;
+
+  /**
+   * Creates a sketch sized for the number of keys expected to be tracked.
+   *
+   * @param expectedSize the number of distinct keys the sketch should distinguish, typically the cache capacity
+   */
+  public FrequencySketch(final int expectedSize) {
+
+    assert expectedSize > 0 : "the expected size must be positive";
+
+    final var tableSize = Math.max(MIN_TABLE_SIZE, Integer.highestOneBit(Math.max(expectedSize - 1, 1)) << 1);
+    this.table = new long[tableSize];
+    this.tableMask = tableSize - 1;
+    this.sampleSize = (int) Math.min(10L * expectedSize, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Returns the estimated number of times the hash has been incremented, at most 15.
+   *
+   * @param hash the hash of the key
+   * @return the estimated frequency
+   */
+  public int frequency(final int hash) {
+
+    final var spread = spread(hash);
+    var frequency = MAX_COUNT;
+    for (int row = 0; row < SEEDS.length; row++) {
+      frequency = Math.min(frequency, (int) ((table[indexOf(spread, row)] >>> offsetOf(spread, row)) & 0xfL));
+    }
+    return frequency;
+  }
+
+  /**
+   * Increments the estimated frequency of the hash, ageing every counter once the sample size is reached.
+   *
+   * @param hash the hash of the key
+   */
+  public void increment(final int hash) {
+
+    final var spread = spread(hash);
+    var added = false;
+    for (int row = 0; row < SEEDS.length; row++) {
+      added |= incrementAt(indexOf(spread, row), offsetOf(spread, row));
+    }
+
+    if (added && ++additions >= sampleSize) {
+      reset();
+    }
+  }
+
+  private boolean incrementAt(final int index, final int offset) {
+
+    final var mask = 0xfL << offset;
+    if ((table[index] & mask) == mask) {
+      return false;
+    }
+    table[index] += 1L << offset;
+    return true;
+  }
+
+  // halves every counter, each counter is shifted down and the bit carried in from its neighbour is masked off
+  private void reset() {
+
+    for (int i = 0; i < table.length; i++) {
+      table[i] = (table[i] >>> 1) & RESET_MASK;
+    }
+    additions >>>= 1;
+  }
+
+  private int indexOf(final int spread, final int row) {
+
+    var hash = (spread + SEEDS[row]) * SEEDS[row];
+    hash += hash >>> 32;
+    return (int) hash & tableMask;
+  }
+
+  // each row uses its own quarter of the 16 counters in a long
+  private static int offsetOf(final int spread, final int row) {
+    return ((row << 2) + ((spread >>> (row << 3)) & 3)) << 2;
+  }
+
+  private static int spread(final int hash) {
+
+    var spread = hash * 0x9e3779b9;
+    spread ^= spread >>> 16;
+    return spread;
+  }
+}
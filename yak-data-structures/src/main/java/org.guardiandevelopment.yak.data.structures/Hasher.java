@@ -0,0 +1,96 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.util.Arrays;
+
+/**
+ * Hashes and compares the keys of a hash map, so the hash map does not have to rely on the {@link Object#hashCode()}
+ * and {@link Object#equals(Object)} of the key.
+ *
+ * <p>
+ * A hash map takes the initial location of a key from the lowest bits of its hash, and the increment between
+ * locations from the bits above them, so a hash code whose low bits follow a pattern, such as a sequence of ids, is
+ * better served by {@link #murmur3()} than by {@link #identity()}.
+ * </p>
+ *
+ * @param <K> the type of the key
+ */
+@FunctionalInterface
+public interface Hasher<K> {
+
+  /**
+   * Hashes the key.
+   *
+   * @param key the key to hash, never null
+   * @return the hash of the key
+   */
+  int hash(K key);
+
+  /**
+   * Compares two keys, only called on keys of equal hash.
+   *
+   * @param key   a key held by the hash map
+   * @param other the key searched for
+   * @return true if the keys are equal
+   */
+  default boolean equals(final K key, final K other) {
+    return key.equals(other);
+  }
+
+  /**
+   * Uses the {@link Object#hashCode()} of the key as is.
+   *
+   * @param <K> the type of the key
+   * @return the hasher
+   */
+  static <K> Hasher<K> identity() {
+    return Object::hashCode;
+  }
+
+  /**
+   * Spreads every bit of the {@link Object#hashCode()} of the key over the whole hash, with the finalizer of murmur3.
+   *
+   * @param <K> the type of the key
+   * @return the hasher
+   */
+  static <K> Hasher<K> murmur3() {
+    return key -> murmur3(key.hashCode());
+  }
+
+  /**
+   * Hashes the content of byte array keys with xxHash32, comparing keys by content rather than identity.
+   *
+   * @return the hasher
+   */
+  static Hasher<byte[]> xxHash() {
+
+    return new Hasher<>() {
+
+      @Override
+      public int hash(final byte[] key) {
+        return XxHash32.hash(key, 0, key.length);
+      }
+
+      @Override
+      public boolean equals(final byte[] key, final byte[] other) {
+        return Arrays.equals(key, other);
+      }
+    };
+  }
+
+  /**
+   * The 32 bit finalizer of murmur3, so that every bit of the hash depends on every bit of the hash code.
+   *
+   * @param hashCode the hash code to spread
+   * @return the spread hash
+   */
+  static int murmur3(final int hashCode) {
+
+    var hash = hashCode;
+    hash ^= hash >>> 16;
+    hash *= 0x85EBCA6B;
+    hash ^= hash >>> 13;
+    hash *= 0xC2B2AE35;
+    hash ^= hash >>> 16;
+    return hash;
+  }
+}
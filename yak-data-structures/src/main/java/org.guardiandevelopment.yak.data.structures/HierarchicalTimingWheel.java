@@ -0,0 +1,209 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Schedules the expiry of table locations using a hierarchical timing wheel.
+ *
+ * <p>
+ * Each level is a wheel of 64 buckets, a bucket on level n spanning 64^n ticks. A location is scheduled into the
+ * lowest level able to hold its deadline, and as time reaches the start of a bucket on a higher level its locations
+ * cascade down to a lower level, until they reach level 0 and expire on their exact tick. Scheduling, cancelling and
+ * expiring a location are O(1), and a level that holds nothing is skipped over rather than stepped through.
+ * </p>
+ * <p>
+ * Buckets are intrusive doubly linked lists threaded through int arrays indexed by location, so the wheel never
+ * allocates once created.
+ * </p>
+ */
+final class HierarchicalTimingWheel {
+
+  static final long NEVER = Long.MAX_VALUE;
+
+  private static final int NONE = -1;
+  private static final int BITS = 6;
+  private static final int WHEEL_SIZE = 1 << BITS;
+  private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+  private static final int LEVELS = (Long.SIZE + BITS - 1) / BITS;
+
+  private final long[] deadlines;
+  private final int[] next;
+  private final int[] previous;
+  private final int[] bucketOf;
+  private final int[] heads = new int[LEVELS * WHEEL_SIZE];
+  private final int[] levelCounts = new int[LEVELS];
+  private long currentTick;
+
+  /**
+   * Creates a wheel for the locations of a table of the fixedSize.
+   *
+   * @param fixedSize   the number of locations
+   * @param currentTick the tick the wheel starts at
+   */
+  HierarchicalTimingWheel(final int fixedSize, final long currentTick) {
+
+    this.deadlines = new long[fixedSize];
+    this.next = new int[fixedSize];
+    this.previous = new int[fixedSize];
+    this.bucketOf = new int[fixedSize];
+    this.currentTick = currentTick;
+
+    Arrays.fill(deadlines, NEVER);
+    Arrays.fill(bucketOf, NONE);
+    Arrays.fill(heads, NONE);
+  }
+
+  /**
+   * Returns the tick the location expires at, or {@link #NEVER}.
+   *
+   * @param location the location
+   * @return the deadline of the location
+   */
+  long deadline(final int location) {
+    return deadlines[location];
+  }
+
+  /**
+   * Schedules the location to expire at the deadline, replacing any existing schedule.
+   *
+   * <p>
+   * A deadline that has already passed expires on the next tick, a deadline of {@link #NEVER} is never expired.
+   * </p>
+   *
+   * @param location the location
+   * @param deadline the tick to expire at
+   */
+  void schedule(final int location, final long deadline) {
+
+    cancel(location);
+    deadlines[location] = deadline;
+    if (deadline != NEVER) {
+      link(location, Math.max(deadline, currentTick + 1));
+    }
+  }
+
+  /**
+   * Removes any schedule for the location.
+   *
+   * @param location the location
+   */
+  void cancel(final int location) {
+
+    if (bucketOf[location] != NONE) {
+      unlink(location);
+    }
+    deadlines[location] = NEVER;
+  }
+
+  /**
+   * Moves the wheel forward to now, passing every location whose deadline is reached to onExpired.
+   *
+   * <p>
+   * An expired location is no longer scheduled by the time onExpired is called.
+   * </p>
+   *
+   * @param now       the current tick
+   * @param onExpired called with each expired location
+   */
+  void advance(final long now, final IntConsumer onExpired) {
+
+    while (currentTick < now) {
+      final var level = lowestOccupiedLevel();
+      if (level == NONE) {
+        currentTick = now;
+        return;
+      }
+
+      // nothing below the lowest occupied level, so nothing can happen before its next bucket starts
+      final var span = 1L << (level * BITS);
+      final var tick = level == 0 ? currentTick + 1 : (currentTick | (span - 1)) + 1;
+      if (tick > now) {
+        currentTick = now;
+        return;
+      }
+
+      currentTick = tick;
+      cascade(tick);
+      expire(tick, onExpired);
+    }
+  }
+
+  // a bucket on level n starts every 64^n ticks, so move its locations down, highest levels first so a location
+  // can fall through more than one level on the same tick
+  private void cascade(final long tick) {
+
+    for (int level = LEVELS - 1; level > 0; level--) {
+      final var shift = level * BITS;
+      if ((tick & ((1L << shift) - 1)) != 0) {
+        continue;
+      }
+
+      final var bucket = level * WHEEL_SIZE + (int) ((tick >>> shift) & WHEEL_MASK);
+      var location = heads[bucket];
+      while (location != NONE) {
+        final var following = next[location];
+        unlink(location);
+        link(location, deadlines[location]);
+        location = following;
+      }
+    }
+  }
+
+  private void expire(final long tick, final IntConsumer onExpired) {
+
+    final var bucket = (int) (tick & WHEEL_MASK);
+    while (heads[bucket] != NONE) {
+      final var location = heads[bucket];
+      unlink(location);
+      deadlines[location] = NEVER;
+      onExpired.accept(location);
+    }
+  }
+
+  private void link(final int location, final long deadline) {
+
+    final var delta = deadline - currentTick;
+    final var level = delta == 0 ? 0 : (Long.SIZE - 1 - Long.numberOfLeadingZeros(delta)) / BITS;
+    final var bucket = level * WHEEL_SIZE + (int) ((deadline >>> (level * BITS)) & WHEEL_MASK);
+
+    final var head = heads[bucket];
+    next[location] = head;
+    previous[location] = NONE;
+    if (head != NONE) {
+      previous[head] = location;
+    }
+    heads[bucket] = location;
+    bucketOf[location] = bucket;
+    levelCounts[level]++;
+  }
+
+  private void unlink(final int location) {
+
+    final var bucket = bucketOf[location];
+    final var before = previous[location];
+    final var after = next[location];
+
+    if (before == NONE) {
+      heads[bucket] = after;
+    } else {
+      next[before] = after;
+    }
+    if (after != NONE) {
+      previous[after] = before;
+    }
+
+    bucketOf[location] = NONE;
+    levelCounts[bucket / WHEEL_SIZE]--;
+  }
+
+  private int lowestOccupiedLevel() {
+
+    for (int level = 0; level < LEVELS; level++) {
+      if (levelCounts[level] != 0) {
+        return level;
+      }
+    }
+    return NONE;
+  }
+}
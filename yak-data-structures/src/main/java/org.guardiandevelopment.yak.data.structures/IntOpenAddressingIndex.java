@@ -0,0 +1,243 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/**
+ * Provides an index of int key to int, where the int is equal to the index of the key in the map.
+ *
+ * <p>
+ * Keys are held in a primitive int array, so no key is boxed and no {@link Object#hashCode()} or
+ * {@link Object#equals(Object)} calls are made when probing the table.
+ * </p>
+ */
+public final class IntOpenAddressingIndex {
+
+  /**
+   * Returned when a key is not present, or when the index is full and the key cannot be assigned.
+   */
+  public static final int NO_SLOT = -1;
+
+  private static final byte EMPTY = 0;
+  private static final byte OCCUPIED = 1;
+  private static final byte DELETED = 2;
+
+  // "YAKN", followed by the format version
+  private static final int SNAPSHOT_MAGIC = 0x59414B4E;
+  private static final int SNAPSHOT_VERSION = 2;
+
+  private final int[] keys;
+  private final byte[] states;
+
+  // m, a power of 2, masked by m - 1
+  // h1(k) = hash(k) & (m - 1) = initial location
+  // h2(k) = ((hash(k) * 2^32 / phi) >>> (32 - log2(m))) | 1 = increment between locations, from every bit of the
+  // hash, odd so every location is visited
+  private final int mask;
+  private final int shift;
+
+  /**
+   * Creates an index of the fixedSize using the open addressing collision resolution technique.
+   *
+   * <p>
+   * The fixed size must be a power of 2, as this allows for better resolutions of collisions as we use
+   * Double Hashing when probing the table.
+   * </p>
+   *
+   * @param fixedSize the size of the index
+   */
+  public IntOpenAddressingIndex(final int fixedSize) {
+
+    assert IntegerExtensions.isPowerOf2(fixedSize) : "the size of the index must be a power of 2";
+
+    this.keys = new int[fixedSize];
+    this.states = new byte[fixedSize];
+    this.mask = fixedSize - 1;
+    this.shift = Integer.numberOfTrailingZeros(fixedSize);
+  }
+
+  /**
+   * Searches for the location of the key within the index.
+   *
+   * @param key the key to search for
+   * @return the location of the key if it exists, else {@link #NO_SLOT}
+   */
+  public int get(final int key) {
+
+    final var hash = hash(key);
+    final var position = hash & mask;
+
+    // if location is empty, return no slot
+    if (states[position] == EMPTY) {
+      return NO_SLOT;
+    }
+
+    if (states[position] == OCCUPIED && keys[position] == key) {
+      return position;
+    }
+
+    // collision happened, search for potential key in remaining set
+    final var searchIncrement = IntegerExtensions.probeIncrement(hash, shift, mask);
+    var searchingPosition = (position + searchIncrement) & mask;
+
+    while (searchingPosition != position) {
+      final var searchingState = states[searchingPosition];
+
+      // if empty, key cant be present
+      if (searchingState == EMPTY) {
+        return NO_SLOT;
+      }
+
+      // if equal, found key, return position
+      if (searchingState == OCCUPIED && keys[searchingPosition] == key) {
+        return searchingPosition;
+      }
+
+      // not found, but not hit exit condition, continue searching
+      searchingPosition = (searchingPosition + searchIncrement) & mask;
+    }
+
+    return NO_SLOT;
+  }
+
+  /**
+   * Assigns the key to a fixed location in the index.
+   *
+   * <p>
+   * Follows the same probing as {@link OpenAddressingIndex#getExistingOrAssign(Object)}: the existing location of the
+   * key is returned if present, else the first empty location on the probe path, else the first deleted location.
+   * </p>
+   *
+   * @param key the key you wish to get an assignment for
+   * @return the assignment, or {@link #NO_SLOT} if the index is full and the key does not currently exist
+   */
+  public int getExistingOrAssign(final int key) {
+
+    final var hash = hash(key);
+    final var position = hash & mask;
+    final var stateAtPosition = states[position];
+
+    // if location is empty, or key present is equal to param, return position of the key
+    if (stateAtPosition == EMPTY || (stateAtPosition == OCCUPIED && keys[position] == key)) {
+      assign(position, key);
+      return position;
+    }
+
+    // collision happened, search for potential key in remaining set
+    final var searchIncrement = IntegerExtensions.probeIncrement(hash, shift, mask);
+    var searchingPosition = (position + searchIncrement) & mask;
+    var nextViableInsertLocation = NO_SLOT;
+
+    while (searchingPosition != position) {
+      final var searchingState = states[searchingPosition];
+
+      // if empty, key cant be present already, assign to this slot
+      if (searchingState == EMPTY) {
+        assign(searchingPosition, key);
+        return searchingPosition;
+      }
+
+      // mark the first deleted entry we find as the next viable insert location if we don't find an empty location
+      if (searchingState == DELETED && nextViableInsertLocation == NO_SLOT) {
+        nextViableInsertLocation = searchingPosition;
+      }
+
+      // if equal, found key, return position
+      if (searchingState == OCCUPIED && keys[searchingPosition] == key) {
+        return searchingPosition;
+      }
+
+      // not found, but not hit exit condition, continue searching
+      searchingPosition = (searchingPosition + searchIncrement) & mask;
+    }
+
+    // key does not exist in set, if current position is marked as deleted, use current position
+    if (stateAtPosition == DELETED) {
+      assign(position, key);
+      return position;
+    }
+
+    // key not found, or an empty space to insert key, insert at next viable location or fail
+    if (nextViableInsertLocation == NO_SLOT) {
+      return NO_SLOT;
+    }
+
+    assign(nextViableInsertLocation, key);
+    return nextViableInsertLocation;
+  }
+
+  /**
+   * Ensures key is no longer present in the index.
+   *
+   * @param key the key to ensure is deleted
+   * @return true if the key is no longer present in the index.
+   */
+  public boolean delete(final int key) {
+
+    final var position = get(key);
+    if (position != NO_SLOT) {
+      states[position] = DELETED;
+    }
+    return true;
+  }
+
+  /**
+   * Writes every location of the index to the channel, as the arrays are held.
+   *
+   * @param channel the channel to write to, left open
+   * @throws IOException if the channel cannot be written to
+   */
+  public void snapshot(final WritableByteChannel channel) throws IOException {
+
+    final var out = new SnapshotWriter(channel);
+    out.writeInt(SNAPSHOT_MAGIC);
+    out.writeInt(SNAPSHOT_VERSION);
+    out.writeInt(states.length);
+    out.writeBytes(states);
+    out.writeInts(keys);
+    out.flush();
+  }
+
+  /**
+   * Replaces every location of the index with those read from the channel, written by
+   * {@link #snapshot(WritableByteChannel)} from an index of the same size, copying the arrays straight back.
+   *
+   * <p>
+   * If the snapshot ends, or cannot be read, part way through the locations, the index is left empty.
+   * </p>
+   *
+   * @param channel the channel to read from, left open
+   * @throws IOException if the channel cannot be read from, or does not hold a snapshot of an index of this size
+   */
+  public void restore(final ReadableByteChannel channel) throws IOException {
+
+    final var in = new SnapshotReader(channel);
+    if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+      throw new IOException("not a snapshot of an index");
+    }
+    final var snapshotSize = in.readInt();
+    if (snapshotSize != states.length) {
+      throw new IOException("the snapshot holds " + snapshotSize + " locations, the index " + states.length);
+    }
+
+    try {
+      in.readBytes(states);
+      in.readInts(keys);
+    } catch (final IOException | RuntimeException e) {
+      Arrays.fill(states, EMPTY);
+      throw e;
+    }
+  }
+
+  private void assign(final int position, final int key) {
+    keys[position] = key;
+    states[position] = OCCUPIED;
+  }
+
+  // the key is its own hash, the mask keeps any hash within the table
+  private static int hash(final int key) {
+    return key;
+  }
+}
@@ -17,4 +17,22 @@ public final class IntegerExtensions {
   public static boolean isPowerOf2(final int value) {
     return Integer.bitCount(value) == 1;
   }
+
+  /**
+   * Returns the odd increment between the locations probed for a hash, in a table of 2 to the power of shift locations.
+   *
+   * <p>
+   * The increment is taken from the highest bits of the hash multiplied by 2^32 / phi, which depend on every bit of the
+   * hash, so keys sharing an initial location rarely share an increment, even when their hashes are all below the
+   * size of the table, such as sequential ids under {@link Hasher#identity()}.
+   * </p>
+   *
+   * @param hash  the hash of the key
+   * @param shift log2 of the number of locations
+   * @param mask  the number of locations - 1
+   * @return the increment, odd so every location is visited
+   */
+  static int probeIncrement(final int hash, final int shift, final int mask) {
+    return (((hash * 0x9E37_79B9) >>> (Integer.SIZE - shift)) | 1) & mask;
+  }
 }
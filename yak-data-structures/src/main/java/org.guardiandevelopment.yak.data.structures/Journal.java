@@ -0,0 +1,465 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.zip.CRC32C;
+
+/**
+ * Provides an append-only journal of the puts and deletes made against a table, so the table can be rebuilt after the
+ * process or machine fails.
+ *
+ * <p>
+ * Each put and delete is appended as a record holding its key and value, encoded by a {@link SlotCodec}, behind a
+ * CRC32C checksum of them. Records gather in memory and a background thread writes and forces them to the storage
+ * device together once every sync interval, so a burst of writes costs one force rather than one per write. A failure
+ * loses at most the records of the last sync interval; call {@link #sync()} where a write must be durable before
+ * going on, and concurrent callers share a single force.
+ * </p>
+ * <p>
+ * Opening a journal replays its records into the table, in the order they were appended, stopping at the first record
+ * torn by a failure part way through a write or failing its checksum. That record and everything after it are cut
+ * from the file, so new records follow the last intact one. Once a snapshot of the table is taken,
+ * {@link #truncate()} drops the records it already holds.
+ * </p>
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the value
+ */
+public final class Journal<K, V> implements Closeable {
+
+  // "YAKJ", followed by the format version
+  static final int MAGIC = 0x59414B4A;
+  static final int FORMAT_VERSION = 1;
+  static final int HEADER_SIZE = 8;
+
+  // each record is the size and checksum of its body, followed by the body of operation, key and, for a put, value
+  private static final int RECORD_HEADER_SIZE = 8;
+  private static final int MIN_BODY_SIZE = 1 + Integer.BYTES;
+  private static final byte PUT = 1;
+  private static final byte DELETE = 2;
+
+  private static final int BUFFER_SIZE = 1 << 20;
+
+  private final FileChannel channel;
+  private final SlotCodec<K> keyCodec;
+  private final SlotCodec<V> valueCodec;
+  private final ScheduledExecutorService syncer;
+
+  // guarded by this, the records appended but not yet written, and the number of bytes appended since opening
+  private final CRC32C checksum = new CRC32C();
+  private ByteBuffer pending = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private long appended;
+  private boolean closed;
+
+  // guarded by writeLock, always taken before this, the buffer swapped with pending on each write, and the number of
+  // bytes appended since opening that have been written, and forced
+  private final Object writeLock = new Object();
+  private ByteBuffer writing = ByteBuffer.allocateDirect(BUFFER_SIZE);
+  private long written;
+  private long durable;
+
+  // set once a background sync fails, after which no record is accepted, as it could never become durable
+  private volatile IOException failure;
+
+  private Journal(
+      final FileChannel channel,
+      final SlotCodec<K> keyCodec,
+      final SlotCodec<V> valueCodec,
+      final Duration syncInterval) {
+
+    this.channel = channel;
+    this.keyCodec = keyCodec;
+    this.valueCodec = valueCodec;
+    this.syncer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      final var thread = new Thread(runnable, "yak-journal-sync");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    final var interval = syncInterval.toNanos();
+    syncer.scheduleWithFixedDelay(this::syncInBackground, interval, interval, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Opens the journal held in the file at path, creating an empty journal if the file does not exist, and replays its
+   * records into the map.
+   *
+   * @param path         the file holding the journal
+   * @param keyCodec     encodes each key into a record
+   * @param valueCodec   encodes each value into a record
+   * @param syncInterval how long records may gather before being written and forced together, must be positive
+   * @param map          the map to replay the records into
+   * @param <K>          the type of the key
+   * @param <V>          the type of the value
+   * @return the opened journal, appending after the last intact record
+   * @throws IOException if the file cannot be opened, or does not hold a journal of this version
+   */
+  public static <K, V> Journal<K, V> open(
+      final Path path,
+      final SlotCodec<K> keyCodec,
+      final SlotCodec<V> valueCodec,
+      final Duration syncInterval,
+      final FixedSizeMap<K, V> map) throws IOException {
+
+    return open(path, keyCodec, valueCodec, syncInterval, map::put, map::delete);
+  }
+
+  /**
+   * Opens the journal held in the file at path, creating an empty journal if the file does not exist, and replays its
+   * records through onPut and onDelete, such as into an {@link OpenAddressingIndex}.
+   *
+   * @param path         the file holding the journal
+   * @param keyCodec     encodes each key into a record
+   * @param valueCodec   encodes each value into a record
+   * @param syncInterval how long records may gather before being written and forced together, must be positive
+   * @param onPut        applies a replayed put
+   * @param onDelete     applies a replayed delete
+   * @param <K>          the type of the key
+   * @param <V>          the type of the value
+   * @return the opened journal, appending after the last intact record
+   * @throws IOException if the file cannot be opened, or does not hold a journal of this version
+   */
+  public static <K, V> Journal<K, V> open(
+      final Path path,
+      final SlotCodec<K> keyCodec,
+      final SlotCodec<V> valueCodec,
+      final Duration syncInterval,
+      final BiConsumer<K, V> onPut,
+      final Consumer<K> onDelete) throws IOException {
+
+    assert !syncInterval.isNegative() && !syncInterval.isZero() : "the sync interval must be positive";
+
+    final var channel = FileChannel.open(
+        path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      if (channel.size() < HEADER_SIZE) {
+        // a new file, or one whose header was torn as it was created, so it holds no records
+        writeHeader(channel);
+      } else {
+        verifyHeader(channel);
+      }
+
+      final var end = replay(channel, keyCodec, valueCodec, onPut, onDelete);
+      if (channel.size() > end) {
+        channel.truncate(end);
+        channel.force(false);
+      }
+      channel.position(end);
+      return new Journal<>(channel, keyCodec, valueCodec, syncInterval);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Appends a put of the value to the key.
+   *
+   * @param key   the key the value was assigned to
+   * @param value the value put, may be null
+   * @throws UncheckedIOException if a previous sync failed, or the records could not be written to make room
+   */
+  public void put(final K key, final V value) {
+    append(PUT, key, value);
+  }
+
+  /**
+   * Appends a delete of the key.
+   *
+   * @param key the key deleted
+   * @throws UncheckedIOException if a previous sync failed, or the records could not be written to make room
+   */
+  public void delete(final K key) {
+    append(DELETE, key, null);
+  }
+
+  /**
+   * Writes every record appended before the call and forces them to the storage device.
+   *
+   * <p>
+   * Returns without a force of its own if one made while waiting already covers those records, so a burst of callers
+   * costs a single force.
+   * </p>
+   *
+   * @throws IOException if the records cannot be written or forced
+   */
+  public void sync() throws IOException {
+
+    final long target;
+    synchronized (this) {
+      throwIfFailed();
+      target = appended;
+    }
+
+    synchronized (writeLock) {
+      if (durable < target) {
+        try {
+          write();
+          channel.force(false);
+          durable = written;
+        } catch (IOException e) {
+          failure = e;
+          throw e;
+        }
+      }
+    }
+  }
+
+  /**
+   * Drops every record from the journal, once a snapshot of the table holds their changes.
+   *
+   * <p>
+   * No record should be appended between taking the snapshot and truncating, as it would be dropped with the rest.
+   * </p>
+   *
+   * @throws IOException if the file cannot be truncated
+   */
+  public void truncate() throws IOException {
+
+    synchronized (writeLock) {
+      synchronized (this) {
+        throwIfFailed();
+        pending.clear();
+        written = appended;
+        durable = appended;
+      }
+      channel.truncate(HEADER_SIZE);
+      channel.force(false);
+    }
+  }
+
+  /**
+   * Stops the background sync, writes and forces every record appended and closes the file.
+   *
+   * @throws IOException if the records cannot be written or the file cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    }
+
+    syncer.shutdown();
+    try {
+      sync();
+    } finally {
+      channel.close();
+    }
+  }
+
+  private void append(final byte operation, final K key, final V value) {
+
+    final var keySize = keyCodec.size(key);
+    final var valueSize = value == null ? SnapshotWriter.NULL_SIZE : valueCodec.size(value);
+    final var bodySize = MIN_BODY_SIZE + keySize + (operation == PUT ? Integer.BYTES + Math.max(valueSize, 0) : 0);
+    final var recordSize = RECORD_HEADER_SIZE + bodySize;
+
+    while (true) {
+      synchronized (this) {
+        if (closed) {
+          throw new IllegalStateException("the journal is closed");
+        }
+        throwIfFailed();
+
+        if (pending.remaining() >= recordSize) {
+          encode(operation, key, keySize, value, valueSize, bodySize);
+          appended += recordSize;
+          return;
+        }
+
+        // a record larger than the buffer gets a buffer of its own, once the records ahead of it are written
+        if (pending.position() == 0) {
+          pending = ByteBuffer.allocateDirect(recordSize);
+          continue;
+        }
+      }
+
+      // the buffer is full, write out the records in it, outside the lock as writeLock is taken first
+      try {
+        synchronized (writeLock) {
+          write();
+        }
+      } catch (IOException e) {
+        failure = e;
+        throw new UncheckedIOException("could not write journal records to make room for more", e);
+      }
+    }
+  }
+
+  // called holding this, with enough of the buffer remaining for the record
+  private void encode(
+      final byte operation,
+      final K key,
+      final int keySize,
+      final V value,
+      final int valueSize,
+      final int bodySize) {
+
+    final var start = pending.position();
+    final var bodyStart = start + RECORD_HEADER_SIZE;
+    try {
+      pending.position(bodyStart);
+      pending.put(operation);
+      pending.putInt(keySize);
+      keyCodec.write(key, pending);
+      if (operation == PUT) {
+        pending.putInt(valueSize);
+        if (value != null) {
+          valueCodec.write(value, pending);
+        }
+      }
+      assert pending.position() - bodyStart == bodySize : "the codec must write the size it reports";
+    } catch (RuntimeException e) {
+      // drop the partial record, so the records after it are not corrupted
+      pending.position(start);
+      throw e;
+    }
+
+    checksum.reset();
+    checksum.update(pending.slice(bodyStart, bodySize));
+    pending.putInt(start, bodySize);
+    pending.putInt(start + Integer.BYTES, (int) checksum.getValue());
+  }
+
+  // called holding writeLock, writes every record appended so far to the file, without forcing them
+  private void write() throws IOException {
+
+    synchronized (this) {
+      final var full = pending;
+      pending = writing;
+      writing = full;
+      written = appended;
+    }
+
+    writing.flip();
+    while (writing.hasRemaining()) {
+      channel.write(writing);
+    }
+    writing.clear();
+  }
+
+  // a failure is kept, and thrown by the next append, rather than thrown here where no one would see it
+  private void syncInBackground() {
+
+    try {
+      sync();
+    } catch (IOException | UncheckedIOException e) {
+      // already recorded as the failure
+    }
+  }
+
+  private void throwIfFailed() {
+
+    final var cause = failure;
+    if (cause != null) {
+      throw new UncheckedIOException("a previous journal sync failed, so no further record can be made durable", cause);
+    }
+  }
+
+  // applies every intact record, returning the position in the file after the last of them
+  private static <K, V> long replay(
+      final FileChannel channel,
+      final SlotCodec<K> keyCodec,
+      final SlotCodec<V> valueCodec,
+      final BiConsumer<K, V> onPut,
+      final Consumer<K> onDelete) throws IOException {
+
+    final var size = channel.size();
+    final var reader = new SnapshotReader(channel.position(HEADER_SIZE));
+    final var checksum = new CRC32C();
+    var body = new byte[BUFFER_SIZE];
+    var end = (long) HEADER_SIZE;
+
+    while (size - end >= RECORD_HEADER_SIZE) {
+      final var bodySize = reader.readInt();
+      final var expectedChecksum = reader.readInt();
+
+      // a size beyond the end of the file can only be a torn record
+      if (bodySize < MIN_BODY_SIZE || bodySize > size - end - RECORD_HEADER_SIZE) {
+        break;
+      }
+
+      if (body.length < bodySize) {
+        body = new byte[bodySize];
+      }
+      reader.readBytes(body, bodySize);
+
+      checksum.reset();
+      checksum.update(body, 0, bodySize);
+      if ((int) checksum.getValue() != expectedChecksum) {
+        break;
+      }
+
+      final var record = ByteBuffer.wrap(body, 0, bodySize);
+      final var operation = record.get();
+      final var key = readObject(record, keyCodec);
+      if (operation == PUT) {
+        onPut.accept(key, readObject(record, valueCodec));
+      } else if (operation == DELETE) {
+        onDelete.accept(key);
+      } else {
+        break;
+      }
+
+      end += RECORD_HEADER_SIZE + bodySize;
+    }
+
+    return end;
+  }
+
+  private static <T> T readObject(final ByteBuffer record, final SlotCodec<T> codec) {
+
+    final var size = record.getInt();
+    if (size == SnapshotWriter.NULL_SIZE) {
+      return null;
+    }
+
+    final var value = codec.read(record.slice(record.position(), size));
+    record.position(record.position() + size);
+    return value;
+  }
+
+  private static void writeHeader(final FileChannel channel) throws IOException {
+
+    final var header = ByteBuffer.allocate(HEADER_SIZE)
+        .putInt(MAGIC)
+        .putInt(FORMAT_VERSION)
+        .flip();
+
+    channel.truncate(0);
+    while (header.hasRemaining()) {
+      channel.write(header, header.position());
+    }
+    channel.force(true);
+  }
+
+  private static void verifyHeader(final FileChannel channel) throws IOException {
+
+    final var header = ByteBuffer.allocate(HEADER_SIZE);
+    while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+      // keep reading until the full header is read, or the file ends
+    }
+
+    if (header.getInt(0) != MAGIC) {
+      throw new IOException("file is not a yak journal");
+    }
+    if (header.getInt(4) != FORMAT_VERSION) {
+      throw new IOException("unsupported journal format version " + header.getInt(4));
+    }
+  }
+}
@@ -0,0 +1,103 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Provides a map whose puts and deletes are recorded in a {@link Journal}, so its entries survive the process or
+ * machine failing.
+ *
+ * <p>
+ * Each put and delete is applied to the wrapped map first and only recorded once it returns, so a put that throws, such
+ * as on a full map, is never replayed. A put the map refuses without throwing, handing the entry to the
+ * {@link EvictionListener} of an evicting map, or to the {@link OverflowListener} of a map with limited probing, is
+ * still recorded, and is handed to that listener again when replayed. Gets are served by the wrapped map alone. The
+ * journal does not record gets, so an evicting map may hold a different set of keys once replayed than it held before
+ * the failure.
+ * </p>
+ * <p>
+ * Puts and deletes hold the lock of the journaled map across both the change to the map and its record, so the
+ * journal records the writes of a thread safe map, such as {@link ConcurrentOpenAddressingHashMap}, in the order the
+ * map applied them, and a replay never restores a stale value. Writes through the journaled map are therefore made one
+ * at a time, gets are not locked.
+ * </p>
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the value
+ */
+public final class JournaledMap<K, V> implements FixedSizeMap<K, V>, Closeable {
+
+  private final FixedSizeMap<K, V> map;
+  private final Journal<K, V> journal;
+
+  private JournaledMap(final FixedSizeMap<K, V> map, final Journal<K, V> journal) {
+    this.map = map;
+    this.journal = journal;
+  }
+
+  /**
+   * Replays the journal held in the file at path into the map, and records every later put and delete made through
+   * the returned map.
+   *
+   * @param map          the map to journal, which should be empty
+   * @param path         the file holding the journal, created if it does not exist
+   * @param keyCodec     encodes each key into a record
+   * @param valueCodec   encodes each value into a record
+   * @param syncInterval how long records may gather before being written and forced together, must be positive
+   * @param <K>          the type of the key
+   * @param <V>          the type of the value
+   * @return the journaled map
+   * @throws IOException if the file cannot be opened, or does not hold a journal of this version
+   */
+  public static <K, V> JournaledMap<K, V> open(
+      final FixedSizeMap<K, V> map,
+      final Path path,
+      final SlotCodec<K> keyCodec,
+      final SlotCodec<V> valueCodec,
+      final Duration syncInterval) throws IOException {
+
+    return new JournaledMap<>(map, Journal.open(path, keyCodec, valueCodec, syncInterval, map));
+  }
+
+  @Override
+  public V get(final K key) {
+    return map.get(key);
+  }
+
+  @Override
+  public synchronized V put(final K key, final V value) {
+
+    final var previous = map.put(key, value);
+    journal.put(key, value);
+    return previous;
+  }
+
+  @Override
+  public synchronized V delete(final K key) {
+
+    final var previous = map.delete(key);
+    journal.delete(key);
+    return previous;
+  }
+
+  /**
+   * Returns the journal recording the puts and deletes of the map, to sync or truncate it.
+   *
+   * @return the journal
+   */
+  public Journal<K, V> journal() {
+    return journal;
+  }
+
+  /**
+   * Writes and forces every record of the journal, and closes it.
+   *
+   * @throws IOException if the records cannot be written or the file cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+    journal.close();
+  }
+}
@@ -0,0 +1,212 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Provides a read-through cache over a {@link FixedSizeMap}, loading a missing key through a {@link CacheLoader} on an
+ * executor and caching its value.
+ *
+ * <p>
+ * Every miss on a key shares the one load in flight for it, so a wave of misses for the same keys, such as after an
+ * eviction wave, costs the backing store one load per key rather than one per caller. {@link #getAll(Collection)}
+ * loads all of its misses in a single {@link CacheLoader#loadAll(List)} call.
+ * </p>
+ * <p>
+ * Every access to the map is made holding the lock of the cache, which also guards the loads in flight, so a map that
+ * is not thread safe, such as {@link OpenAddressingHashMap}, may be used. Loads run on the executor, outside the lock.
+ * A put or delete made while a load of the key is in flight wins over the load, whose value is still returned to its
+ * callers but never cached. A value that does not fit in a full map is returned without being cached.
+ * </p>
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the value
+ */
+public final class LoadingCache<K, V> {
+
+  private final FixedSizeMap<K, V> map;
+  private final CacheLoader<K, V> loader;
+  private final Executor executor;
+
+  // guarded by this, the load in flight for each key missing from the map
+  private final Map<K, CompletableFuture<V>> loading = new HashMap<>();
+
+  /**
+   * Creates a cache over the map, loading misses through the loader on the executor.
+   *
+   * @param map      the map holding the cached values, only ever accessed through this cache once created
+   * @param loader   loads the value of a key missing from the map
+   * @param executor runs each load
+   */
+  public LoadingCache(final FixedSizeMap<K, V> map, final CacheLoader<K, V> loader, final Executor executor) {
+
+    this.map = map;
+    this.loader = loader;
+    this.executor = executor;
+  }
+
+  /**
+   * Returns the value of the key, loading it if it is not cached, or joining the load already in flight for it.
+   *
+   * @param key the key to search for
+   * @return a future completed with the value, or null if the key has no value, already completed on a hit
+   */
+  public CompletableFuture<V> get(final K key) {
+
+    final CompletableFuture<V> load;
+    synchronized (this) {
+      final var value = map.get(key);
+      if (value != null) {
+        return CompletableFuture.completedFuture(value);
+      }
+
+      final var inFlight = loading.get(key);
+      if (inFlight != null) {
+        return inFlight;
+      }
+
+      load = new CompletableFuture<>();
+      loading.put(key, load);
+    }
+
+    final var keys = List.of(key);
+    final var waiting = Map.of(key, load);
+    try {
+      executor.execute(() -> {
+        try {
+          final var value = loader.load(key);
+          synchronized (this) {
+            cacheLoaded(key, value, load);
+          }
+          load.complete(value);
+        } catch (Throwable e) {
+          // an error, such as a failed assertion, must still fail the load, else every later miss waits on it forever
+          failLoads(keys, waiting, e);
+        }
+      });
+    } catch (RuntimeException e) {
+      failLoads(keys, waiting, e);
+    }
+    return load;
+  }
+
+  /**
+   * Returns the values of the keys, loading every key not cached and not already in flight in a single batch.
+   *
+   * @param keys the keys to search for
+   * @return a future completed with the value of each key that has one
+   */
+  public CompletableFuture<Map<K, V>> getAll(final Collection<? extends K> keys) {
+
+    final var values = new HashMap<K, V>();
+    final var waiting = new HashMap<K, CompletableFuture<V>>();
+    final var misses = new ArrayList<K>();
+
+    synchronized (this) {
+      for (final var key : keys) {
+        final var value = map.get(key);
+        if (value != null) {
+          values.put(key, value);
+          continue;
+        }
+
+        var load = loading.get(key);
+        if (load == null) {
+          load = new CompletableFuture<>();
+          loading.put(key, load);
+          misses.add(key);
+        }
+        waiting.put(key, load);
+      }
+    }
+
+    if (!misses.isEmpty()) {
+      try {
+        executor.execute(() -> loadAll(misses, waiting));
+      } catch (RuntimeException e) {
+        failLoads(misses, waiting, e);
+      }
+    }
+
+    return CompletableFuture.allOf(waiting.values().toArray(new CompletableFuture<?>[0]))
+        .thenApply(ignored -> {
+          waiting.forEach((key, load) -> {
+            final var value = load.join();
+            if (value != null) {
+              values.put(key, value);
+            }
+          });
+          return values;
+        });
+  }
+
+  /**
+   * Puts the value of the key into the cache, winning over any load of the key in flight.
+   *
+   * @param key   the key to assign the value to
+   * @param value the value to insert
+   * @return the old value, or null
+   */
+  public synchronized V put(final K key, final V value) {
+
+    loading.remove(key);
+    return map.put(key, value);
+  }
+
+  /**
+   * Deletes the value of the key from the cache, winning over any load of the key in flight.
+   *
+   * @param key the key to remove
+   * @return the old value, or null
+   */
+  public synchronized V delete(final K key) {
+
+    loading.remove(key);
+    return map.delete(key);
+  }
+
+  // loads the misses of a getAll, the loads of every other key it waits on were already in flight
+  private void loadAll(final List<K> misses, final Map<K, CompletableFuture<V>> waiting) {
+
+    try {
+      // a loader returning no map has no value for any of the keys, as with a null from a single load
+      final var result = loader.loadAll(misses);
+      final var loaded = result == null ? Map.<K, V>of() : result;
+      synchronized (this) {
+        misses.forEach(key -> cacheLoaded(key, loaded.get(key), waiting.get(key)));
+      }
+      misses.forEach(key -> waiting.get(key).complete(loaded.get(key)));
+    } catch (Throwable e) {
+      // an error caching the values, as well as loading them, must still fail every load not yet completed
+      failLoads(misses, waiting, e);
+    }
+  }
+
+  // fails the loads of the keys, so the next miss on any of them loads it again
+  private void failLoads(final List<K> keys, final Map<K, CompletableFuture<V>> loads, final Throwable cause) {
+
+    synchronized (this) {
+      keys.forEach(key -> loading.remove(key, loads.get(key)));
+    }
+    keys.forEach(key -> loads.get(key).completeExceptionally(cause));
+  }
+
+  // called holding this, caches the value unless a put or delete of the key came after the load started
+  private void cacheLoaded(final K key, final V value, final CompletableFuture<V> load) {
+
+    if (!loading.remove(key, load) || value == null) {
+      return;
+    }
+
+    try {
+      map.put(key, value);
+    } catch (RuntimeException e) {
+      // the map is full and cannot evict, the value is still returned to every caller waiting on it
+    }
+  }
+}
@@ -0,0 +1,307 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+
+/**
+ * Provides a fixed size store of long key to fixed size binary value, where both the key slots and the value slots
+ * live in a memory mapped file.
+ *
+ * <p>
+ * Re-opening an existing file maps the table exactly as it was left, so a process restart finds every key in the
+ * location it was assigned without rebuilding the table. Probing follows the same power of 2 masked double hashing as
+ * {@link LongOpenAddressingIndex}.
+ * </p>
+ * <p>
+ * The file is laid out as a header holding the format version, capacity and value size, followed by a region of slot
+ * states, a region of keys and a region of values, each indexed by slot. Changes reach the file when the operating
+ * system writes back the mapped pages, which survives the process exiting; call {@link #force()} to also survive the
+ * machine failing.
+ * </p>
+ */
+public final class MappedLongValueStore implements Closeable {
+
+  static final int MAGIC = 0x59414B4D; // YAKM
+  static final int FORMAT_VERSION = 3;
+  static final int HEADER_SIZE = 64;
+
+  private static final byte EMPTY = 0;
+  private static final byte OCCUPIED = 1;
+  private static final byte DELETED = 2;
+
+  private final FileChannel channel;
+  private final ByteSlab states;
+  private final ByteSlab keys;
+  private final ByteSlab values;
+  private final int valueSize;
+
+  // m, a power of 2, masked by m - 1
+  // h1(k) = hash(k) & (m - 1) = initial location
+  // h2(k) = ((hash(k) * 2^32 / phi) >>> (32 - log2(m))) | 1 = increment between locations, from every bit of the
+  // hash, odd so every location is visited
+  private final int mask;
+  private final int shift;
+
+  private MappedLongValueStore(final FileChannel channel, final int fixedSize, final int valueSize) throws IOException {
+
+    final var statesPosition = (long) HEADER_SIZE;
+    final var keysPosition = statesPosition + ByteSlab.sizeOf(fixedSize, Byte.BYTES);
+    final var valuesPosition = keysPosition + ByteSlab.sizeOf(fixedSize, Long.BYTES);
+
+    this.channel = channel;
+    this.states = ByteSlab.map(channel, statesPosition, fixedSize, Byte.BYTES);
+    this.keys = ByteSlab.map(channel, keysPosition, fixedSize, Long.BYTES);
+    this.values = ByteSlab.map(channel, valuesPosition, fixedSize, valueSize);
+    this.valueSize = valueSize;
+    this.mask = fixedSize - 1;
+    this.shift = Integer.numberOfTrailingZeros(fixedSize);
+  }
+
+  /**
+   * Opens the store held in the file at path, creating an empty store if the file does not exist.
+   *
+   * <p>
+   * The fixed size must be a power of 2, as this allows for better resolutions of collisions as we use
+   * Double Hashing when probing the table.
+   * </p>
+   *
+   * @param path      the file holding the store
+   * @param fixedSize the number of values the store can hold
+   * @param valueSize the size in bytes of every value
+   * @return the opened store
+   * @throws IOException if the file cannot be opened, or holds a store of a different version, size or value size
+   */
+  public static MappedLongValueStore open(final Path path, final int fixedSize, final int valueSize) throws IOException {
+
+    assert IntegerExtensions.isPowerOf2(fixedSize) : "the size of the store must be a power of 2";
+    assert valueSize > 0 : "the size of a value must be positive";
+
+    final var channel = FileChannel.open(
+        path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    try {
+      if (channel.size() == 0) {
+        writeHeader(channel, fixedSize, valueSize);
+      } else {
+        verifyHeader(channel, fixedSize, valueSize);
+      }
+      return new MappedLongValueStore(channel, fixedSize, valueSize);
+    } catch (IOException | RuntimeException e) {
+      channel.close();
+      throw e;
+    }
+  }
+
+  /**
+   * Copies the value associated with the key into dst.
+   *
+   * <p>
+   * On success {@link #valueSize()} bytes are written at the position of dst and its position is advanced past them,
+   * else dst is left untouched.
+   * </p>
+   *
+   * @param key the key to search for
+   * @param dst the buffer to copy the value into
+   * @return true if the key exists and the value was copied, else false
+   * @throws IndexOutOfBoundsException if dst has fewer than {@link #valueSize()} bytes remaining
+   */
+  public boolean get(final long key, final ByteBuffer dst) {
+
+    final var location = locate(key);
+    if (location == LongOpenAddressingIndex.NO_SLOT) {
+      return false;
+    }
+
+    values.copyOut(location, dst);
+    return true;
+  }
+
+  /**
+   * Copies {@link #valueSize()} bytes from the position of src into the value associated with the key.
+   *
+   * <p>
+   * The value is written before the key is marked as occupied, so a process that exits part way through a put never
+   * leaves a new key pointing at the value of a previous key.
+   * </p>
+   *
+   * @param key the key to assign the value to
+   * @param src the buffer holding the value, its position is advanced past the value once stored
+   * @return true if the value was stored, false if the store is full and the key does not currently exist
+   * @throws IndexOutOfBoundsException if src has fewer than {@link #valueSize()} bytes remaining
+   */
+  public boolean put(final long key, final ByteBuffer src) {
+
+    Objects.checkFromIndexSize(src.position(), valueSize, src.limit());
+
+    final var existing = locate(key);
+    if (existing != LongOpenAddressingIndex.NO_SLOT) {
+      values.copyIn(existing, src);
+      return true;
+    }
+
+    final var location = locateFree(key);
+    if (location == LongOpenAddressingIndex.NO_SLOT) {
+      return false;
+    }
+
+    values.copyIn(location, src);
+    keys.putLong(location, key);
+    states.putByte(location, OCCUPIED);
+    return true;
+  }
+
+  /**
+   * Deletes the value currently associated with the key.
+   *
+   * @param key the key to remove
+   * @return true if the key was present, else false
+   */
+  public boolean delete(final long key) {
+
+    final var location = locate(key);
+    if (location == LongOpenAddressingIndex.NO_SLOT) {
+      return false;
+    }
+
+    states.putByte(location, DELETED);
+    return true;
+  }
+
+  /**
+   * Returns the size in bytes of every value held by the store.
+   *
+   * @return the size of a value
+   */
+  public int valueSize() {
+    return valueSize;
+  }
+
+  /**
+   * Writes all changes made to the store through to the storage device.
+   */
+  public void force() {
+
+    states.force();
+    keys.force();
+    values.force();
+  }
+
+  /**
+   * Forces all changes to the storage device and closes the file, the mapping is released once the store is no longer
+   * reachable.
+   *
+   * @throws IOException if the file cannot be closed
+   */
+  @Override
+  public void close() throws IOException {
+
+    force();
+    channel.close();
+  }
+
+  private int locate(final long key) {
+
+    final var hash = hash(key);
+    final var position = hash & mask;
+    final var stateAtPosition = states.getByte(position);
+
+    // if location is empty, key cant be present
+    if (stateAtPosition == EMPTY) {
+      return LongOpenAddressingIndex.NO_SLOT;
+    }
+
+    if (stateAtPosition == OCCUPIED && keys.getLong(position) == key) {
+      return position;
+    }
+
+    // collision happened, search for potential key in remaining set
+    final var searchIncrement = IntegerExtensions.probeIncrement(hash, shift, mask);
+    var searchingPosition = (position + searchIncrement) & mask;
+
+    while (searchingPosition != position) {
+      final var searchingState = states.getByte(searchingPosition);
+
+      // if empty, key cant be present
+      if (searchingState == EMPTY) {
+        return LongOpenAddressingIndex.NO_SLOT;
+      }
+
+      // if equal, found key, return position
+      if (searchingState == OCCUPIED && keys.getLong(searchingPosition) == key) {
+        return searchingPosition;
+      }
+
+      // not found, but not hit exit condition, continue searching
+      searchingPosition = (searchingPosition + searchIncrement) & mask;
+    }
+
+    return LongOpenAddressingIndex.NO_SLOT;
+  }
+
+  // only called once the key is known to be absent, returns the first location on the probe path not occupied
+  private int locateFree(final long key) {
+
+    final var hash = hash(key);
+    final var position = hash & mask;
+
+    if (states.getByte(position) != OCCUPIED) {
+      return position;
+    }
+
+    final var searchIncrement = IntegerExtensions.probeIncrement(hash, shift, mask);
+    var searchingPosition = (position + searchIncrement) & mask;
+
+    while (searchingPosition != position) {
+      if (states.getByte(searchingPosition) != OCCUPIED) {
+        return searchingPosition;
+      }
+      searchingPosition = (searchingPosition + searchIncrement) & mask;
+    }
+
+    return LongOpenAddressingIndex.NO_SLOT;
+  }
+
+  private static int hash(final long key) {
+    return Long.hashCode(key);
+  }
+
+  private static void writeHeader(final FileChannel channel, final int fixedSize, final int valueSize)
+      throws IOException {
+
+    final var header = ByteBuffer.allocate(HEADER_SIZE)
+        .putInt(MAGIC)
+        .putInt(FORMAT_VERSION)
+        .putInt(fixedSize)
+        .putInt(valueSize)
+        .position(0);
+
+    while (header.hasRemaining()) {
+      channel.write(header, header.position());
+    }
+  }
+
+  private static void verifyHeader(final FileChannel channel, final int fixedSize, final int valueSize)
+      throws IOException {
+
+    final var header = ByteBuffer.allocate(HEADER_SIZE);
+    while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+      // keep reading until the full header is read, or the file ends
+    }
+    header.flip();
+
+    if (header.remaining() < HEADER_SIZE || header.getInt(0) != MAGIC) {
+      throw new IOException("file is not a yak mapped store");
+    }
+    if (header.getInt(4) != FORMAT_VERSION) {
+      throw new IOException("unsupported mapped store format version " + header.getInt(4));
+    }
+    if (header.getInt(8) != fixedSize || header.getInt(12) != valueSize) {
+      throw new IOException("mapped store holds " + header.getInt(8) + " values of " + header.getInt(12)
+          + " bytes, expected " + fixedSize + " values of " + valueSize + " bytes");
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Provides a fixed size store of key to fixed size binary value, where the values are held outside the java heap.
+ *
+ * <p>
+ * Keys are held by an {@link OpenAddressingIndex}, and the location the index assigns to a key addresses its value
+ * directly within a direct memory slab of fixedSize * valueSize bytes. Values are copied in and out of caller supplied
+ * buffers, so no value is ever held as an object on the heap and the collector never has to trace them.
+ * </p>
+ * <p>
+ * The direct memory is released when the store is no longer reachable.
+ * </p>
+ *
+ * @param <K> the type of the key
+ */
+public final class OffHeapValueStore<K> {
+
+  private final OpenAddressingIndex<K> index;
+  private final ByteSlab values;
+  private final int valueSize;
+
+  /**
+   * Creates a store of the fixedSize, holding values of exactly valueSize bytes.
+   *
+   * <p>
+   * The fixed size must be a power of 2, as this allows for better resolutions of collisions as we use
+   * Double Hashing when probing the table.
+   * </p>
+   *
+   * @param fixedSize the number of values the store can hold
+   * @param valueSize the size in bytes of every value
+   */
+  public OffHeapValueStore(final int fixedSize, final int valueSize) {
+
+    assert IntegerExtensions.isPowerOf2(fixedSize) : "the size of the store must be a power of 2";
+    assert valueSize > 0 : "the size of a value must be positive";
+
+    this.index = new OpenAddressingIndex<>(fixedSize);
+    this.values = ByteSlab.allocateDirect(fixedSize, valueSize);
+    this.valueSize = valueSize;
+  }
+
+  /**
+   * Copies the value associated with the key into dst.
+   *
+   * <p>
+   * On success {@link #valueSize()} bytes are written at the position of dst and its position is advanced past them,
+   * else dst is left untouched.
+   * </p>
+   *
+   * @param key the key to search for
+   * @param dst the buffer to copy the value into
+   * @return true if the key exists and the value was copied, else false
+   * @throws IndexOutOfBoundsException if dst has fewer than {@link #valueSize()} bytes remaining
+   */
+  public boolean get(final K key, final ByteBuffer dst) {
+
+    final var location = index.locate(key);
+    if (location == OpenAddressingIndex.NO_SLOT) {
+      return false;
+    }
+
+    values.copyOut(location, dst);
+    return true;
+  }
+
+  /**
+   * Copies {@link #valueSize()} bytes from the position of src into the value associated with the key.
+   *
+   * @param key the key to assign the value to
+   * @param src the buffer holding the value, its position is advanced past the value once stored
+   * @return true if the value was stored, false if the store is full and the key does not currently exist
+   * @throws IndexOutOfBoundsException if src has fewer than {@link #valueSize()} bytes remaining
+   */
+  public boolean put(final K key, final ByteBuffer src) {
+
+    // check before assigning, so a short buffer never leaves the key assigned to a stale value
+    Objects.checkFromIndexSize(src.position(), valueSize, src.limit());
+
+    final var location = index.locateOrAssign(key);
+    if (location == OpenAddressingIndex.NO_SLOT) {
+      return false;
+    }
+
+    values.copyIn(location, src);
+    return true;
+  }
+
+  /**
+   * Deletes the value currently associated with the key.
+   *
+   * @param key the key to remove
+   * @return true if the key was present, else false
+   */
+  public boolean delete(final K key) {
+
+    return index.remove(key) != OpenAddressingIndex.NO_SLOT;
+  }
+
+  /**
+   * Returns the size in bytes of every value held by the store.
+   *
+   * @return the size of a value
+   */
+  public int valueSize() {
+    return valueSize;
+  }
+}
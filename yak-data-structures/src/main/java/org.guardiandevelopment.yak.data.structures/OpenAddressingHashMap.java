@@ -1,24 +1,104 @@
 package org.guardiandevelopment.yak.data.structures;
 
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+
 /**
  * Provides a fixed size HashMap implementation using open addressing collision resolution technique.
  *
+ * <p>
+ * Keys are held by an {@link OpenAddressingIndex}, and each value is held in a parallel array at the location the
+ * index assigns to its key. Probing only touches the key array, and neither inserting nor overwriting a value
+ * allocates.
+ * </p>
+ * <p>
+ * While the index holds deleted markers, every put and delete also compacts a few locations of the index, moving keys
+ * back along their probe path, with their values, so a long running hash map under delete churn does not slowly fill
+ * with deleted markers. The more of the locations not holding a key are deleted markers, the more locations are
+ * compacted, up to a bound, so even a nearly full hash map keeps a search for a missing key short.
+ * </p>
+ * <p>
+ * {@link #getAll(Object[], Object[])} and {@link #putAll(Object[], Object[])} take many keys at once, hashing a batch
+ * of keys and reading each initial location before probing for any of them, so the cache misses of the batch overlap.
+ * </p>
+ * <p>
+ * {@link #enableMetrics()} starts recording {@link TableMetrics}, which can then be read as a snapshot, or through JMX.
+ * </p>
+ * <p>
+ * {@link #snapshot(WritableByteChannel, SlotCodec, SlotCodec)} writes the index and values out location by location,
+ * and {@link #restore(ReadableByteChannel, SlotCodec, SlotCodec)} reads them straight back into place, without
+ * hashing or probing for any key.
+ * </p>
+ * <p>
+ * {@link #cursor()} walks the entries location by location without allocating, and {@link #spliterator()} splits the
+ * locations into halves, so a parallel stream can scan or aggregate the entries across every core.
+ * </p>
+ * <p>
+ * {@link #limitProbing(int, float, OverflowListener)} bounds the locations a put probes for a new key, and the keys
+ * held, so a put into a nearly full hash map fails, or hands its entry to an {@link OverflowListener}, after a bounded
+ * number of probes, rather than probing every location. Every search then stops at the longest probe any key needed.
+ * </p>
+ * <p>
+ * A hash map created with a load factor is growable: once its keys exceed the load factor of its size, it doubles.
+ * Keys move to the doubled index a few locations at a time, on each put and delete, rather than in one rehash, and
+ * until the move completes a key not yet found in the doubled index is searched for in the previous one.
+ * </p>
+ *
  * @param <K> the type of the key
  * @param <V> the type of the value
  */
-public final class OpenAddressingHashMap<K, V> {
+public final class OpenAddressingHashMap<K, V> implements FixedSizeMap<K, V> {
 
-  private record Node<K, V>(K key, V value) {
-  }
+  // the number of index locations compacted by each put and delete, while the index holds deleted markers, growing
+  // to the maximum as deleted markers take over the locations not holding a key
+  private static final int COMPACTION_SLICE = 4;
+  private static final int MAX_COMPACTION_SLICE = 64;
+
+  // the number of locations of the previous index moved by each put and delete while growing, enough to complete the
+  // move well before the doubled index reaches its own load factor
+  private static final int MIGRATION_SLICE = 8;
+  private static final int MAX_SIZE = 1 << 30;
+
+  // the fewest locations a spliterator splits, below which handing a range to another thread costs more than scanning it
+  private static final int MIN_SPLIT_LOCATIONS = 1024;
+
+  // "YAKH", followed by the format version
+  private static final int SNAPSHOT_MAGIC = 0x59414B48;
+  private static final int SNAPSHOT_VERSION = 1;
+
+  private final boolean evicting;
+  private final EvictionListener<K, V> evictionListener;
+  private final SlotRelocationListener relocationListener = this::relocated;
+  private final Hasher<K> hasher;
+  private final boolean cacheHashes;
+  private final float loadFactor;
+
+  private OpenAddressingIndex<K> index;
+  private Object[] values;
+  private int threshold;
+
+  // only while growing, the index being moved from, and the next of its locations to move
+  private OpenAddressingIndex<K> previousIndex;
+  private Object[] previousValues;
+  private int migrationCursor;
 
-  private final Node<K, V> deleted = new Node<>(null, null);
-  private final Node<K, V>[] values;
+  // reused by every batch operation, grown to the largest batch seen
+  private int[] batchLocations = new int[0];
 
-  // m and m', where m` = m - 1
-  // h1(k) = k mod m = initial location
-  // h2(k) = 1 + (k mod m') = increment between locations
-  private final int keySpace;
-  private final int mprime;
+  // null until enabled, so a hash map without metrics only pays a null check
+  private TableMetrics metrics;
+
+  // a max load of 0 leaves probing unlimited, a null overflow listener fails a refused put
+  private int maxProbeLength;
+  private float maxLoad;
+  private OverflowListener<K, V> overflowListener;
 
   /**
    * Creates a hash map of the fixedSize using the open addressing collision resolution technique.
@@ -30,62 +110,158 @@ public final class OpenAddressingHashMap<K, V> {
    *
    * @param fixedSize the size of the hash map
    */
-  @SuppressWarnings("unchecked")
   public OpenAddressingHashMap(final int fixedSize) {
 
-    assert IntegerExtensions.isPowerOf2(fixedSize) : "the size of the hashmap must be a power of 2";
+    this(fixedSize, EvictionPolicy.NONE);
+  }
+
+  /**
+   * Creates a hash map of the fixedSize, hashing keys with the hasher.
+   *
+   * @param fixedSize   the size of the hash map
+   * @param hasher      hashes and compares the keys
+   * @param cacheHashes whether to hold the hash of every key, so keys of different hash are never compared
+   */
+  public OpenAddressingHashMap(final int fixedSize, final Hasher<K> hasher, final boolean cacheHashes) {
 
-    this.values = (Node<K, V>[]) new Node[fixedSize];
-    this.mprime = fixedSize - 1;
-    this.keySpace = values.length;
+    this(fixedSize, hasher, cacheHashes, EvictionPolicy.NONE, (candidate, victim) -> true, (key, value) -> {
+    });
   }
 
   /**
-   * Searches for the location of the key within the hash map.
+   * Creates a growable hash map, doubling its size whenever its keys exceed the load factor of its size.
    *
-   * @param key the key to search for
-   * @return the location of the key if it exists, else null
+   * @param initialSize the size of the hash map until it first grows, a power of 2
+   * @param loadFactor  the fraction of the size the keys may fill before growing, greater than 0 and less than 1
    */
-  public V get(final K key) {
+  public OpenAddressingHashMap(final int initialSize, final float loadFactor) {
 
-    if (key == null) {
-      return null;
-    }
+    this(initialSize, loadFactor, Hasher.identity(), false);
+  }
 
-    final var hash = key.hashCode();
-    final var position = Math.abs(hash % keySpace);
-    final var currentEntryAtPosition = values[position];
+  /**
+   * Creates a growable hash map, hashing keys with the hasher, doubling its size whenever its keys exceed the load
+   * factor of its size.
+   *
+   * @param initialSize the size of the hash map until it first grows, a power of 2
+   * @param loadFactor  the fraction of the size the keys may fill before growing, greater than 0 and less than 1
+   * @param hasher      hashes and compares the keys
+   * @param cacheHashes whether to hold the hash of every key, so keys of different hash are never compared
+   */
+  public OpenAddressingHashMap(final int initialSize, final float loadFactor, final Hasher<K> hasher, final boolean cacheHashes) {
 
-    // if location is empty, return null
-    if (currentEntryAtPosition == null) {
-      return null;
-    }
+    this(initialSize, hasher, cacheHashes, loadFactor, EvictionPolicy.NONE, (candidate, victim) -> true, (key, value) -> {
+    });
+  }
 
-    if (currentEntryAtPosition.key().equals(key)) {
-      return currentEntryAtPosition.value();
-    }
+  /**
+   * Creates a hash map of the fixedSize, using the eviction policy when a new key is put into a full hash map.
+   *
+   * <p>
+   * With {@link EvictionPolicy#CLOCK} the hash map never reports itself full: a {@link #get(Object)} marks the key as
+   * referenced, and a put of a new key into a full hash map evicts a key that has not been referenced recently.
+   * </p>
+   *
+   * @param fixedSize      the size of the hash map
+   * @param evictionPolicy what to do when there is no free location for a new key
+   */
+  public OpenAddressingHashMap(final int fixedSize, final EvictionPolicy evictionPolicy) {
 
-    // collision happened, search for potential key in remaining set
-    final var searchIncrement = 1 + (hash % mprime);
-    var searchingPosition = (position + searchIncrement) % keySpace;
+    this(fixedSize, evictionPolicy, (candidate, victim) -> true, (key, value) -> {
+    });
+  }
 
-    while (searchingPosition != position) {
-      final var searchingEntry = values[searchingPosition];
+  /**
+   * Creates a hash map of the fixedSize, using the eviction policy when a new key is put into a full hash map, only
+   * evicting a key when the admission policy prefers the new key over it.
+   *
+   * <p>
+   * A put that is refused admission leaves the hash map unchanged, and its key and value are passed to the eviction
+   * listener in the same way as an evicted entry.
+   * </p>
+   *
+   * @param fixedSize        the size of the hash map
+   * @param evictionPolicy   what to do when there is no free location for a new key
+   * @param admissionPolicy  decides whether a new key may evict the key chosen by the eviction policy
+   * @param evictionListener notified of every entry evicted, or refused admission
+   */
+  public OpenAddressingHashMap(
+      final int fixedSize,
+      final EvictionPolicy evictionPolicy,
+      final AdmissionPolicy<K> admissionPolicy,
+      final EvictionListener<K, V> evictionListener) {
 
-      // if empty, key cant be present already, assign to this slot
-      if (searchingEntry == null) {
-        return null;
-      }
+    this(fixedSize, Hasher.identity(), false, evictionPolicy, admissionPolicy, evictionListener);
+  }
 
-      // if equal, found key, return position
-      if (searchingEntry.key().equals(key)) {
-        return searchingEntry.value();
-      }
+  /**
+   * Creates a hash map of the fixedSize, hashing keys with the hasher, using the eviction policy when a new key is put
+   * into a full hash map, only evicting a key when the admission policy prefers the new key over it.
+   *
+   * @param fixedSize        the size of the hash map
+   * @param hasher           hashes and compares the keys
+   * @param cacheHashes      whether to hold the hash of every key, so keys of different hash are never compared
+   * @param evictionPolicy   what to do when there is no free location for a new key
+   * @param admissionPolicy  decides whether a new key may evict the key chosen by the eviction policy
+   * @param evictionListener notified of every entry evicted, or refused admission
+   */
+  public OpenAddressingHashMap(
+      final int fixedSize,
+      final Hasher<K> hasher,
+      final boolean cacheHashes,
+      final EvictionPolicy evictionPolicy,
+      final AdmissionPolicy<K> admissionPolicy,
+      final EvictionListener<K, V> evictionListener) {
+
+    this(fixedSize, hasher, cacheHashes, 0, evictionPolicy, admissionPolicy, evictionListener);
+  }
+
+  // a load factor of 0 keeps the hash map at its fixed size
+  private OpenAddressingHashMap(
+      final int fixedSize,
+      final Hasher<K> hasher,
+      final boolean cacheHashes,
+      final float loadFactor,
+      final EvictionPolicy evictionPolicy,
+      final AdmissionPolicy<K> admissionPolicy,
+      final EvictionListener<K, V> evictionListener) {
 
-      // not found, but not hit exit condition, continue searching
-      searchingPosition = (searchingPosition + searchIncrement) % keySpace;
+    assert IntegerExtensions.isPowerOf2(fixedSize) : "the size of the hashmap must be a power of 2";
+    assert loadFactor >= 0 && loadFactor < 1 : "the load factor must be less than 1";
+
+    this.index = new OpenAddressingIndex<>(fixedSize, hasher, cacheHashes, evictionPolicy, admissionPolicy, this::evicted);
+    this.values = new Object[fixedSize];
+    this.evicting = evictionPolicy != EvictionPolicy.NONE;
+    this.evictionListener = evictionListener;
+    this.hasher = hasher;
+    this.cacheHashes = cacheHashes;
+    this.loadFactor = loadFactor;
+    this.threshold = thresholdOf(fixedSize);
+  }
+
+  /**
+   * Searches for the location of the key within the hash map.
+   *
+   * @param key the key to search for
+   * @return the location of the key if it exists, else null
+   */
+  @Override
+  public V get(final K key) {
+
+    final var location = index.locate(key);
+    if (location != OpenAddressingIndex.NO_SLOT) {
+      recordSearch(true);
+      return valueAt(location);
+    }
+
+    // while growing, a key not yet moved is still held by the previous index
+    if (previousIndex != null) {
+      final var previousLocation = previousIndex.locate(key);
+      recordSearch(previousLocation != OpenAddressingIndex.NO_SLOT);
+      return previousLocation == OpenAddressingIndex.NO_SLOT ? null : previousValueAt(previousLocation);
     }
 
+    recordSearch(false);
     return null;
   }
 
@@ -95,120 +271,628 @@ public final class OpenAddressingHashMap<K, V> {
    * @param key   the key to assign the value to
    * @param value the value to insert
    * @return the old value, or null
-   * @throws RuntimeException if there is no further room in the hash map for the value
+   * @throws RuntimeException if there is no further room in the hash map for the value, and no key can be evicted
    */
+  @Override
   public V put(final K key, final V value) {
 
     if (key == null) {
       return null;
     }
 
-    final var hash = key.hashCode();
-    final var position = Math.abs(hash % keySpace);
-    final var currentEntryAtPosition = values[position];
+    // while growing, a key not yet moved leaves the previous index, so it is only ever held by one of them
+    final var moved = previousIndex == null ? null : removePrevious(key);
+
+    final var location = index.locateOrAssign(key);
+    if (location == OpenAddressingIndex.NO_SLOT) {
+      if (!evicting) {
+        if (metrics != null) {
+          metrics.recordFailure();
+        }
+        if (overflowListener == null) {
+          throw new RuntimeException("hash map is full");
+        }
+        overflowListener.onOverflow(key, value);
+        return null;
+      }
+
+      // when evicting, the only way to not be assigned a location is to be refused admission
+      evictionListener.onEviction(key, value);
+      return null;
+    }
 
-    // if location is empty, or key present is equal to param, return position of the key
-    if (currentEntryAtPosition == null
-        || (currentEntryAtPosition != deleted && currentEntryAtPosition.key().equals(key))) {
-      values[position] = new Node<>(key, value);
-      return currentEntryAtPosition == null ? null : currentEntryAtPosition.value();
+    final var old = moved == null ? valueAt(location) : moved;
+    values[location] = value;
+    if (metrics != null) {
+      metrics.recordPut();
+    }
+    if (previousIndex == null && index.size() > threshold) {
+      grow();
     }
+    migrateSlice();
+    compactSlice();
+    return old;
+  }
 
-    // collision happened, search for potential key in remaining set
-    final var searchIncrement = 1 + (hash % mprime);
-    var searchingPosition = (position + searchIncrement) % keySpace;
-    var nextViableInsertLocation = -1;
+  /**
+   * Deletes the value currently associated with the key.
+   *
+   * @param key the key to remove
+   * @return the old value, or null
+   */
+  @Override
+  public V delete(final K key) {
 
-    while (searchingPosition != position) {
-      final var searchingEntry = values[searchingPosition];
+    final var location = index.remove(key);
+    if (location == OpenAddressingIndex.NO_SLOT) {
+      if (previousIndex == null) {
+        return null;
+      }
 
-      // if empty, key can't be present already, assign to this slot
-      if (searchingEntry == null) {
-        values[searchingPosition] = new Node<>(key, value);
+      final var previousLocation = previousIndex.remove(key);
+      if (previousLocation == OpenAddressingIndex.NO_SLOT) {
         return null;
       }
 
-      // mark the first deleted entry we find as the next viable insert location if we don't find an empty location
-      if (deleted.equals(searchingEntry) && nextViableInsertLocation == -1) {
-        nextViableInsertLocation = searchingPosition;
+      final var old = previousValueAt(previousLocation);
+      previousValues[previousLocation] = null;
+      recordDelete();
+      migrateSlice();
+      return old;
+    }
+
+    // clear the value so the location holds nothing once it is reassigned
+    final var old = valueAt(location);
+    values[location] = null;
+    recordDelete();
+    migrateSlice();
+    compactSlice();
+    return old;
+  }
+
+  /**
+   * Searches for the value associated with each of the keys.
+   *
+   * @param keys    the keys to search for
+   * @param results filled with the value of the key at the same index, or null if it does not exist, at least as long
+   *                as the keys
+   * @return the number of keys that exist
+   */
+  public int getAll(final K[] keys, final V[] results) {
+
+    assert results.length >= keys.length : "there must be a result for every key";
+
+    final var locations = batchLocations(keys.length);
+    var found = index.locateAll(keys, locations);
+    for (int i = 0; i < keys.length; i++) {
+      final var location = locations[i];
+      if (location != OpenAddressingIndex.NO_SLOT) {
+        results[i] = valueAt(location);
+        recordSearch(true);
+      } else if (previousIndex != null) {
+        // while growing, a key not yet moved is still held by the previous index
+        final var previousLocation = previousIndex.locate(keys[i]);
+        if (previousLocation == OpenAddressingIndex.NO_SLOT) {
+          results[i] = null;
+          recordSearch(false);
+        } else {
+          results[i] = previousValueAt(previousLocation);
+          recordSearch(true);
+          found++;
+        }
+      } else {
+        results[i] = null;
+        recordSearch(false);
       }
+    }
+    return found;
+  }
 
-      // if equal, found key, return position
-      if (!deleted.equals(searchingEntry) && searchingEntry.key().equals(key)) {
-        values[searchingPosition] = new Node<>(key, value);
-        return searchingEntry.value();
+  /**
+   * Puts each of the keys into the hash map, with the value at the same index, in the order of the keys.
+   *
+   * @param keys   the keys to assign the values to
+   * @param values the values to insert, at least as long as the keys
+   * @throws RuntimeException if there is no further room in the hash map for a value, and no key can be evicted,
+   *                          after every key that could be put has been
+   */
+  public void putAll(final K[] keys, final V[] values) {
+
+    assert values.length >= keys.length : "there must be a value for every key";
+
+    // an eviction, or growing, can move the location of a key already assigned within the batch, so put one at a time
+    if (evicting || previousIndex != null || index.size() + keys.length > threshold) {
+      for (int i = 0; i < keys.length; i++) {
+        put(keys[i], values[i]);
       }
+      return;
+    }
 
-      // not found, but not hit exit condition, continue searching
-      searchingPosition = (searchingPosition + searchIncrement) % keySpace;
+    final var locations = batchLocations(keys.length);
+    index.locateOrAssignAll(keys, locations);
+
+    var full = false;
+    for (int i = 0; i < keys.length; i++) {
+      final var location = locations[i];
+      if (location != OpenAddressingIndex.NO_SLOT) {
+        this.values[location] = values[i];
+        if (metrics != null) {
+          metrics.recordPut();
+        }
+      } else if (keys[i] != null) {
+        if (metrics != null) {
+          metrics.recordFailure();
+        }
+        if (overflowListener == null) {
+          full = true;
+        } else {
+          overflowListener.onOverflow(keys[i], values[i]);
+        }
+      }
     }
 
-    // key does not exist in set, if current position is marked as deleted, use current position
-    if (deleted.equals(currentEntryAtPosition)) {
-      values[position] = new Node<>(key, value);
-      return null;
+    // compact only once every value is in place, as compaction moves the locations of keys in the batch
+    for (int i = 0; i < keys.length; i++) {
+      compactSlice();
     }
 
-    // key not found, or an empty space to insert key, insert at next viable location or fail
-    if (nextViableInsertLocation == -1) {
+    if (full) {
       throw new RuntimeException("hash map is full");
     }
+  }
+
+  /**
+   * Writes every location of the hash map to the channel, a growing hash map first completing its move.
+   *
+   * @param channel    the channel to write to, left open
+   * @param keyCodec   writes each key
+   * @param valueCodec writes each value
+   * @throws IOException if the channel cannot be written to
+   */
+  public void snapshot(final WritableByteChannel channel, final SlotCodec<K> keyCodec, final SlotCodec<V> valueCodec)
+      throws IOException {
+
+    completeMigration();
+
+    final var out = new SnapshotWriter(channel);
+    out.writeInt(SNAPSHOT_MAGIC);
+    out.writeInt(SNAPSHOT_VERSION);
+    out.writeInt(values.length);
+    index.writeTo(out, keyCodec);
+    for (int location = 0; location < values.length; location++) {
+      if (index.keyAt(location) != null) {
+        out.writeObject(valueAt(location), valueCodec);
+      }
+    }
+    out.flush();
+  }
+
+  /**
+   * Replaces every entry of the hash map with those read from the channel, written by
+   * {@link #snapshot(WritableByteChannel, SlotCodec, SlotCodec)} from a hash map of the same hasher.
+   *
+   * <p>
+   * A fixed size hash map must be the same size as the hash map the snapshot was taken of, a growable hash map takes
+   * the size of the snapshot. If the snapshot ends, or cannot be read, part way through the locations, the hash map is
+   * left empty.
+   * </p>
+   *
+   * @param channel    the channel to read from, left open
+   * @param keyCodec   reads each key
+   * @param valueCodec reads each value
+   * @throws IOException if the channel cannot be read from, or does not hold a snapshot of a hash map of this size
+   */
+  public void restore(final ReadableByteChannel channel, final SlotCodec<K> keyCodec, final SlotCodec<V> valueCodec)
+      throws IOException {
+
+    final var in = new SnapshotReader(channel);
+    if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+      throw new IOException("not a snapshot of a hash map");
+    }
+
+    final var snapshotSize = in.readInt();
+    if (snapshotSize != values.length && loadFactor == 0) {
+      throw new IOException("the snapshot holds " + snapshotSize + " locations, the hash map " + values.length);
+    }
+    if (snapshotSize <= 0 || snapshotSize > MAX_SIZE || !IntegerExtensions.isPowerOf2(snapshotSize)) {
+      throw new IOException("the snapshot holds " + snapshotSize + " locations, not a power of 2 up to " + MAX_SIZE);
+    }
+
+    previousIndex = null;
+    previousValues = null;
+    if (snapshotSize != values.length) {
+      index = new OpenAddressingIndex<>(snapshotSize, hasher, cacheHashes);
+      index.useMetrics(metrics);
+      limit(index);
+      values = new Object[snapshotSize];
+      threshold = thresholdOf(snapshotSize);
+    }
 
-    final var old = values[nextViableInsertLocation];
-    values[nextViableInsertLocation] = new Node<>(key, value);
-    return old.value();
+    Arrays.fill(values, null);
+    try {
+      index.readFrom(in, keyCodec);
+      for (int location = 0; location < values.length; location++) {
+        if (index.keyAt(location) != null) {
+          values[location] = in.readObject(valueCodec);
+        }
+      }
+    } catch (final IOException | RuntimeException e) {
+      index.clear();
+      Arrays.fill(values, null);
+      throw e;
+    }
   }
 
   /**
-   * Deletes the value currently associated with the key.
+   * Starts recording the metrics of the hash map, returning the metrics already recording if called again.
    *
-   * @param key the key to remove
-   * @return the old value, or null
+   * @return the metrics of the hash map
    */
-  public V delete(final K key) {
+  public TableMetrics enableMetrics() {
 
-    if (key == null) {
-      return null;
+    if (metrics == null) {
+      metrics = new TableMetrics(this::size, this::tombstones, this::capacity);
+      index.useMetrics(metrics);
+    }
+    return metrics;
+  }
+
+  /**
+   * Bounds the work of a put of a new key, failing the put once the key finds no free location within maxProbeLength
+   * locations, or the hash map holds maxLoad of its locations.
+   *
+   * @param maxProbeLength the most locations a new key may probe for a free location, at least 1
+   * @param maxLoad        the largest fraction of the locations that may hold keys, above 0 and at most 1
+   * @see #limitProbing(int, float, OverflowListener)
+   */
+  public void limitProbing(final int maxProbeLength, final float maxLoad) {
+    limitProbing(maxProbeLength, maxLoad, null);
+  }
+
+  /**
+   * Bounds the work of a put of a new key, handing the entry to the overflow listener instead of putting it once the
+   * key finds no free location within maxProbeLength locations, or the hash map holds maxLoad of its locations.
+   *
+   * <p>
+   * An evicting hash map evicts a key from within the maximum probe length instead. A growable hash map grows at its
+   * load factor as before, a maxLoad above the load factor only bounds probing, and keys moving to the doubled index
+   * are not limited until the move completes, so none are ever refused.
+   * </p>
+   *
+   * @param maxProbeLength   the most locations a new key may probe for a free location, at least 1
+   * @param maxLoad          the largest fraction of the locations that may hold keys, above 0 and at most 1
+   * @param overflowListener notified of every entry refused, or null to fail the put
+   */
+  public void limitProbing(
+      final int maxProbeLength,
+      final float maxLoad,
+      final OverflowListener<K, V> overflowListener) {
+
+    assert maxLoad > 0 && maxLoad <= 1 : "the maximum load must be above 0 and at most 1";
+
+    this.maxProbeLength = maxProbeLength;
+    this.maxLoad = maxLoad;
+    this.overflowListener = overflowListener;
+    if (previousIndex == null) {
+      limit(index);
+    }
+  }
+
+  /**
+   * The number of keys in the hash map.
+   *
+   * @return the number of keys
+   */
+  public int size() {
+    return previousIndex == null ? index.size() : index.size() + previousIndex.size();
+  }
+
+  /**
+   * The number of locations of the hash map, which only changes when a growable hash map grows.
+   *
+   * @return the number of locations
+   */
+  public int capacity() {
+    return values.length;
+  }
+
+  /**
+   * The number of deleted markers still held by the hash map.
+   *
+   * @return the number of deleted markers
+   */
+  public int tombstones() {
+    return index.tombstones();
+  }
+
+  /**
+   * Compacts the whole hash map in one go, rather than a few locations at a time on each put and delete.
+   *
+   * @return the number of keys moved
+   */
+  public int compact() {
+    return index.compact(relocationListener);
+  }
+
+  /**
+   * Returns a cursor over every entry of the hash map, in location order, a growing hash map first completing its move.
+   *
+   * @return a cursor positioned before the first entry
+   */
+  public Cursor<K, V> cursor() {
+
+    completeMigration();
+    return new LocationCursor();
+  }
+
+  /**
+   * Returns a spliterator over every entry of the hash map, a growing hash map first completing its move.
+   *
+   * <p>
+   * The spliterator splits the locations of the hash map in half, so a parallel stream over it scans the locations in
+   * contiguous ranges across the fork-join pool. The hash map must not be changed while the spliterator is in use.
+   * </p>
+   *
+   * @return a spliterator over the entries
+   */
+  public Spliterator<Map.Entry<K, V>> spliterator() {
+
+    completeMigration();
+    return new LocationSpliterator(0, values.length, size());
+  }
+
+  /**
+   * Deletes every entry matching the predicate, in a single scan of the locations.
+   *
+   * @param predicate tested with the key and value of each entry
+   * @return the number of entries deleted
+   */
+  public int removeIf(final BiPredicate<? super K, ? super V> predicate) {
+
+    final var cursor = cursor();
+    var removed = 0;
+    while (cursor.next()) {
+      if (predicate.test(cursor.key(), cursor.value())) {
+        cursor.remove();
+        removed++;
+      }
+    }
+    return removed;
+  }
+
+  // the location is about to be handed to a new key, so the new key must not see the value of the evicted key
+  private void evicted(final K key, final int location) {
+
+    final var value = valueAt(location);
+    values[location] = null;
+    evictionListener.onEviction(key, value);
+  }
+
+  private void compactSlice() {
+
+    final var tombstones = index.tombstones();
+    if (tombstones > 0) {
+      final var free = values.length - index.size();
+      index.compact(COMPACTION_SLICE + (MAX_COMPACTION_SLICE - COMPACTION_SLICE) * tombstones / free, relocationListener);
+    }
+  }
+
+  private int[] batchLocations(final int count) {
+
+    if (batchLocations.length < count) {
+      batchLocations = new int[count];
+    }
+    return batchLocations;
+  }
+
+  // starts moving keys to an index of double the size, the previous index is only read and removed from until the
+  // move completes
+  private void grow() {
+
+    if (values.length == MAX_SIZE) {
+      return;
+    }
+
+    final var size = values.length << 1;
+    previousIndex = index;
+    previousValues = values;
+    migrationCursor = 0;
+    index = new OpenAddressingIndex<>(size, hasher, cacheHashes);
+    index.useMetrics(metrics);
+    values = new Object[size];
+    threshold = thresholdOf(size);
+  }
+
+  private void completeMigration() {
+
+    while (previousIndex != null) {
+      migrateSlice();
     }
+  }
 
-    final var hash = key.hashCode();
-    final var position = Math.abs(hash % keySpace);
+  private void migrateSlice() {
 
-    final var currentEntryAtPosition = values[position];
+    if (previousIndex == null) {
+      return;
+    }
 
-    // if location is empty, key cant be present
-    if (currentEntryAtPosition == null) {
+    final var end = Math.min(migrationCursor + MIGRATION_SLICE, previousValues.length);
+    for (int location = migrationCursor; location < end; location++) {
+      final var key = previousIndex.keyAt(location);
+      if (key != null) {
+        values[index.locateOrAssign(key)] = previousValues[location];
+        previousIndex.removeAt(location);
+        previousValues[location] = null;
+      }
+    }
+    migrationCursor = end;
+
+    if (migrationCursor == previousValues.length) {
+      previousIndex = null;
+      previousValues = null;
+      limit(index);
+    }
+  }
+
+  private V removePrevious(final K key) {
+
+    final var location = previousIndex.remove(key);
+    if (location == OpenAddressingIndex.NO_SLOT) {
       return null;
     }
 
-    // if key is present at location, mark as deleted
-    if (currentEntryAtPosition != deleted && currentEntryAtPosition.key().equals(key)) {
-      values[position] = deleted;
-      return currentEntryAtPosition.value();
+    final var old = previousValueAt(location);
+    previousValues[location] = null;
+    return old;
+  }
+
+  private void limit(final OpenAddressingIndex<K> index) {
+
+    if (maxLoad != 0) {
+      index.limitProbing(maxProbeLength, maxLoad);
+    }
+  }
+
+  private void recordSearch(final boolean hit) {
+
+    if (metrics != null) {
+      metrics.recordSearch(hit);
+    }
+  }
+
+  private void recordDelete() {
+
+    if (metrics != null) {
+      metrics.recordDelete();
     }
+  }
 
-    final var searchIncrement = 1 + (hash % mprime);
-    var searchingPosition = (position + searchIncrement) % keySpace;
+  private int thresholdOf(final int size) {
+    return loadFactor == 0 ? Integer.MAX_VALUE : (int) (size * loadFactor);
+  }
 
-    while (searchingPosition != position) {
-      final var searchingEntry = values[searchingPosition];
+  private void relocated(final int from, final int to) {
 
-      // if empty, key cant be present
-      if (searchingEntry == null) {
-        return null;
+    values[to] = values[from];
+    values[from] = null;
+  }
+
+  @SuppressWarnings("unchecked")
+  private V valueAt(final int location) {
+    return (V) values[location];
+  }
+
+  @SuppressWarnings("unchecked")
+  private V previousValueAt(final int location) {
+    return (V) previousValues[location];
+  }
+
+  private final class LocationCursor implements Cursor<K, V> {
+
+    private int location = -1;
+    private K key;
+
+    @Override
+    public boolean next() {
+
+      while (++location < values.length) {
+        key = index.keyAt(location);
+        if (key != null) {
+          return true;
+        }
+      }
+
+      key = null;
+      return false;
+    }
+
+    @Override
+    public K key() {
+
+      assert key != null : "the cursor must be on an entry";
+      return key;
+    }
+
+    @Override
+    public V value() {
+
+      assert key != null : "the cursor must be on an entry";
+      return valueAt(location);
+    }
+
+    // marks the location deleted without compacting, as compaction could move a key the cursor has yet to visit
+    @Override
+    public void remove() {
+
+      assert key != null : "the cursor must be on an entry";
+      index.removeAt(location);
+      values[location] = null;
+      key = null;
+      recordDelete();
+    }
+  }
+
+  private final class LocationSpliterator implements Spliterator<Map.Entry<K, V>> {
+
+    private int location;
+    private final int fence;
+    private long estimatedSize;
+
+    private LocationSpliterator(final int location, final int fence, final long estimatedSize) {
+
+      this.location = location;
+      this.fence = fence;
+      this.estimatedSize = estimatedSize;
+    }
+
+    @Override
+    public boolean tryAdvance(final Consumer<? super Map.Entry<K, V>> action) {
+
+      while (location < fence) {
+        final var current = location++;
+        final var key = index.keyAt(current);
+        if (key != null) {
+          action.accept(new AbstractMap.SimpleImmutableEntry<>(key, valueAt(current)));
+          return true;
+        }
       }
+      return false;
+    }
+
+    @Override
+    public void forEachRemaining(final Consumer<? super Map.Entry<K, V>> action) {
 
-      // if equal, found key, delete it
-      if (searchingEntry != deleted && searchingEntry.key().equals(key)) {
-        values[searchingPosition] = deleted;
-        return searchingEntry.value();
+      for (; location < fence; location++) {
+        final var key = index.keyAt(location);
+        if (key != null) {
+          action.accept(new AbstractMap.SimpleImmutableEntry<>(key, valueAt(location)));
+        }
       }
+    }
+
+    // the locations are a power of 2, so each half is too, and the halves stay aligned to each other
+    @Override
+    public Spliterator<Map.Entry<K, V>> trySplit() {
 
-      // not found, but not hit exit condition, continue searching
-      searchingPosition = (searchingPosition + searchIncrement) % keySpace;
+      if (fence - location < MIN_SPLIT_LOCATIONS) {
+        return null;
+      }
+
+      final var middle = (location + fence) >>> 1;
+      final var prefix = new LocationSpliterator(location, middle, estimatedSize >>> 1);
+      location = middle;
+      estimatedSize -= prefix.estimatedSize;
+      return prefix;
     }
 
-    return null;
+    @Override
+    public long estimateSize() {
+      return estimatedSize;
+    }
+
+    @Override
+    public int characteristics() {
+      return Spliterator.DISTINCT | Spliterator.NONNULL;
+    }
   }
 }
-
@@ -1,21 +1,94 @@
 package org.guardiandevelopment.yak.data.structures;
 
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
 /**
  * Provides an index of key to integer, where the integer is equal to the index of the key in the map.
  *
+ * <p>
+ * Every location counts the keys whose probe path passes through it on the way to their own location. A deleted key
+ * only leaves a deleted marker behind while some other key still passes through its location, and a marker is
+ * cleared as soon as the last key passing through it is removed, so deleted markers never outnumber the keys that
+ * need them. {@link #compact(int, SlotRelocationListener)} shortens probe paths further, by moving keys back to
+ * deleted locations earlier on their path.
+ * </p>
+ * <p>
+ * Keys are hashed by a {@link Hasher}, by default their {@link Object#hashCode()}. Optionally, the hash of every key is
+ * cached alongside it, so a probe only compares keys of equal hash, and never recomputes the hash of a held key.
+ * </p>
+ * <p>
+ * {@link #getAll(Object[], int[])} and {@link #getExistingOrAssignAll(Object[], int[])} take many keys at once. They
+ * hash a batch of keys and read each initial location before probing for any of them, so the cache misses of the
+ * batch overlap rather than each waiting on the one before.
+ * </p>
+ * <p>
+ * {@link #enableMetrics()} starts recording {@link TableMetrics}, including the number of locations every probe
+ * examines.
+ * </p>
+ * <p>
+ * {@link #snapshot(WritableByteChannel, SlotCodec)} writes the locations out as they are, and
+ * {@link #restore(ReadableByteChannel, SlotCodec)} reads them back into an index of the same size and hasher, putting
+ * every key straight back at its location, so a restore never hashes or probes.
+ * </p>
+ *
  * @param <K> the type of the key.
  */
 public final class OpenAddressingIndex<K> {
 
+  /**
+   * Returned by the unboxed and batch operations when a key is not present, or cannot be assigned.
+   */
+  public static final int NO_SLOT = -1;
+
   private static final Object DELETED = new Object();
 
+  // "YAKI", followed by the format version
+  private static final int SNAPSHOT_MAGIC = 0x59414B49;
+  private static final int SNAPSHOT_VERSION = 3;
+  private static final byte EMPTY_LOCATION = 0;
+  private static final byte KEY_LOCATION = 1;
+  private static final byte DELETED_LOCATION = 2;
+
+  // the number of keys hashed, and initial locations read, ahead of probing, enough to keep the memory system busy
+  private static final int BATCH_SIZE = 64;
+
   private final Object[] keys;
+  private final int[] hashes;
+  private final int[] passing;
+  private final boolean[] referenced;
+  private final AdmissionPolicy<K> admissionPolicy;
+  private final SlotEvictionListener<K> evictionListener;
+  private final Hasher<K> hasher;
 
-  // m and m', where m` = m - 1
-  // h1(k) = k mod m = initial location
-  // h2(k) = 1 + (k mod m') = increment between locations
+  // m, a power of 2, masked by m - 1
+  // h1(k) = hash(k) & (m - 1) = initial location
+  // h2(k) = ((hash(k) * 2^32 / phi) >>> (32 - log2(m))) | 1 = increment between locations, from every bit of the
+  // hash, odd so every location is visited
   private final int keySpace;
-  private final int mprime;
+  private final int mask;
+  private final int shift;
+
+  private int size;
+  private int tombstones;
+  private int compactionCursor;
+
+  // the most locations any key held was probed to, so no search needs to probe further. only raised as keys are
+  // assigned, as a deleted or moved key cannot tell whether it was the furthest
+  private int longestProbe = 1;
+
+  // beyond either, a new key is refused, or evicts, rather than probing on towards every location of a full index
+  private int maxProbeLength;
+  private int maxKeys;
+
+  // reused by every batch operation, created by the first
+  private int[] batchHashes;
+  private boolean[] batchEmpty;
+
+  // null until enabled, so an index without metrics only pays a null check
+  private TableMetrics metrics;
 
   /**
    * Creates a hash map of the fixedSize using the open addressing collision resolution technique.
@@ -29,11 +102,101 @@ public final class OpenAddressingIndex<K> {
    */
   public OpenAddressingIndex(final int fixedSize) {
 
+    this(fixedSize, EvictionPolicy.NONE);
+  }
+
+  /**
+   * Creates a hash map of the fixedSize, hashing keys with the hasher.
+   *
+   * @param fixedSize   the size of the hash map
+   * @param hasher      hashes and compares the keys
+   * @param cacheHashes whether to hold the hash of every key, so keys of different hash are never compared
+   */
+  public OpenAddressingIndex(final int fixedSize, final Hasher<K> hasher, final boolean cacheHashes) {
+
+    this(fixedSize, hasher, cacheHashes, EvictionPolicy.NONE, (candidate, victim) -> true, (key, location) -> {
+    });
+  }
+
+  /**
+   * Creates a hash map of the fixedSize, using the eviction policy when a key is assigned to a full hash map.
+   *
+   * @param fixedSize      the size of the hash map
+   * @param evictionPolicy what to do when there is no free location for a new key
+   */
+  public OpenAddressingIndex(final int fixedSize, final EvictionPolicy evictionPolicy) {
+
+    this(fixedSize, evictionPolicy, (key, location) -> {
+    });
+  }
+
+  /**
+   * Creates a hash map of the fixedSize, using the eviction policy when a key is assigned to a full hash map, and
+   * notifying the listener of every evicted key.
+   *
+   * @param fixedSize        the size of the hash map
+   * @param evictionPolicy   what to do when there is no free location for a new key
+   * @param evictionListener notified before the location of an evicted key is reassigned
+   */
+  public OpenAddressingIndex(
+      final int fixedSize,
+      final EvictionPolicy evictionPolicy,
+      final SlotEvictionListener<K> evictionListener) {
+
+    this(fixedSize, evictionPolicy, (candidate, victim) -> true, evictionListener);
+  }
+
+  /**
+   * Creates a hash map of the fixedSize, using the eviction policy when a key is assigned to a full hash map, only
+   * evicting a key when the admission policy prefers the new key over it.
+   *
+   * @param fixedSize        the size of the hash map
+   * @param evictionPolicy   what to do when there is no free location for a new key
+   * @param admissionPolicy  decides whether a new key may evict the key chosen by the eviction policy
+   * @param evictionListener notified before the location of an evicted key is reassigned
+   */
+  public OpenAddressingIndex(
+      final int fixedSize,
+      final EvictionPolicy evictionPolicy,
+      final AdmissionPolicy<K> admissionPolicy,
+      final SlotEvictionListener<K> evictionListener) {
+
+    this(fixedSize, Hasher.identity(), false, evictionPolicy, admissionPolicy, evictionListener);
+  }
+
+  /**
+   * Creates a hash map of the fixedSize, hashing keys with the hasher, using the eviction policy when a key is
+   * assigned to a full hash map, only evicting a key when the admission policy prefers the new key over it.
+   *
+   * @param fixedSize        the size of the hash map
+   * @param hasher           hashes and compares the keys
+   * @param cacheHashes      whether to hold the hash of every key, so keys of different hash are never compared
+   * @param evictionPolicy   what to do when there is no free location for a new key
+   * @param admissionPolicy  decides whether a new key may evict the key chosen by the eviction policy
+   * @param evictionListener notified before the location of an evicted key is reassigned
+   */
+  public OpenAddressingIndex(
+      final int fixedSize,
+      final Hasher<K> hasher,
+      final boolean cacheHashes,
+      final EvictionPolicy evictionPolicy,
+      final AdmissionPolicy<K> admissionPolicy,
+      final SlotEvictionListener<K> evictionListener) {
+
     assert IntegerExtensions.isPowerOf2(fixedSize) : "the size of the hashmap must be a power of 2";
 
     this.keys = new Object[fixedSize];
-    this.mprime = fixedSize - 1;
+    this.hashes = cacheHashes ? new int[fixedSize] : null;
+    this.passing = new int[fixedSize];
+    this.referenced = evictionPolicy == EvictionPolicy.CLOCK ? new boolean[fixedSize] : null;
+    this.admissionPolicy = admissionPolicy;
+    this.evictionListener = evictionListener;
+    this.hasher = hasher;
     this.keySpace = keys.length;
+    this.mask = fixedSize - 1;
+    this.shift = Integer.numberOfTrailingZeros(fixedSize);
+    this.maxProbeLength = fixedSize;
+    this.maxKeys = fixedSize;
   }
 
   /**
@@ -44,194 +207,856 @@ public final class OpenAddressingIndex<K> {
    */
   public Integer get(final K key) {
 
-    if (key == null) {
-      return null;
+    final var location = locate(key);
+    if (metrics != null) {
+      metrics.recordSearch(location != NO_SLOT);
     }
+    return location == NO_SLOT ? null : location;
+  }
 
-    final var hash = key.hashCode();
-    final var position = Math.abs(hash % keySpace);
-    final var currentEntryAtPosition = keys[position];
+  /**
+   * Assigns the key to a fixed location in the hash map.
+   *
+   * <p>
+   * uses the hash of the key, masked to the fixedSize, to work out location.
+   * if the current entry at that location is null, assign the key to the location.
+   * if the current entry at that location is {@link #equals(Object)} to the key, assign the key to the location.
+   * if neither of these are true, we probe throughout the {@link #keys} to see if the key exists at
+   * a different location.
+   * </p>
+   * <p>
+   * This works by starting at the location we expected the key and moving forward until we hit either:
+   * an entry that is {@link #equals(Object)} to the key, then we assign the key to the existing location.
+   * Or, we hit an empty element, then we know the key must not exist in the set currently, and assign it to the
+   * empty location.
+   * If neither of these happen, and we search the entire {@link #keys} then we know the key must not exist. If we
+   * have encountered a deleted entry within that search, we assign the key to the first deleted entry.
+   * If no deleted entries have been found, we have a full {@link #keys}: with {@link EvictionPolicy#CLOCK} an existing
+   * key on the probe path is evicted and its location assigned, provided the {@link AdmissionPolicy} admits the key,
+   * else we return null.
+   * </p>
+   *
+   * @param key the key you wish to get an assignment for
+   * @return the assignment, or null if the {@link #keys} is full, the key does not currently exist and nothing can be
+   *     evicted
+   */
+  public Integer getExistingOrAssign(final K key) {
 
-    // if location is empty, return null
-    if (currentEntryAtPosition == null) {
-      return null;
+    final var location = locateOrAssign(key);
+    if (metrics != null) {
+      recordAssignment(key, location);
     }
+    return location == NO_SLOT ? null : location;
+  }
+
+  /**
+   * Searches for the location of each of the keys within the hash map.
+   *
+   * @param keys  the keys to search for, null keys are never present
+   * @param slots filled with the location of the key at the same index, or {@link #NO_SLOT} if it is not present,
+   *              at least as long as the keys
+   * @return the number of keys present
+   */
+  public int getAll(final K[] keys, final int[] slots) {
 
-    if (currentEntryAtPosition.equals(key)) {
-      return position;
+    final var found = locateAll(keys, slots);
+    if (metrics != null) {
+      for (int i = 0; i < keys.length; i++) {
+        metrics.recordSearch(slots[i] != NO_SLOT);
+      }
     }
+    return found;
+  }
 
-    // collision happened, search for potential key in remaining set
-    final var searchIncrement = 1 + (hash % mprime);
-    var searchingPosition = (position + searchIncrement) % keySpace;
+  /**
+   * Assigns each of the keys to a fixed location in the hash map, in the same way as
+   * {@link #getExistingOrAssign(Object)}, in the order of the keys.
+   *
+   * @param keys  the keys you wish to get an assignment for, a null key is never assigned
+   * @param slots filled with the assignment of the key at the same index, or {@link #NO_SLOT} if it could not be
+   *              assigned, at least as long as the keys
+   */
+  public void getExistingOrAssignAll(final K[] keys, final int[] slots) {
 
-    while (searchingPosition != position) {
-      final var searchingEntry = keys[searchingPosition];
+    locateOrAssignAll(keys, slots);
+    if (metrics != null) {
+      for (int i = 0; i < keys.length; i++) {
+        recordAssignment(keys[i], slots[i]);
+      }
+    }
+  }
 
-      // if empty, key cant be present already, assign to this slot
-      if (searchingEntry == null) {
-        return null;
+  /**
+   * Starts recording the metrics of the index, returning the metrics already recording if called again.
+   *
+   * @return the metrics of the index
+   */
+  public TableMetrics enableMetrics() {
+
+    if (metrics == null) {
+      metrics = new TableMetrics(this::size, this::tombstones, () -> keySpace);
+    }
+    return metrics;
+  }
+
+  /**
+   * Bounds the work of assigning a new key, so a nearly full index refuses, or evicts for, a new key after probing at
+   * most maxProbeLength locations, rather than probing every location of the index to find it full.
+   *
+   * <p>
+   * A new key is refused once maxLoad of the locations hold keys, or when none of the first maxProbeLength locations
+   * on its probe path are free. With {@link EvictionPolicy#CLOCK}, it evicts a key from those locations instead. Keys
+   * already held are unaffected, and are still found wherever they were assigned.
+   * </p>
+   *
+   * @param maxProbeLength the most locations a new key may probe for a free location, at least 1
+   * @param maxLoad        the largest fraction of the locations that may hold keys, above 0 and at most 1
+   */
+  public void limitProbing(final int maxProbeLength, final float maxLoad) {
+
+    assert maxProbeLength >= 1 : "a new key must be able to probe at least its initial location";
+    assert maxLoad > 0 && maxLoad <= 1 : "the maximum load must be above 0 and at most 1";
+
+    this.maxProbeLength = Math.min(maxProbeLength, keySpace);
+    this.maxKeys = Math.max(1, (int) (keySpace * maxLoad));
+  }
+
+  /**
+   * The most locations any key held was probed to when assigned, which bounds the locations any search examines.
+   *
+   * @return the longest probe
+   */
+  public int longestProbe() {
+    return longestProbe;
+  }
+
+  /**
+   * Writes every location of the index to the channel.
+   *
+   * @param channel  the channel to write to, left open
+   * @param keyCodec writes each key
+   * @throws IOException if the channel cannot be written to
+   */
+  public void snapshot(final WritableByteChannel channel, final SlotCodec<K> keyCodec) throws IOException {
+
+    final var out = new SnapshotWriter(channel);
+    writeTo(out, keyCodec);
+    out.flush();
+  }
+
+  /**
+   * Replaces every location of the index with those read from the channel, written by
+   * {@link #snapshot(WritableByteChannel, SlotCodec)} from an index of the same size and hasher.
+   *
+   * <p>
+   * If the snapshot ends, or cannot be read, part way through the locations, the index is left empty. Keys marked as
+   * referenced by {@link EvictionPolicy#CLOCK} are restored unreferenced.
+   * </p>
+   *
+   * @param channel  the channel to read from, left open
+   * @param keyCodec reads each key
+   * @throws IOException if the channel cannot be read from, or does not hold a snapshot of an index of this size
+   */
+  public void restore(final ReadableByteChannel channel, final SlotCodec<K> keyCodec) throws IOException {
+
+    readFrom(new SnapshotReader(channel), keyCodec);
+  }
+
+  /**
+   * Writes every location of the index.
+   *
+   * @param out      the writer to write to
+   * @param keyCodec writes each key
+   * @throws IOException if the writer cannot write
+   */
+  void writeTo(final SnapshotWriter out, final SlotCodec<K> keyCodec) throws IOException {
+
+    out.writeInt(SNAPSHOT_MAGIC);
+    out.writeInt(SNAPSHOT_VERSION);
+    out.writeInt(keySpace);
+    out.writeInt(size);
+    out.writeInt(tombstones);
+    out.writeInt(compactionCursor);
+    out.writeInt(longestProbe);
+    out.writeInts(passing);
+    out.writeInt(hashes == null ? 0 : 1);
+    if (hashes != null) {
+      out.writeInts(hashes);
+    }
+
+    for (int location = 0; location < keySpace; location++) {
+      final var key = keys[location];
+      if (key == null) {
+        out.writeByte(EMPTY_LOCATION);
+      } else if (key == DELETED) {
+        out.writeByte(DELETED_LOCATION);
+      } else {
+        out.writeByte(KEY_LOCATION);
+        out.writeObject(keyAt(location), keyCodec);
       }
+    }
+  }
 
-      // if equal, found key, return position
-      if (searchingEntry.equals(key)) {
-        return searchingPosition;
+  /**
+   * Replaces every location of the index with those read, leaving the index empty if they cannot all be read.
+   *
+   * @param in       the reader to read from
+   * @param keyCodec reads each key
+   * @throws IOException if the reader cannot read, or does not hold a snapshot of an index of this size
+   */
+  void readFrom(final SnapshotReader in, final SlotCodec<K> keyCodec) throws IOException {
+
+    if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+      throw new IOException("not a snapshot of an index");
+    }
+    final var snapshotSize = in.readInt();
+    if (snapshotSize != keySpace) {
+      throw new IOException("the snapshot holds " + snapshotSize + " locations, the index " + keySpace);
+    }
+
+    try {
+      size = in.readInt();
+      tombstones = in.readInt();
+      compactionCursor = in.readInt();
+      longestProbe = in.readInt();
+      in.readInts(passing);
+      final var hashesCached = in.readInt() == 1;
+      if (hashesCached) {
+        in.readInts(hashes == null ? new int[keySpace] : hashes);
       }
 
-      // not found, but not hit exit condition, continue searching
-      searchingPosition = (searchingPosition + searchIncrement) % keySpace;
+      for (int location = 0; location < keySpace; location++) {
+        final var state = in.readByte();
+        if (state == EMPTY_LOCATION) {
+          keys[location] = null;
+        } else if (state == DELETED_LOCATION) {
+          keys[location] = DELETED;
+        } else if (state == KEY_LOCATION) {
+          keys[location] = in.readObject(keyCodec);
+        } else {
+          throw new IOException("location " + location + " of the snapshot has an unknown state " + state);
+        }
+      }
+
+      // the snapshot was taken without the hashes this index caches, so hash each key once, still without probing
+      if (hashes != null && !hashesCached) {
+        for (int location = 0; location < keySpace; location++) {
+          final var key = keyAt(location);
+          if (key != null) {
+            hashes[location] = hasher.hash(key);
+          }
+        }
+      }
+      if (referenced != null) {
+        Arrays.fill(referenced, false);
+      }
+    } catch (final IOException | RuntimeException e) {
+      clear();
+      throw e;
     }
+  }
 
-    return null;
+  /**
+   * Searches for the location of each of the keys within the hash map, without recording a search in the metrics.
+   *
+   * @param keys  the keys to search for
+   * @param slots filled with the location of the key at the same index, or {@link #NO_SLOT}
+   * @return the number of keys present
+   */
+  int locateAll(final K[] keys, final int[] slots) {
+
+    assert slots.length >= keys.length : "there must be a slot for every key";
+
+    var found = 0;
+    for (int start = 0; start < keys.length; start += BATCH_SIZE) {
+      final var end = prefetch(keys, start);
+      for (int i = start; i < end; i++) {
+        final var key = keys[i];
+
+        // an empty initial location already rules the key out, without touching the location again
+        final var location = batchEmpty[i - start] ? probed(1, NO_SLOT) : locate(key, batchHashes[i - start]);
+        slots[i] = location;
+        if (location != NO_SLOT) {
+          found++;
+        }
+      }
+    }
+    return found;
   }
 
   /**
-   * Assigns the key to a fixed location in the hash map.
+   * Assigns each of the keys to a fixed location in the hash map, without recording a put in the metrics.
+   *
+   * @param keys  the keys you wish to get an assignment for
+   * @param slots filled with the assignment of the key at the same index, or {@link #NO_SLOT}
+   */
+  void locateOrAssignAll(final K[] keys, final int[] slots) {
+
+    assert slots.length >= keys.length : "there must be a slot for every key";
+
+    for (int start = 0; start < keys.length; start += BATCH_SIZE) {
+      final var end = prefetch(keys, start);
+      for (int i = start; i < end; i++) {
+        final var key = keys[i];
+        slots[i] = key == null ? NO_SLOT : locateOrAssign(key, batchHashes[i - start]);
+      }
+    }
+  }
+
+  /**
+   * Ensures key is no longer present in the hash map.
    *
    * <p>
-   * uses the {@link #hashCode()} of the key % fixedSize to work out location.
-   * if the current entry at that location is null, assign the key to the location.
-   * if the current entry at that location is {@link #equals(Object)} to the key, assign the key to the location.
-   * if neither of these are true, we do a linear probe throughout the {@link #keys} to see if the key exists at
+   * uses the hash of the key, masked to the fixedSize, to work out location.
+   * if the current entry at that location is null, does nothing, return true.
+   * if the current entry at that location is {@link #equals(Object)} to the key, marks key as deleted, return true.
+   * if neither of these are true, we probe throughout the {@link #keys} to see if the key exists at
    * a different location.
    * </p>
    * <p>
    * This works by starting at the location we expected the key and moving forward until we hit either:
-   * an entry that is {@link #equals(Object)} to the key, then we assign the key to the existing location.
-   * Or, we hit an empty element, then we know the key must not exist in the set currently, and assign it to the
-   * empty location.
-   * If neither of these happen, and we search the entire {@link #keys} then we know the key must not exist. If we
-   * have encountered a deleted entry within that search, we assign the key to the first deleted entry.
-   * If no deleted entries have been found, we have a full {@link #keys} and return null.
+   * an entry that is {@link #equals(Object)} to the key, then we mark the key as deleted and return true.
+   * Or, we hit an empty element, then we know the key must not exist in the set currently, and return true.
+   * If neither of these happen, then the key cannot exist, and we return true.
    * </p>
    *
+   * @param key the key to ensure is deleted
+   * @return true if the key is no longer present in the hash map.
+   */
+  public boolean delete(final K key) {
+
+    if (key == null) {
+      return false;
+    }
+
+    if (remove(key) != NO_SLOT && metrics != null) {
+      metrics.recordDelete();
+    }
+    return true;
+  }
+
+  /**
+   * The number of keys in the hash map.
+   *
+   * @return the number of keys
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * The number of deleted markers still needed by the probe path of a key in the hash map.
+   *
+   * @return the number of deleted markers
+   */
+  public int tombstones() {
+    return tombstones;
+  }
+
+  /**
+   * Moves keys back to the first deleted location on their probe path, across the whole hash map.
+   *
+   * @param relocationListener notified of every key moved
+   * @return the number of keys moved
+   */
+  public int compact(final SlotRelocationListener relocationListener) {
+
+    return compact(keySpace, relocationListener);
+  }
+
+  /**
+   * Moves keys back to the first deleted location on their probe path, examining at most the number of locations.
+   *
+   * <p>
+   * Each call carries on from the location the previous call stopped at, so calling this with a small number of
+   * locations after every change to the hash map keeps probe paths short without ever pausing to rebuild the whole
+   * hash map. A moved key no longer passes through the locations between its old and new location, which clears any
+   * deleted marker only that key needed. The location of a moved key changes, so the relocation listener must move
+   * anything held at the old location.
+   * </p>
+   *
+   * @param locations          the maximum number of locations to examine
+   * @param relocationListener notified of every key moved
+   * @return the number of keys moved
+   */
+  public int compact(final int locations, final SlotRelocationListener relocationListener) {
+
+    var relocated = 0;
+    for (int examined = 0; examined < locations && tombstones > 0; examined++) {
+      final var location = compactionCursor;
+      compactionCursor = (compactionCursor + 1) & mask;
+
+      final var key = keys[location];
+      if (key == null || key == DELETED) {
+        continue;
+      }
+
+      // find the first deleted location on the probe path of the key, before its current location
+      final var hash = hashAt(location);
+      final var searchIncrement = increment(hash);
+      var searchingPosition = position(hash);
+      while (searchingPosition != location && keys[searchingPosition] != DELETED) {
+        searchingPosition = (searchingPosition + searchIncrement) & mask;
+      }
+
+      if (searchingPosition == location) {
+        continue;
+      }
+
+      keys[searchingPosition] = key;
+      tombstones--;
+      if (hashes != null) {
+        hashes[searchingPosition] = hash;
+      }
+      if (referenced != null) {
+        referenced[searchingPosition] = referenced[location];
+      }
+      pass(hash, location, -1);
+      pass(hash, searchingPosition, 1);
+      release(location);
+
+      relocationListener.onRelocation(location, searchingPosition);
+      relocated++;
+    }
+
+    return relocated;
+  }
+
+  /**
+   * Searches for the location of the key within the hash map, without boxing the location.
+   *
+   * @param key the key to search for
+   * @return the location of the key if it exists, else {@link #NO_SLOT}
+   */
+  int locate(final K key) {
+
+    if (key == null) {
+      return NO_SLOT;
+    }
+
+    return locate(key, hasher.hash(key));
+  }
+
+  private int locate(final K key, final int hash) {
+
+    final var position = position(hash);
+    final var currentEntryAtPosition = keys[position];
+
+    // if location is empty, return no slot
+    if (currentEntryAtPosition == null) {
+      return probed(1, NO_SLOT);
+    }
+
+    if (matches(position, key, hash)) {
+      return probed(1, reference(position));
+    }
+
+    // collision happened, search for potential key in remaining set, no key held is further along than the longest probe
+    final var searchIncrement = increment(hash);
+    var searchingPosition = (position + searchIncrement) & mask;
+    var probes = 1;
+
+    while (probes < longestProbe) {
+      probes++;
+      final var searchingEntry = keys[searchingPosition];
+
+      // if empty, key cant be present
+      if (searchingEntry == null) {
+        return probed(probes, NO_SLOT);
+      }
+
+      // if equal, found key, return position
+      if (matches(searchingPosition, key, hash)) {
+        return probed(probes, reference(searchingPosition));
+      }
+
+      // not found, but not hit exit condition, continue searching
+      searchingPosition = (searchingPosition + searchIncrement) & mask;
+    }
+
+    return probed(probes, NO_SLOT);
+  }
+
+  /**
+   * Assigns the key to a fixed location in the hash map, without boxing the location.
+   *
    * @param key the key you wish to get an assignment for
-   * @return the assignment, or null if the {@link #keys} is full and the key does not currently exist
+   * @return the assignment, or {@link #NO_SLOT} if the {@link #keys} is full and the key does not currently exist
    */
-  public Integer getExistingOrAssign(final K key) {
+  int locateOrAssign(final K key) {
 
     if (key == null) {
-      return null;
+      return NO_SLOT;
     }
 
-    final var hash = key.hashCode();
-    final var position = Math.abs(hash % keySpace);
+    return locateOrAssign(key, hasher.hash(key));
+  }
+
+  private int locateOrAssign(final K key, final int hash) {
+
+    final var position = position(hash);
     final var currentEntryAtPosition = keys[position];
 
     // if location is empty, or key present is equal to param, return position of the key
-    if (currentEntryAtPosition == null || currentEntryAtPosition.equals(key)) {
+    if (currentEntryAtPosition == null) {
+      return probed(1, assignIfRoom(position, key, hash, 1));
+    }
+
+    if (matches(position, key, hash)) {
       keys[position] = key;
-      return position;
+      return probed(1, reference(position));
     }
 
-    // collision happened, search for potential key in remaining set
-    final var searchIncrement = 1 + (hash % mprime);
-    var searchingPosition = (position + searchIncrement) % keySpace;
-    var nextViableInsertLocation = -1;
+    // collision happened, search for potential key in remaining set, no key held is further along than the longest
+    // probe. the first deleted location is the next viable insert location, preferring the initial location
+    final var searchIncrement = increment(hash);
+    var searchingPosition = (position + searchIncrement) & mask;
+    var probes = 1;
+    var nextViableInsertLocation = DELETED.equals(currentEntryAtPosition) ? position : NO_SLOT;
+    var nextViableInsertProbes = 1;
 
-    while (searchingPosition != position) {
+    while (probes < longestProbe) {
+      probes++;
       final var searchingEntry = keys[searchingPosition];
 
       // if empty, key cant be present already, assign to this slot
       if (searchingEntry == null) {
-        keys[searchingPosition] = key;
-        return searchingPosition;
+        if (probes <= maxProbeLength) {
+          return probed(probes, assignIfRoom(searchingPosition, key, hash, probes));
+        }
+        return probed(probes, assignOrOverflow(nextViableInsertLocation, nextViableInsertProbes, key, hash));
       }
 
       // mark the first deleted entry we find as the next viable insert location if we don't find an empty location
-      if (DELETED.equals(searchingEntry) && nextViableInsertLocation == -1) {
+      if (DELETED.equals(searchingEntry) && nextViableInsertLocation == NO_SLOT) {
         nextViableInsertLocation = searchingPosition;
+        nextViableInsertProbes = probes;
       }
 
       // if equal, found key, return position
-      if (searchingEntry.equals(key)) {
+      if (matches(searchingPosition, key, hash)) {
         keys[searchingPosition] = key;
-        return searchingPosition;
+        return probed(probes, reference(searchingPosition));
       }
 
       // not found, but not hit exit condition, continue searching
-      searchingPosition = (searchingPosition + searchIncrement) % keySpace;
+      searchingPosition = (searchingPosition + searchIncrement) & mask;
     }
 
-    // key does not exist in set, if current position is marked as deleted, use current position
-    if (DELETED.equals(currentEntryAtPosition)) {
-      keys[position] = key;
-      return position;
+    // key does not exist in set, carry on along the probe path for a free location, up to the maximum probe length
+    while (nextViableInsertLocation == NO_SLOT && probes < maxProbeLength) {
+      probes++;
+      final var searchingEntry = keys[searchingPosition];
+      if (searchingEntry == null || DELETED.equals(searchingEntry)) {
+        nextViableInsertLocation = searchingPosition;
+        nextViableInsertProbes = probes;
+      }
+      searchingPosition = (searchingPosition + searchIncrement) & mask;
     }
 
-    // key not found, or an empty space to insert key, insert at next viable location or fail
-    if (nextViableInsertLocation == -1) {
-      return null;
+    return probed(probes, assignOrOverflow(nextViableInsertLocation, nextViableInsertProbes, key, hash));
+  }
+
+  // the key is not present, assign it to the free location if it is within the limits, else evict or fail
+  private int assignOrOverflow(final int location, final int probes, final K key, final int hash) {
+
+    if (location != NO_SLOT && probes <= maxProbeLength) {
+      return assignIfRoom(location, key, hash, probes);
     }
+    return referenced == null ? NO_SLOT : evict(key, hash);
+  }
 
-    keys[nextViableInsertLocation] = key;
+  private int assignIfRoom(final int location, final K key, final int hash, final int probes) {
 
-    return nextViableInsertLocation;
+    if (size >= maxKeys) {
+      return referenced == null ? NO_SLOT : evict(key, hash);
+    }
+
+    longestProbe = Math.max(longestProbe, probes);
+    return assign(location, key, hash);
   }
 
   /**
-   * Ensures key is no longer present in the hash map.
+   * Records the probes, and any operations of the hash map, into the metrics, which are shared with the hash map
+   * holding the index.
    *
-   * <p>
-   * uses the {@link #hashCode()} of the key % fixedSize to work out location.
-   * if the current entry at that location is null, does nothing, return true.
-   * if the current entry at that location is {@link #equals(Object)} to the key, marks key as deleted, return true.
-   * if neither of these are true, we do a linear probe throughout the {@link #keys} to see if the key exists at
-   * a different location.
-   * </p>
-   * <p>
-   * This works by starting at the location we expected the key and moving forward until we hit either:
-   * an entry that is {@link #equals(Object)} to the key, then we mark the key as deleted and return true.
-   * Or, we hit an empty element, then we know the key must not exist in the set currently, and return true.
-   * If neither of these happen, then the key cannot exist, and we return true.
-   * </p>
+   * @param metrics the metrics to record into, or null to stop recording
+   */
+  void useMetrics(final TableMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  /**
+   * Removes every key and deleted marker, without notifying any listener.
+   */
+  void clear() {
+
+    Arrays.fill(keys, null);
+    Arrays.fill(passing, 0);
+    if (referenced != null) {
+      Arrays.fill(referenced, false);
+    }
+    size = 0;
+    tombstones = 0;
+    compactionCursor = 0;
+    longestProbe = 1;
+  }
+
+  /**
+   * Marks the location as deleted, whichever key it holds.
    *
-   * @param key the key to ensure is deleted
-   * @return true if the key is no longer present in the hash map.
+   * @param location the location to delete, must hold a key
    */
-  public boolean delete(final K key) {
+  void removeAt(final int location) {
+
+    pass(hashAt(location), location, -1);
+    size--;
+    release(location);
+  }
+
+  /**
+   * The key held at the location.
+   *
+   * @param location the location to read
+   * @return the key, or null if the location is empty or deleted
+   */
+  @SuppressWarnings("unchecked")
+  K keyAt(final int location) {
+
+    final var entry = keys[location];
+    return entry == DELETED ? null : (K) entry;
+  }
+
+  /**
+   * Marks the key as deleted if present in the hash map.
+   *
+   * @param key the key to delete
+   * @return the location the key was deleted from, or {@link #NO_SLOT} if it was not present
+   */
+  int remove(final K key) {
 
     if (key == null) {
-      return false;
+      return NO_SLOT;
     }
 
-    final var hash = key.hashCode();
-    final var position = Math.abs(hash % keySpace);
+    final var hash = hasher.hash(key);
+    final var position = position(hash);
 
     final var currentEntryAtPosition = keys[position];
 
     // if location is empty, key cant be present
     if (currentEntryAtPosition == null) {
-      return true;
+      return probed(1, NO_SLOT);
     }
 
     // if key is present at location, mark as deleted
-    if (currentEntryAtPosition.equals(key)) {
-      keys[position] = DELETED;
-      return true;
+    if (matches(position, key, hash)) {
+      return probed(1, delete(position, hash));
     }
 
-    final var searchIncrement = 1 + (hash % mprime);
-    var searchingPosition = (position + searchIncrement) % keySpace;
+    final var searchIncrement = increment(hash);
+    var searchingPosition = (position + searchIncrement) & mask;
+    var probes = 1;
 
-    while (searchingPosition != position) {
+    while (probes < longestProbe) {
+      probes++;
       final var searchingEntry = keys[searchingPosition];
 
       // if empty, key cant be present
       if (searchingEntry == null) {
-        return true;
+        return probed(probes, NO_SLOT);
       }
 
       // if equal, found key, delete it
-      if (searchingEntry.equals(key)) {
-        keys[searchingPosition] = DELETED;
-        return true;
+      if (matches(searchingPosition, key, hash)) {
+        return probed(probes, delete(searchingPosition, hash));
       }
 
       // not found, but not hit exit condition, continue searching
-      searchingPosition = (searchingPosition + searchIncrement) % keySpace;
+      searchingPosition = (searchingPosition + searchIncrement) & mask;
     }
 
-    return true;
+    return probed(probes, NO_SLOT);
+  }
+
+
+  private int probed(final int probes, final int location) {
+
+    if (metrics != null) {
+      metrics.recordProbeLength(probes);
+    }
+    return location;
+  }
+
+  // a null key was never an attempt to put
+  private void recordAssignment(final K key, final int location) {
+
+    if (location != NO_SLOT) {
+      metrics.recordPut();
+    } else if (key != null) {
+      metrics.recordFailure();
+    }
+  }
+
+  // hashes the next batch of keys and reads the initial location of each, before any is probed, so their
+  // cache misses are outstanding together. returns the end of the batch
+  private int prefetch(final K[] batch, final int start) {
+
+    if (batchHashes == null) {
+      batchHashes = new int[BATCH_SIZE];
+      batchEmpty = new boolean[BATCH_SIZE];
+    }
+
+    final var end = Math.min(start + BATCH_SIZE, batch.length);
+    for (int i = start; i < end; i++) {
+      final var key = batch[i];
+      if (key == null) {
+        batchEmpty[i - start] = true;
+      } else {
+        final var hash = hasher.hash(key);
+        batchHashes[i - start] = hash;
+        batchEmpty[i - start] = keys[position(hash)] == null;
+      }
+    }
+    return end;
+  }
+
+  // second chance sweep along the probe path of the key, up to the maximum probe length, only called when no location
+  // within it is free, or the index holds as many keys as allowed. a referenced key has its reference cleared and is
+  // passed over, the first unreferenced key is evicted. if every key was referenced, the sweep has now cleared them all,
+  // so the first key swept is evicted. the sweep ends at an empty location, as a search for the key stops there, so
+  // it would never reach the key put in place of a victim beyond it
+  private int evict(final K key, final int hash) {
+
+    final var position = position(hash);
+    final var searchIncrement = increment(hash);
+    var searchingPosition = position;
+    var firstKeyLocation = NO_SLOT;
+    var firstKeyProbes = 0;
+    for (int probes = 1; probes <= maxProbeLength; probes++) {
+      final var searchingEntry = keys[searchingPosition];
+      if (searchingEntry == null) {
+        break;
+      }
+      if (searchingEntry != DELETED) {
+        if (!referenced[searchingPosition]) {
+          return replace(searchingPosition, key, hash, probes);
+        }
+        referenced[searchingPosition] = false;
+        if (firstKeyLocation == NO_SLOT) {
+          firstKeyLocation = searchingPosition;
+          firstKeyProbes = probes;
+        }
+      }
+      searchingPosition = (searchingPosition + searchIncrement) & mask;
+    }
+
+    // only the load limit leaves a probe path without any key to evict before an empty location
+    return firstKeyLocation == NO_SLOT ? NO_SLOT : replace(firstKeyLocation, key, hash, firstKeyProbes);
+  }
+
+  @SuppressWarnings("unchecked")
+  private int replace(final int location, final K key, final int hash, final int probes) {
+
+    final var victim = (K) keys[location];
+    if (!admissionPolicy.admit(key, victim)) {
+      return NO_SLOT;
+    }
+
+    longestProbe = Math.max(longestProbe, probes);
+    evictionListener.onEviction(victim, location);
+    pass(hashAt(location), location, -1);
+    keys[location] = key;
+    if (hashes != null) {
+      hashes[location] = hash;
+    }
+    pass(hash, location, 1);
+    return location;
+  }
+
+  private int assign(final int location, final K key, final int hash) {
+
+    if (keys[location] == DELETED) {
+      tombstones--;
+    }
+    keys[location] = key;
+    if (hashes != null) {
+      hashes[location] = hash;
+    }
+    size++;
+    pass(hash, location, 1);
+    return location;
+  }
+
+  private int delete(final int location, final int hash) {
+
+    pass(hash, location, -1);
+    size--;
+    return release(location);
+  }
+
+  // the key at the location has gone, only leave a deleted marker if another key still passes through the location
+  private int release(final int location) {
+
+    if (passing[location] == 0) {
+      keys[location] = null;
+    } else {
+      keys[location] = DELETED;
+      tombstones++;
+    }
+    return unreference(location);
+  }
+
+  // adds the delta to the count of every location on the probe path before the location of the key, a deleted marker
+  // no longer passed through by any key is cleared, as no search needs to continue past it
+  private void pass(final int hash, final int location, final int delta) {
+
+    final var searchIncrement = increment(hash);
+    var searchingPosition = position(hash);
+    while (searchingPosition != location) {
+      passing[searchingPosition] += delta;
+      if (passing[searchingPosition] == 0 && keys[searchingPosition] == DELETED) {
+        keys[searchingPosition] = null;
+        tombstones--;
+      }
+      searchingPosition = (searchingPosition + searchIncrement) & mask;
+    }
+  }
+
+  private int reference(final int location) {
+
+    if (referenced != null) {
+      referenced[location] = true;
+    }
+    return location;
+  }
+
+  private int unreference(final int location) {
+
+    if (referenced != null) {
+      referenced[location] = false;
+    }
+    return location;
+  }
+
+  // a cached hash that differs rules the key out without comparing it, the deleted marker is never a match
+  @SuppressWarnings("unchecked")
+  private boolean matches(final int location, final K key, final int hash) {
+
+    final var entry = keys[location];
+    return entry != DELETED && (hashes == null || hashes[location] == hash) && hasher.equals((K) entry, key);
+  }
+
+  @SuppressWarnings("unchecked")
+  private int hashAt(final int location) {
+    return hashes == null ? hasher.hash((K) keys[location]) : hashes[location];
+  }
+
+  private int position(final int hash) {
+    return hash & mask;
+  }
+
+  private int increment(final int hash) {
+    return IntegerExtensions.probeIncrement(hash, shift, mask);
   }
 }
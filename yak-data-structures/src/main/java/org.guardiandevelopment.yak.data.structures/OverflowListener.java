@@ -0,0 +1,21 @@
+package org.guardiandevelopment.yak.data.structures;
+
+/**
+ * Notified when an entry is refused by an {@link OpenAddressingHashMap} with limited probing, because the new key
+ * found no free location within the maximum probe length, or the hash map already holds as many keys as its maximum
+ * load allows, so the entry can be written somewhere else rather than failing the put.
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the value
+ */
+@FunctionalInterface
+public interface OverflowListener<K, V> {
+
+  /**
+   * Called with the entry that was not put.
+   *
+   * @param key   the key of the entry
+   * @param value the value of the entry
+   */
+  void onOverflow(K key, V value);
+}
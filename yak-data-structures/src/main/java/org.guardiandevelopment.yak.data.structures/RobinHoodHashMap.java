@@ -0,0 +1,188 @@
+package org.guardiandevelopment.yak.data.structures;
+
+/**
+ * Provides a fixed size HashMap implementation using Robin Hood hashing, an open addressing collision resolution
+ * technique that probes linearly.
+ *
+ * <p>
+ * Every location records how far its key is from its initial location. A key being inserted takes the location of any
+ * key closer to its own initial location than the inserted key is, and that key moves on in its place, so no key ends
+ * up much further from its initial location than any other. This keeps the longest probe short even when the hash map
+ * is nearly full, and lets a search stop as soon as it passes a key closer to home than the key searched for would be.
+ * </p>
+ * <p>
+ * A delete shifts the keys following the deleted key back by one location, until a key already at its initial
+ * location, or an empty location, is reached, so no deleted markers are ever left behind.
+ * </p>
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the value
+ */
+public final class RobinHoodHashMap<K, V> implements FixedSizeMap<K, V> {
+
+  private final Object[] keys;
+  private final Object[] values;
+
+  // 1 + the number of locations the key is past its initial location, 0 for an empty location
+  private final int[] distances;
+  private final int mask;
+  private int size;
+
+  /**
+   * Creates a hash map of the fixedSize using Robin Hood hashing.
+   *
+   * <p>
+   * The fixed size must be a power of 2, so the initial location of a key can be found by masking its hash.
+   * </p>
+   *
+   * @param fixedSize the size of the hash map
+   */
+  public RobinHoodHashMap(final int fixedSize) {
+
+    assert IntegerExtensions.isPowerOf2(fixedSize) : "the size of the hashmap must be a power of 2";
+
+    this.keys = new Object[fixedSize];
+    this.values = new Object[fixedSize];
+    this.distances = new int[fixedSize];
+    this.mask = fixedSize - 1;
+  }
+
+  @Override
+  public V get(final K key) {
+
+    final var location = locate(key);
+    return location == OpenAddressingIndex.NO_SLOT ? null : valueAt(location);
+  }
+
+  /**
+   * Puts a key into the hash map.
+   *
+   * @param key   the key to assign the value to
+   * @param value the value to insert
+   * @return the old value, or null
+   * @throws RuntimeException if there is no further room in the hash map for the value
+   */
+  @Override
+  public V put(final K key, final V value) {
+
+    if (key == null) {
+      return null;
+    }
+
+    var searchingPosition = hash(key) & mask;
+    var distance = 1;
+
+    // search for the key until a location closer to its initial location than the key would be, or empty
+    while (distances[searchingPosition] >= distance) {
+      if (keys[searchingPosition].equals(key)) {
+        final var old = valueAt(searchingPosition);
+        values[searchingPosition] = value;
+        return old;
+      }
+
+      searchingPosition = (searchingPosition + 1) & mask;
+      distance++;
+    }
+
+    if (size == keys.length) {
+      throw new RuntimeException("hash map is full");
+    }
+
+    // key not present, take this location and carry whichever key held it on to the next poorer location
+    Object insertingKey = key;
+    Object insertingValue = value;
+    while (distances[searchingPosition] != 0) {
+      if (distances[searchingPosition] < distance) {
+        final var displacedKey = keys[searchingPosition];
+        final var displacedValue = values[searchingPosition];
+        final var displacedDistance = distances[searchingPosition];
+        keys[searchingPosition] = insertingKey;
+        values[searchingPosition] = insertingValue;
+        distances[searchingPosition] = distance;
+        insertingKey = displacedKey;
+        insertingValue = displacedValue;
+        distance = displacedDistance;
+      }
+
+      searchingPosition = (searchingPosition + 1) & mask;
+      distance++;
+    }
+
+    keys[searchingPosition] = insertingKey;
+    values[searchingPosition] = insertingValue;
+    distances[searchingPosition] = distance;
+    size++;
+    return null;
+  }
+
+  @Override
+  public V delete(final K key) {
+
+    final var location = locate(key);
+    if (location == OpenAddressingIndex.NO_SLOT) {
+      return null;
+    }
+
+    final var old = valueAt(location);
+
+    // shift every following key that is not at its initial location back by one location
+    var emptyPosition = location;
+    var nextPosition = (location + 1) & mask;
+    while (distances[nextPosition] > 1) {
+      keys[emptyPosition] = keys[nextPosition];
+      values[emptyPosition] = values[nextPosition];
+      distances[emptyPosition] = distances[nextPosition] - 1;
+      emptyPosition = nextPosition;
+      nextPosition = (nextPosition + 1) & mask;
+    }
+
+    keys[emptyPosition] = null;
+    values[emptyPosition] = null;
+    distances[emptyPosition] = 0;
+    size--;
+    return old;
+  }
+
+  /**
+   * The number of keys in the hash map.
+   *
+   * @return the number of keys
+   */
+  public int size() {
+    return size;
+  }
+
+  private int locate(final K key) {
+
+    if (key == null) {
+      return OpenAddressingIndex.NO_SLOT;
+    }
+
+    var searchingPosition = hash(key) & mask;
+    var distance = 1;
+
+    // a location closer to its initial location than the key would be means the key would have taken it, so is absent
+    while (distances[searchingPosition] >= distance) {
+      if (keys[searchingPosition].equals(key)) {
+        return searchingPosition;
+      }
+
+      searchingPosition = (searchingPosition + 1) & mask;
+      distance++;
+    }
+
+    return OpenAddressingIndex.NO_SLOT;
+  }
+
+  @SuppressWarnings("unchecked")
+  private V valueAt(final int location) {
+    return (V) values[location];
+  }
+
+  // linear probing clusters keys whose hash only differs in the high bits, so fold them into the low bits first
+  private static int hash(final Object key) {
+
+    final var hash = key.hashCode();
+    return hash ^ (hash >>> 16);
+  }
+}
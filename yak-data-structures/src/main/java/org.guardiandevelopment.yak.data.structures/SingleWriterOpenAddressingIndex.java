@@ -0,0 +1,206 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.IntConsumer;
+
+/**
+ * Provides an index of key to integer, where the integer is equal to the index of the key in the map, that one thread
+ * may write while any number of threads read.
+ *
+ * <p>
+ * Every location is written by the single writer with release semantics, and read with acquire semantics, so readers
+ * never block and never see a key before it, and anything written before it, is published. A location is only ever
+ * changed from empty to a key, from a key to deleted, or from deleted to a key, never back to empty, so a reader
+ * probing concurrently with writes can not stop short of a key that was present for the whole of its search.
+ * </p>
+ * <p>
+ * Locations are reused once their key is deleted, so a reader holding the location of a key must not assume the
+ * location still holds that key after it was deleted.
+ * </p>
+ *
+ * @param <K> the type of the key.
+ */
+public final class SingleWriterOpenAddressingIndex<K> {
+
+  private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(Object[].class);
+  private static final Object DELETED = new Object();
+  private static final int NO_SLOT = -1;
+  private static final IntConsumer NO_INITIALIZER = location -> {
+  };
+
+  private final Object[] keys;
+
+  // m, a power of 2, masked by m - 1
+  // h1(k) = hash(k) & (m - 1) = initial location
+  // h2(k) = ((hash(k) * 2^32 / phi) >>> (32 - log2(m))) | 1 = increment between locations, from every bit of the
+  // hash, odd so every location is visited
+  private final int mask;
+  private final int shift;
+
+  /**
+   * Creates a hash map of the fixedSize using the open addressing collision resolution technique.
+   *
+   * <p>
+   * The fixed size must be a power of 2, as this allows for better resolutions of collisions as we use
+   * Double Hashing when probing the table.
+   * </p>
+   *
+   * @param fixedSize the size of the hash map
+   */
+  public SingleWriterOpenAddressingIndex(final int fixedSize) {
+
+    assert IntegerExtensions.isPowerOf2(fixedSize) : "the size of the hashmap must be a power of 2";
+
+    this.keys = new Object[fixedSize];
+    this.mask = fixedSize - 1;
+    this.shift = Integer.numberOfTrailingZeros(fixedSize);
+  }
+
+  /**
+   * Searches for the location of the key within the hash map, safe to call from any thread.
+   *
+   * @param key the key to search for
+   * @return the location of the key if it exists, else null
+   */
+  public Integer get(final K key) {
+
+    if (key == null) {
+      return null;
+    }
+
+    final var hash = hash(key);
+    final var position = hash & mask;
+    final var searchIncrement = IntegerExtensions.probeIncrement(hash, shift, mask);
+    var searchingPosition = position;
+
+    do {
+      final var searchingEntry = SLOTS.getAcquire(keys, searchingPosition);
+
+      // if empty, key cant be present
+      if (searchingEntry == null) {
+        return null;
+      }
+
+      // if equal, found key, return position
+      if (searchingEntry != DELETED && searchingEntry.equals(key)) {
+        return searchingPosition;
+      }
+
+      // not found, but not hit exit condition, continue searching
+      searchingPosition = (searchingPosition + searchIncrement) & mask;
+    } while (searchingPosition != position);
+
+    return null;
+  }
+
+  /**
+   * Assigns the key to a fixed location in the hash map, must only be called from the writer thread.
+   *
+   * @param key the key you wish to get an assignment for
+   * @return the assignment, or null if the hash map is full and the key does not currently exist
+   */
+  public Integer getExistingOrAssign(final K key) {
+
+    return getExistingOrAssign(key, NO_INITIALIZER);
+  }
+
+  /**
+   * Assigns the key to a fixed location in the hash map, must only be called from the writer thread.
+   *
+   * <p>
+   * When the key is assigned a new location, the initializer is given the location before the key is published,
+   * so a reader that finds the key also sees everything the initializer wrote, such as the value of the key held in
+   * an array alongside the index.
+   * </p>
+   *
+   * @param key         the key you wish to get an assignment for
+   * @param initializer called with the location of a newly assigned key, before the key is visible to readers
+   * @return the assignment, or null if the hash map is full and the key does not currently exist
+   */
+  public Integer getExistingOrAssign(final K key, final IntConsumer initializer) {
+
+    if (key == null) {
+      return null;
+    }
+
+    final var hash = hash(key);
+    final var position = hash & mask;
+    final var searchIncrement = IntegerExtensions.probeIncrement(hash, shift, mask);
+    var searchingPosition = position;
+    var nextViableInsertLocation = NO_SLOT;
+
+    do {
+      // only this thread writes the keys, so a plain read sees the latest write
+      final var searchingEntry = keys[searchingPosition];
+
+      // if empty, key cant be present already, assign to the first deleted location passed, else this location
+      if (searchingEntry == null) {
+        return publish(nextViableInsertLocation == NO_SLOT ? searchingPosition : nextViableInsertLocation, key, initializer);
+      }
+
+      // mark the first deleted entry we find as the next viable insert location if we don't find an empty location
+      if (searchingEntry == DELETED) {
+        if (nextViableInsertLocation == NO_SLOT) {
+          nextViableInsertLocation = searchingPosition;
+        }
+      } else if (searchingEntry.equals(key)) {
+        return searchingPosition;
+      }
+
+      // not found, but not hit exit condition, continue searching
+      searchingPosition = (searchingPosition + searchIncrement) & mask;
+    } while (searchingPosition != position);
+
+    return nextViableInsertLocation == NO_SLOT ? null : publish(nextViableInsertLocation, key, initializer);
+  }
+
+  /**
+   * Ensures key is no longer present in the hash map, must only be called from the writer thread.
+   *
+   * @param key the key to ensure is deleted
+   * @return true if the key is no longer present in the hash map.
+   */
+  public boolean delete(final K key) {
+
+    if (key == null) {
+      return false;
+    }
+
+    final var hash = hash(key);
+    final var position = hash & mask;
+    final var searchIncrement = IntegerExtensions.probeIncrement(hash, shift, mask);
+    var searchingPosition = position;
+
+    do {
+      final var searchingEntry = keys[searchingPosition];
+
+      // if empty, key cant be present
+      if (searchingEntry == null) {
+        return true;
+      }
+
+      // if equal, found key, delete it, a reader that already matched the key keeps its location
+      if (searchingEntry != DELETED && searchingEntry.equals(key)) {
+        SLOTS.setRelease(keys, searchingPosition, DELETED);
+        return true;
+      }
+
+      // not found, but not hit exit condition, continue searching
+      searchingPosition = (searchingPosition + searchIncrement) & mask;
+    } while (searchingPosition != position);
+
+    return true;
+  }
+
+  private Integer publish(final int location, final K key, final IntConsumer initializer) {
+
+    initializer.accept(location);
+    SLOTS.setRelease(keys, location, key);
+    return location;
+  }
+
+  private static int hash(final Object key) {
+    return key.hashCode();
+  }
+}
@@ -0,0 +1,147 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the key or value held at a location into a snapshot, and reads it back on restore.
+ *
+ * <p>
+ * The snapshot records the size of every key and value ahead of its bytes, so a codec only needs to read back exactly
+ * what it wrote.
+ * </p>
+ *
+ * @param <T> the type of the key or value
+ */
+public interface SlotCodec<T> {
+
+  /**
+   * The number of bytes {@link #write(Object, ByteBuffer)} writes for the value.
+   *
+   * @param value the value to be written, never null
+   * @return the size in bytes
+   */
+  int size(T value);
+
+  /**
+   * Writes the value at the position of the buffer, advancing the position past it.
+   *
+   * @param value  the value to write, never null
+   * @param buffer the buffer to write into, with at least {@link #size(Object)} bytes remaining
+   */
+  void write(T value, ByteBuffer buffer);
+
+  /**
+   * Reads a value written by {@link #write(Object, ByteBuffer)} from the position of the buffer.
+   *
+   * @param buffer the buffer to read from, with exactly the bytes of the value remaining
+   * @return the value
+   */
+  T read(ByteBuffer buffer);
+
+  /**
+   * Encodes integers as 4 bytes.
+   *
+   * @return the codec
+   */
+  static SlotCodec<Integer> integers() {
+    return new SlotCodec<>() {
+
+      @Override
+      public int size(final Integer value) {
+        return Integer.BYTES;
+      }
+
+      @Override
+      public void write(final Integer value, final ByteBuffer buffer) {
+        buffer.putInt(value);
+      }
+
+      @Override
+      public Integer read(final ByteBuffer buffer) {
+        return buffer.getInt();
+      }
+    };
+  }
+
+  /**
+   * Encodes longs as 8 bytes.
+   *
+   * @return the codec
+   */
+  static SlotCodec<Long> longs() {
+    return new SlotCodec<>() {
+
+      @Override
+      public int size(final Long value) {
+        return Long.BYTES;
+      }
+
+      @Override
+      public void write(final Long value, final ByteBuffer buffer) {
+        buffer.putLong(value);
+      }
+
+      @Override
+      public Long read(final ByteBuffer buffer) {
+        return buffer.getLong();
+      }
+    };
+  }
+
+  /**
+   * Encodes strings as UTF-8.
+   *
+   * @return the codec
+   */
+  static SlotCodec<String> strings() {
+    return new SlotCodec<>() {
+
+      @Override
+      public int size(final String value) {
+        return value.getBytes(StandardCharsets.UTF_8).length;
+      }
+
+      @Override
+      public void write(final String value, final ByteBuffer buffer) {
+        buffer.put(value.getBytes(StandardCharsets.UTF_8));
+      }
+
+      @Override
+      public String read(final ByteBuffer buffer) {
+
+        final var bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+      }
+    };
+  }
+
+  /**
+   * Writes byte arrays as they are.
+   *
+   * @return the codec
+   */
+  static SlotCodec<byte[]> bytes() {
+    return new SlotCodec<>() {
+
+      @Override
+      public int size(final byte[] value) {
+        return value.length;
+      }
+
+      @Override
+      public void write(final byte[] value, final ByteBuffer buffer) {
+        buffer.put(value);
+      }
+
+      @Override
+      public byte[] read(final ByteBuffer buffer) {
+
+        final var bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        return bytes;
+      }
+    };
+  }
+}
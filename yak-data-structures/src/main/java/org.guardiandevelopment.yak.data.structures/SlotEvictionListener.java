@@ -0,0 +1,18 @@
+package org.guardiandevelopment.yak.data.structures;
+
+/**
+ * Notified when a key is evicted from an {@link OpenAddressingIndex} to make room for a new key.
+ *
+ * @param <K> the type of the key
+ */
+@FunctionalInterface
+public interface SlotEvictionListener<K> {
+
+  /**
+   * Called before the location of the evicted key is assigned to the new key.
+   *
+   * @param key      the key being evicted
+   * @param location the location the key was assigned to
+   */
+  void onEviction(K key, int location);
+}
@@ -0,0 +1,16 @@
+package org.guardiandevelopment.yak.data.structures;
+
+/**
+ * Notified when compaction moves a key of an {@link OpenAddressingIndex} to a different location.
+ */
+@FunctionalInterface
+public interface SlotRelocationListener {
+
+  /**
+   * Called once the key has moved, so anything held at the old location of the key can follow it.
+   *
+   * @param from the location the key was assigned to
+   * @param to   the location the key is now assigned to
+   */
+  void onRelocation(int from, int to);
+}
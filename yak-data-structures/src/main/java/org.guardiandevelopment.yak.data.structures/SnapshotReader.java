@@ -0,0 +1,106 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Reads back the arrays written by a {@link SnapshotWriter}, in large sequential chunks, through a single direct
+ * buffer.
+ */
+final class SnapshotReader {
+
+  private static final int CHUNK_SIZE = 1 << 20;
+
+  private final ReadableByteChannel channel;
+  private ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE).limit(0);
+
+  SnapshotReader(final ReadableByteChannel channel) {
+    this.channel = channel;
+  }
+
+  int readInt() throws IOException {
+
+    ensureAvailable(Integer.BYTES);
+    return buffer.getInt();
+  }
+
+  byte readByte() throws IOException {
+
+    ensureAvailable(1);
+    return buffer.get();
+  }
+
+  void readBytes(final byte[] values) throws IOException {
+    readBytes(values, values.length);
+  }
+
+  void readBytes(final byte[] values, final int count) throws IOException {
+
+    for (int offset = 0; offset < count; ) {
+      ensureAvailable(1);
+      final var length = Math.min(buffer.remaining(), count - offset);
+      buffer.get(values, offset, length);
+      offset += length;
+    }
+  }
+
+  void readInts(final int[] values) throws IOException {
+
+    for (int offset = 0; offset < values.length; ) {
+      ensureAvailable(Integer.BYTES);
+      final var length = Math.min(buffer.remaining() / Integer.BYTES, values.length - offset);
+      buffer.asIntBuffer().get(values, offset, length);
+      buffer.position(buffer.position() + length * Integer.BYTES);
+      offset += length;
+    }
+  }
+
+  void readLongs(final long[] values) throws IOException {
+
+    for (int offset = 0; offset < values.length; ) {
+      ensureAvailable(Long.BYTES);
+      final var length = Math.min(buffer.remaining() / Long.BYTES, values.length - offset);
+      buffer.asLongBuffer().get(values, offset, length);
+      buffer.position(buffer.position() + length * Long.BYTES);
+      offset += length;
+    }
+  }
+
+  <T> T readObject(final SlotCodec<T> codec) throws IOException {
+
+    final var size = readInt();
+    if (size == SnapshotWriter.NULL_SIZE) {
+      return null;
+    }
+
+    ensureAvailable(size);
+    final var limit = buffer.limit();
+    final var end = buffer.position() + size;
+    buffer.limit(end);
+    final var value = codec.read(buffer);
+    buffer.limit(limit).position(end);
+    return value;
+  }
+
+  // reads from the channel until the bytes are buffered, growing the buffer for an object larger than it
+  private void ensureAvailable(final int bytes) throws IOException {
+
+    if (buffer.remaining() >= bytes) {
+      return;
+    }
+
+    if (buffer.capacity() < bytes) {
+      buffer = ByteBuffer.allocateDirect(bytes).put(buffer).flip();
+    }
+
+    buffer.compact();
+    while (buffer.position() < bytes) {
+      if (channel.read(buffer) < 0) {
+        throw new EOFException("the snapshot ended before the table was restored");
+      }
+    }
+    buffer.flip();
+  }
+}
@@ -0,0 +1,109 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes the arrays of a table to a channel in large sequential chunks, through a single direct buffer.
+ *
+ * <p>
+ * Primitive arrays are bulk copied into the buffer a chunk at a time, so writing one costs little more than the write
+ * to the channel. Keys and values held as objects are written by a {@link SlotCodec}, each preceded by its size.
+ * </p>
+ */
+final class SnapshotWriter {
+
+  /**
+   * The size of a null object, which has no bytes.
+   */
+  static final int NULL_SIZE = -1;
+
+  private static final int CHUNK_SIZE = 1 << 20;
+
+  private final WritableByteChannel channel;
+  private ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+
+  SnapshotWriter(final WritableByteChannel channel) {
+    this.channel = channel;
+  }
+
+  void writeInt(final int value) throws IOException {
+
+    ensureRemaining(Integer.BYTES);
+    buffer.putInt(value);
+  }
+
+  void writeByte(final byte value) throws IOException {
+
+    ensureRemaining(1);
+    buffer.put(value);
+  }
+
+  void writeBytes(final byte[] values) throws IOException {
+
+    for (int offset = 0; offset < values.length; ) {
+      ensureRemaining(1);
+      final var length = Math.min(buffer.remaining(), values.length - offset);
+      buffer.put(values, offset, length);
+      offset += length;
+    }
+  }
+
+  void writeInts(final int[] values) throws IOException {
+
+    for (int offset = 0; offset < values.length; ) {
+      ensureRemaining(Integer.BYTES);
+      final var length = Math.min(buffer.remaining() / Integer.BYTES, values.length - offset);
+      buffer.asIntBuffer().put(values, offset, length);
+      buffer.position(buffer.position() + length * Integer.BYTES);
+      offset += length;
+    }
+  }
+
+  void writeLongs(final long[] values) throws IOException {
+
+    for (int offset = 0; offset < values.length; ) {
+      ensureRemaining(Long.BYTES);
+      final var length = Math.min(buffer.remaining() / Long.BYTES, values.length - offset);
+      buffer.asLongBuffer().put(values, offset, length);
+      buffer.position(buffer.position() + length * Long.BYTES);
+      offset += length;
+    }
+  }
+
+  <T> void writeObject(final T value, final SlotCodec<T> codec) throws IOException {
+
+    if (value == null) {
+      writeInt(NULL_SIZE);
+      return;
+    }
+
+    final var size = codec.size(value);
+    ensureRemaining(Integer.BYTES + size);
+    buffer.putInt(size);
+    final var start = buffer.position();
+    codec.write(value, buffer);
+    assert buffer.position() - start == size : "the codec must write the size it reports";
+  }
+
+  void flush() throws IOException {
+
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  // writes out what is buffered when fewer than the bytes remain, and grows the buffer for an object larger than it
+  private void ensureRemaining(final int bytes) throws IOException {
+
+    if (buffer.remaining() < bytes) {
+      flush();
+      if (buffer.capacity() < bytes) {
+        buffer = ByteBuffer.allocateDirect(bytes);
+      }
+    }
+  }
+}
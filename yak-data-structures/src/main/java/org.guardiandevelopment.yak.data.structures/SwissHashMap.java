@@ -0,0 +1,238 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Provides a fixed size HashMap implementation in the style of a Swiss table, where probing is done on a separate
+ * array of control bytes, 8 at a time.
+ *
+ * <p>
+ * Locations are split into groups of 8. Every location has a control byte, holding either 7 bits of the hash of its
+ * key, or a marker for an empty or deleted location. A search reads the 8 control bytes of a group as a single long,
+ * and finds every location in the group whose control byte matches the key with a few bitwise operations, so
+ * {@link Object#equals(Object)} is only called on keys whose hash bits match, rather than on every key passed. A
+ * search stops at the first group holding an empty location, and otherwise moves on to the next group of a triangular
+ * sequence, which visits every group once.
+ * </p>
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the value
+ */
+public final class SwissHashMap<K, V> implements FixedSizeMap<K, V> {
+
+  private static final VarHandle CONTROL_GROUPS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+  private static final int GROUP_WIDTH = Long.BYTES;
+  private static final int GROUP_SHIFT = 3;
+
+  // a full location holds the 7 lowest bits of the hash of its key, so its highest bit is never set
+  private static final byte EMPTY = (byte) 0b1000_0000;
+  private static final byte DELETED = (byte) 0b1111_1110;
+
+  private static final long LOWEST_BITS = 0x0101_0101_0101_0101L;
+  private static final long HIGHEST_BITS = 0x8080_8080_8080_8080L;
+
+  private final byte[] controls;
+  private final Object[] keys;
+  private final Object[] values;
+  private final int groupMask;
+  private int size;
+  private int tombstones;
+
+  /**
+   * Creates a hash map of the fixedSize.
+   *
+   * <p>
+   * The fixed size must be a power of 2, and at least the 8 locations of a single group.
+   * </p>
+   *
+   * @param fixedSize the size of the hash map
+   */
+  public SwissHashMap(final int fixedSize) {
+
+    assert IntegerExtensions.isPowerOf2(fixedSize) && fixedSize >= GROUP_WIDTH
+        : "the size of the hashmap must be a power of 2, of at least " + GROUP_WIDTH;
+
+    this.controls = new byte[fixedSize];
+    this.keys = new Object[fixedSize];
+    this.values = new Object[fixedSize];
+    this.groupMask = (fixedSize >>> GROUP_SHIFT) - 1;
+    Arrays.fill(controls, EMPTY);
+  }
+
+  @Override
+  public V get(final K key) {
+
+    final var location = locate(key);
+    return location == OpenAddressingIndex.NO_SLOT ? null : valueAt(location);
+  }
+
+  /**
+   * Puts a key into the hash map.
+   *
+   * @param key   the key to assign the value to
+   * @param value the value to insert
+   * @return the old value, or null
+   * @throws RuntimeException if there is no further room in the hash map for the value
+   */
+  @Override
+  public V put(final K key, final V value) {
+
+    if (key == null) {
+      return null;
+    }
+
+    final var hash = hash(key);
+    final var fingerprint = fingerprint(hash);
+    var group = (hash >>> 7) & groupMask;
+    var nextViableInsertLocation = OpenAddressingIndex.NO_SLOT;
+
+    for (int step = 1; step <= groupMask + 1; step++) {
+      final var base = group << GROUP_SHIFT;
+      final var controlGroup = (long) CONTROL_GROUPS.get(controls, base);
+
+      // check every location of the group holding the same hash bits as the key
+      for (var matches = match(controlGroup, fingerprint); matches != 0; matches &= matches - 1) {
+        final var location = base + (Long.numberOfTrailingZeros(matches) >>> GROUP_SHIFT);
+        if (key.equals(keys[location])) {
+          final var old = valueAt(location);
+          values[location] = value;
+          return old;
+        }
+      }
+
+      // remember the first empty or deleted location we find, as the place to insert if the key is not present
+      final var free = controlGroup & HIGHEST_BITS;
+      if (nextViableInsertLocation == OpenAddressingIndex.NO_SLOT && free != 0) {
+        nextViableInsertLocation = base + (Long.numberOfTrailingZeros(free) >>> GROUP_SHIFT);
+      }
+
+      // a group with an empty location was never full, so no key can have been placed past it
+      if (matchEmpty(controlGroup) != 0) {
+        break;
+      }
+
+      group = (group + step) & groupMask;
+    }
+
+    if (nextViableInsertLocation == OpenAddressingIndex.NO_SLOT) {
+      throw new RuntimeException("hash map is full");
+    }
+
+    if (controls[nextViableInsertLocation] == DELETED) {
+      tombstones--;
+    }
+    controls[nextViableInsertLocation] = fingerprint;
+    keys[nextViableInsertLocation] = key;
+    values[nextViableInsertLocation] = value;
+    size++;
+    return null;
+  }
+
+  @Override
+  public V delete(final K key) {
+
+    final var location = locate(key);
+    if (location == OpenAddressingIndex.NO_SLOT) {
+      return null;
+    }
+
+    final var old = valueAt(location);
+    keys[location] = null;
+    values[location] = null;
+    size--;
+
+    // a group still holding an empty location has never been full, so no search continues past it, and the location
+    // can be marked empty rather than deleted
+    final var base = location & ~(GROUP_WIDTH - 1);
+    if (matchEmpty((long) CONTROL_GROUPS.get(controls, base)) != 0) {
+      controls[location] = EMPTY;
+    } else {
+      controls[location] = DELETED;
+      tombstones++;
+    }
+    return old;
+  }
+
+  /**
+   * The number of keys in the hash map.
+   *
+   * @return the number of keys
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * The number of deleted markers held by the hash map.
+   *
+   * @return the number of deleted markers
+   */
+  public int tombstones() {
+    return tombstones;
+  }
+
+  private int locate(final K key) {
+
+    if (key == null) {
+      return OpenAddressingIndex.NO_SLOT;
+    }
+
+    final var hash = hash(key);
+    final var fingerprint = fingerprint(hash);
+    var group = (hash >>> 7) & groupMask;
+
+    for (int step = 1; step <= groupMask + 1; step++) {
+      final var base = group << GROUP_SHIFT;
+      final var controlGroup = (long) CONTROL_GROUPS.get(controls, base);
+
+      // check every location of the group holding the same hash bits as the key
+      for (var matches = match(controlGroup, fingerprint); matches != 0; matches &= matches - 1) {
+        final var location = base + (Long.numberOfTrailingZeros(matches) >>> GROUP_SHIFT);
+        if (key.equals(keys[location])) {
+          return location;
+        }
+      }
+
+      // if the group has an empty location, key cant be present
+      if (matchEmpty(controlGroup) != 0) {
+        return OpenAddressingIndex.NO_SLOT;
+      }
+
+      group = (group + step) & groupMask;
+    }
+
+    return OpenAddressingIndex.NO_SLOT;
+  }
+
+  @SuppressWarnings("unchecked")
+  private V valueAt(final int location) {
+    return (V) values[location];
+  }
+
+  // sets the highest bit of every byte equal to the fingerprint, a byte just above a match may also be set, which
+  // only costs an extra equals, as the key at that location differs
+  private static long match(final long controlGroup, final byte fingerprint) {
+
+    final var difference = controlGroup ^ (LOWEST_BITS * fingerprint);
+    return (difference - LOWEST_BITS) & ~difference & HIGHEST_BITS;
+  }
+
+  // sets the highest bit of every empty byte, the only control byte with its highest bit set and its second bit clear
+  private static long matchEmpty(final long controlGroup) {
+    return controlGroup & (~controlGroup << 6) & HIGHEST_BITS;
+  }
+
+  private static byte fingerprint(final int hash) {
+    return (byte) (hash & 0x7F);
+  }
+
+  // the lowest bits become the fingerprint and the bits above them the group, so spread every bit of the hash code
+  private static int hash(final Object key) {
+
+    final var hash = key.hashCode() * 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+}
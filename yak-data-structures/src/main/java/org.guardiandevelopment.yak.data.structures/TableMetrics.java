@@ -0,0 +1,156 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Counts the operations of a table, and the number of locations each probe examined, so the health of a running table
+ * can be watched.
+ *
+ * <p>
+ * A table only records metrics once they are enabled, until then it holds no metrics and each operation pays a single
+ * null check. The counters are {@link LongAdder}s, so recording never contends, and a snapshot or JMX reader never
+ * blocks a writer. The number of keys and deleted markers are read from the table, which already maintains them.
+ * </p>
+ * <p>
+ * Probe lengths are counted in buckets of powers of 2: 1 location, 2, 3 to 4, 5 to 8, and so on up to
+ * {@value #PROBE_LENGTH_BUCKETS} buckets, the last counting every longer probe. A histogram drifting into the higher
+ * buckets warns of probe chains degrading before lookups slow noticeably.
+ * </p>
+ */
+public final class TableMetrics implements TableMetricsMXBean {
+
+  /**
+   * The number of buckets of the probe length histogram.
+   */
+  public static final int PROBE_LENGTH_BUCKETS = 8;
+
+  private final LongAdder hits = new LongAdder();
+  private final LongAdder misses = new LongAdder();
+  private final LongAdder puts = new LongAdder();
+  private final LongAdder deletes = new LongAdder();
+  private final LongAdder failures = new LongAdder();
+  private final LongAdder[] probeLengths = new LongAdder[PROBE_LENGTH_BUCKETS];
+  private final IntSupplier size;
+  private final IntSupplier tombstones;
+  private final IntSupplier capacity;
+
+  TableMetrics(final IntSupplier size, final IntSupplier tombstones, final IntSupplier capacity) {
+
+    for (int i = 0; i < PROBE_LENGTH_BUCKETS; i++) {
+      probeLengths[i] = new LongAdder();
+    }
+    this.size = size;
+    this.tombstones = tombstones;
+    this.capacity = capacity;
+  }
+
+  /**
+   * The bucket of the probe length histogram counting probes of the length.
+   *
+   * @param probeLength the number of locations examined, at least 1
+   * @return the bucket, the ceiling of log2 of the length, at most {@link #PROBE_LENGTH_BUCKETS} - 1
+   */
+  public static int probeLengthBucket(final int probeLength) {
+    return Math.min(PROBE_LENGTH_BUCKETS - 1, Integer.SIZE - Integer.numberOfLeadingZeros(probeLength - 1));
+  }
+
+  /**
+   * Reads every metric of the table.
+   *
+   * @return the metrics of the table
+   */
+  public TableMetricsSnapshot snapshot() {
+
+    return new TableMetricsSnapshot(
+        getHits(), getMisses(), getPuts(), getDeletes(), getFailures(), getProbeLengthHistogram(),
+        getSize(), getTombstones(), getCapacity());
+  }
+
+  /**
+   * Registers the metrics with the platform MBean server, under the type TableMetrics and the name.
+   *
+   * @param name distinguishes the table from any other registered
+   * @return the name registered, to unregister with once the table is discarded
+   * @throws JMException if the name is malformed, or already registered
+   */
+  public ObjectName register(final String name) throws JMException {
+
+    final var objectName = new ObjectName("org.guardiandevelopment.yak:type=TableMetrics,name=" + ObjectName.quote(name));
+    ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+    return objectName;
+  }
+
+  @Override
+  public long getHits() {
+    return hits.sum();
+  }
+
+  @Override
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  @Override
+  public long getPuts() {
+    return puts.sum();
+  }
+
+  @Override
+  public long getDeletes() {
+    return deletes.sum();
+  }
+
+  @Override
+  public long getFailures() {
+    return failures.sum();
+  }
+
+  @Override
+  public long[] getProbeLengthHistogram() {
+
+    final var histogram = new long[PROBE_LENGTH_BUCKETS];
+    for (int i = 0; i < PROBE_LENGTH_BUCKETS; i++) {
+      histogram[i] = probeLengths[i].sum();
+    }
+    return histogram;
+  }
+
+  @Override
+  public int getSize() {
+    return size.getAsInt();
+  }
+
+  @Override
+  public int getTombstones() {
+    return tombstones.getAsInt();
+  }
+
+  @Override
+  public int getCapacity() {
+    return capacity.getAsInt();
+  }
+
+  void recordSearch(final boolean hit) {
+    (hit ? hits : misses).increment();
+  }
+
+  void recordPut() {
+    puts.increment();
+  }
+
+  void recordDelete() {
+    deletes.increment();
+  }
+
+  void recordFailure() {
+    failures.increment();
+  }
+
+  void recordProbeLength(final int probeLength) {
+    probeLengths[probeLengthBucket(probeLength)].increment();
+  }
+}
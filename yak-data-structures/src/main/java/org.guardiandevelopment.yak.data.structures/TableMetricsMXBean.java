@@ -0,0 +1,73 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import javax.management.MXBean;
+
+/**
+ * The JMX view of the {@link TableMetrics} of a table, each attribute read as it is requested.
+ */
+@MXBean
+public interface TableMetricsMXBean {
+
+  /**
+   * The number of searches that found their key.
+   *
+   * @return the number of hits
+   */
+  long getHits();
+
+  /**
+   * The number of searches that did not find their key.
+   *
+   * @return the number of misses
+   */
+  long getMisses();
+
+  /**
+   * The number of keys put, or assigned a location, whether new or already present.
+   *
+   * @return the number of puts
+   */
+  long getPuts();
+
+  /**
+   * The number of keys deleted, not counting deletes of keys that were not present.
+   *
+   * @return the number of deletes
+   */
+  long getDeletes();
+
+  /**
+   * The number of puts that failed as the table was full.
+   *
+   * @return the number of failed puts
+   */
+  long getFailures();
+
+  /**
+   * The number of probes by the number of locations examined, see {@link TableMetrics#probeLengthBucket(int)}.
+   *
+   * @return the probe length histogram
+   */
+  long[] getProbeLengthHistogram();
+
+  /**
+   * The number of keys held.
+   *
+   * @return the number of keys
+   */
+  int getSize();
+
+  /**
+   * The number of deleted markers held.
+   *
+   * @return the number of deleted markers
+   */
+  int getTombstones();
+
+  /**
+   * The number of locations of the table.
+   *
+   * @return the number of locations
+   */
+  int getCapacity();
+}
@@ -0,0 +1,51 @@
+package org.guardiandevelopment.yak.data.structures;
+
+/**
+ * The {@link TableMetrics} of a table at a point in time.
+ *
+ * <p>
+ * Each value is read separately while the table may still be in use, so the values are not guaranteed to agree with
+ * each other exactly, only to each be a value the table held during the snapshot.
+ * </p>
+ *
+ * @param hits                 the number of searches that found their key
+ * @param misses               the number of searches that did not find their key
+ * @param puts                 the number of keys put, or assigned a location
+ * @param deletes              the number of keys deleted
+ * @param failures             the number of puts that failed as the table was full
+ * @param probeLengthHistogram the number of probes by the number of locations examined
+ * @param size                 the number of keys held
+ * @param tombstones           the number of deleted markers held
+ * @param capacity             the number of locations of the table
+ */
+public record TableMetricsSnapshot(
+    long hits,
+    long misses,
+    long puts,
+    long deletes,
+    long failures,
+    long[] probeLengthHistogram,
+    int size,
+    int tombstones,
+    int capacity) {
+
+  /**
+   * The fraction of the locations holding a key.
+   *
+   * @return the occupancy, between 0 and 1
+   */
+  public double occupancy() {
+    return (double) size / capacity;
+  }
+
+  /**
+   * The fraction of searches that found their key.
+   *
+   * @return the hit ratio, or 0 if there have been no searches
+   */
+  public double hitRatio() {
+
+    final var searches = hits + misses;
+    return searches == 0 ? 0 : (double) hits / searches;
+  }
+}
@@ -0,0 +1,42 @@
+package org.guardiandevelopment.yak.data.structures;
+
+/**
+ * Admits a candidate only if it has been seen more often than the victim it would evict.
+ *
+ * <p>
+ * Frequencies are estimated by a {@link FrequencySketch}, so a key seen once, such as one read by a scan, cannot
+ * displace a key that is read repeatedly.
+ * </p>
+ *
+ * @param <K> the type of the key
+ */
+public final class TinyLfuAdmissionPolicy<K> implements AdmissionPolicy<K> {
+
+  private final FrequencySketch sketch;
+
+  /**
+   * Creates a policy whose sketch is sized for the number of keys expected to be tracked.
+   *
+   * @param expectedSize the number of distinct keys to distinguish, typically the cache capacity
+   */
+  public TinyLfuAdmissionPolicy(final int expectedSize) {
+
+    this.sketch = new FrequencySketch(expectedSize);
+  }
+
+  /**
+   * Records an access of the key, to be called on every read and write of the table the policy guards.
+   *
+   * @param key the key accessed
+   */
+  public void recordAccess(final K key) {
+
+    sketch.increment(key.hashCode());
+  }
+
+  @Override
+  public boolean admit(final K candidate, final K victim) {
+
+    return sketch.frequency(candidate.hashCode()) > sketch.frequency(victim.hashCode());
+  }
+}
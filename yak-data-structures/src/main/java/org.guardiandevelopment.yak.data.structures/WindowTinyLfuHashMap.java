@@ -0,0 +1,118 @@
+package org.guardiandevelopment.yak.data.structures;
+
+/**
+ * Provides a fixed size cache that keeps frequently used entries through bursts of keys that are only seen once, using
+ * the W-TinyLFU policy.
+ *
+ * <p>
+ * New entries are put into a small window {@link OpenAddressingHashMap}, which admits everything and evicts with
+ * {@link EvictionPolicy#CLOCK}. An entry evicted from the window becomes a candidate for the main
+ * {@link OpenAddressingHashMap}, which admits it over its own CLOCK victim only if a {@link FrequencySketch} estimates
+ * the candidate has been accessed more often. A scan therefore churns through the window, but cannot flush the hot
+ * entries out of the main map.
+ * </p>
+ * <p>
+ * Null values are not supported, as a null value cannot be told apart from an absent key.
+ * </p>
+ *
+ * @param <K> the type of the key
+ * @param <V> the type of the value
+ */
+public final class WindowTinyLfuHashMap<K, V> implements FixedSizeMap<K, V> {
+
+  private final TinyLfuAdmissionPolicy<K> admissionPolicy;
+  private final OpenAddressingHashMap<K, V> main;
+  private final OpenAddressingHashMap<K, V> window;
+
+  /**
+   * Creates a cache holding up to mainSize + windowSize entries.
+   *
+   * <p>
+   * Both sizes must be a power of 2. A window of around 1% of the main size suits most workloads, a larger window
+   * favours recently used entries over frequently used ones.
+   * </p>
+   *
+   * @param mainSize   the size of the main map
+   * @param windowSize the size of the window map, at least 2
+   */
+  public WindowTinyLfuHashMap(final int mainSize, final int windowSize) {
+
+    this(mainSize, windowSize, (key, value) -> {
+    });
+  }
+
+  /**
+   * Creates a cache holding up to mainSize + windowSize entries, notifying the listener of every entry that leaves
+   * the cache.
+   *
+   * @param mainSize         the size of the main map
+   * @param windowSize       the size of the window map, at least 2
+   * @param evictionListener notified of every entry evicted from the cache, or refused admission to the main map
+   */
+  public WindowTinyLfuHashMap(final int mainSize, final int windowSize, final EvictionListener<K, V> evictionListener) {
+
+    assert windowSize >= 2 : "the window must hold at least 2 entries";
+
+    this.admissionPolicy = new TinyLfuAdmissionPolicy<>(mainSize + windowSize);
+    this.main = new OpenAddressingHashMap<>(mainSize, EvictionPolicy.CLOCK, admissionPolicy, evictionListener);
+    this.window = new OpenAddressingHashMap<>(windowSize, EvictionPolicy.CLOCK, (candidate, victim) -> true, main::put);
+  }
+
+  /**
+   * Searches for the value associated with the key, recording the access.
+   *
+   * @param key the key to search for
+   * @return the value if the key exists, else null
+   */
+  @Override
+  public V get(final K key) {
+
+    if (key == null) {
+      return null;
+    }
+
+    admissionPolicy.recordAccess(key);
+
+    final var inWindow = window.get(key);
+    return inWindow != null ? inWindow : main.get(key);
+  }
+
+  /**
+   * Puts a key into the cache, recording the access.
+   *
+   * <p>
+   * A key already held by the main map is updated in place, any other key is put into the window.
+   * </p>
+   *
+   * @param key   the key to assign the value to
+   * @param value the value to insert, must not be null
+   * @return the old value, or null
+   */
+  @Override
+  public V put(final K key, final V value) {
+
+    if (key == null) {
+      return null;
+    }
+
+    admissionPolicy.recordAccess(key);
+
+    if (main.get(key) != null) {
+      return main.put(key, value);
+    }
+    return window.put(key, value);
+  }
+
+  /**
+   * Deletes the value currently associated with the key.
+   *
+   * @param key the key to remove
+   * @return the old value, or null
+   */
+  @Override
+  public V delete(final K key) {
+
+    final var inWindow = window.delete(key);
+    return inWindow != null ? inWindow : main.delete(key);
+  }
+}
@@ -0,0 +1,148 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * The 32 bit variant of xxHash, reading 16 bytes per round as 4 little endian ints, from an array or a buffer.
+ */
+final class XxHash32 {
+
+  private static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+  private static final int PRIME1 = 0x9E3779B1;
+  private static final int PRIME2 = 0x85EBCA77;
+  private static final int PRIME3 = 0xC2B2AE3D;
+  private static final int PRIME4 = 0x27D4EB2F;
+  private static final int PRIME5 = 0x165667B1;
+
+  private XxHash32() {
+  }
+
+  /**
+   * Hashes the range of the bytes, with a seed of 0.
+   *
+   * @param bytes  the bytes to hash
+   * @param offset the first byte of the range
+   * @param length the number of bytes in the range
+   * @return the hash of the range
+   */
+  static int hash(final byte[] bytes, final int offset, final int length) {
+
+    final var end = offset + length;
+    var position = offset;
+    int hash;
+
+    if (length >= 16) {
+      var v1 = PRIME1 + PRIME2;
+      var v2 = PRIME2;
+      var v3 = 0;
+      var v4 = -PRIME1;
+      final var limit = end - 16;
+      do {
+        v1 = round(v1, (int) INTS.get(bytes, position));
+        v2 = round(v2, (int) INTS.get(bytes, position + 4));
+        v3 = round(v3, (int) INTS.get(bytes, position + 8));
+        v4 = round(v4, (int) INTS.get(bytes, position + 12));
+        position += 16;
+      } while (position <= limit);
+      hash = Integer.rotateLeft(v1, 1) + Integer.rotateLeft(v2, 7) + Integer.rotateLeft(v3, 12) + Integer.rotateLeft(v4, 18);
+    } else {
+      hash = PRIME5;
+    }
+
+    hash += length;
+
+    while (position + 4 <= end) {
+      hash = Integer.rotateLeft(hash + (int) INTS.get(bytes, position) * PRIME3, 17) * PRIME4;
+      position += 4;
+    }
+
+    while (position < end) {
+      hash = Integer.rotateLeft(hash + (bytes[position] & 0xFF) * PRIME5, 11) * PRIME1;
+      position++;
+    }
+
+    return avalanche(hash);
+  }
+
+  /**
+   * Hashes the range of the buffer, with a seed of 0, giving the same hash as the same bytes held in an array.
+   *
+   * <p>
+   * Reads by absolute index, so the position and limit of the buffer are left untouched.
+   * </p>
+   *
+   * @param buffer the bytes to hash
+   * @param offset the index of the first byte of the range
+   * @param length the number of bytes in the range
+   * @return the hash of the range
+   */
+  static int hash(final ByteBuffer buffer, final int offset, final int length) {
+
+    if (buffer.hasArray()) {
+      return hash(buffer.array(), buffer.arrayOffset() + offset, length);
+    }
+
+    final var bigEndian = buffer.order() == ByteOrder.BIG_ENDIAN;
+    final var end = offset + length;
+    var position = offset;
+    int hash;
+
+    if (length >= 16) {
+      var v1 = PRIME1 + PRIME2;
+      var v2 = PRIME2;
+      var v3 = 0;
+      var v4 = -PRIME1;
+      final var limit = end - 16;
+      do {
+        v1 = round(v1, intAt(buffer, position, bigEndian));
+        v2 = round(v2, intAt(buffer, position + 4, bigEndian));
+        v3 = round(v3, intAt(buffer, position + 8, bigEndian));
+        v4 = round(v4, intAt(buffer, position + 12, bigEndian));
+        position += 16;
+      } while (position <= limit);
+      hash = Integer.rotateLeft(v1, 1) + Integer.rotateLeft(v2, 7) + Integer.rotateLeft(v3, 12) + Integer.rotateLeft(v4, 18);
+    } else {
+      hash = PRIME5;
+    }
+
+    hash += length;
+
+    while (position + 4 <= end) {
+      hash = Integer.rotateLeft(hash + intAt(buffer, position, bigEndian) * PRIME3, 17) * PRIME4;
+      position += 4;
+    }
+
+    while (position < end) {
+      hash = Integer.rotateLeft(hash + (buffer.get(position) & 0xFF) * PRIME5, 11) * PRIME1;
+      position++;
+    }
+
+    return avalanche(hash);
+  }
+
+  // the hash reads little endian lanes whatever the order of the buffer
+  private static int intAt(final ByteBuffer buffer, final int index, final boolean bigEndian) {
+
+    final var lane = buffer.getInt(index);
+    return bigEndian ? Integer.reverseBytes(lane) : lane;
+  }
+
+  private static int round(final int accumulator, final int lane) {
+    return Integer.rotateLeft(accumulator + lane * PRIME2, 13) * PRIME1;
+  }
+
+  private static int avalanche(final int accumulated) {
+
+    var hash = accumulated;
+    hash ^= hash >>> 15;
+    hash *= PRIME2;
+    hash ^= hash >>> 13;
+    hash *= PRIME3;
+    hash ^= hash >>> 16;
+    return hash;
+  }
+}
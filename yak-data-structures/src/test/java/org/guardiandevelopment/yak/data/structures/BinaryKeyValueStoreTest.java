@@ -0,0 +1,70 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+class BinaryKeyValueStoreTest {
+
+  @Test
+  void shouldCopyValueOfKeyHeldInDirectBufferIntoDestination() {
+    // Arrange
+    final var underTest = new BinaryKeyValueStore(16, Long.BYTES, Long.BYTES);
+    final var request = ByteBuffer.allocateDirect(32).putLong(4, 7L).putLong(12, 42L).position(12);
+    underTest.put(request, 4, request);
+
+    // Act
+    final var dst = ByteBuffer.allocateDirect(Long.BYTES);
+    final var found = underTest.get(request, 4, dst);
+
+    // Assert
+    assertThat(found).isTrue();
+    assertThat(dst.getLong(0)).isEqualTo(42L);
+    assertThat(request.position()).isEqualTo(20);
+  }
+
+  @Test
+  void shouldReportWhetherKeyWasPresentWhenDeleting() {
+    // Arrange
+    final var underTest = new BinaryKeyValueStore(16, Long.BYTES, Long.BYTES);
+    final var key = ByteBuffer.allocate(Long.BYTES).putLong(0, 7L);
+    underTest.put(key, 0, ByteBuffer.allocate(Long.BYTES));
+
+    // Act, Assert
+    assertThat(underTest.delete(key, 0)).isTrue();
+    assertThat(underTest.delete(key, 0)).isFalse();
+    assertThat(underTest.get(key, 0, ByteBuffer.allocate(Long.BYTES))).isFalse();
+  }
+
+  @Test
+  void shouldKeepSearchesShortUnderDeleteChurnOnceNoLocationIsLeftEmpty() {
+    // Arrange - half of the locations hold keys, while every location is in turn assigned and deleted
+    final var underTest = new BinaryKeyValueStore(1024, Long.BYTES, Long.BYTES);
+    final var key = ByteBuffer.allocate(Long.BYTES);
+    final var value = ByteBuffer.allocate(Long.BYTES);
+    final var live = 512;
+    for (long i = 0; i < 200_000; i++) {
+      underTest.put(key.putLong(0, i), 0, value.clear());
+      if (i >= live) {
+        underTest.delete(key.putLong(0, i - live), 0);
+      }
+    }
+
+    // Act
+    var misses = 0;
+    for (long i = 0; i < 10_000; i++) {
+      if (!underTest.get(key.putLong(0, -1 - i), 0, value.clear())) {
+        misses++;
+      }
+    }
+
+    // Assert
+    assertThat(misses).isEqualTo(10_000);
+    assertThat(underTest.longestProbe()).isLessThan(64);
+    for (long i = 200_000 - live; i < 200_000; i++) {
+      assertThat(underTest.get(key.putLong(0, i), 0, value.clear())).isTrue();
+    }
+    assertThat(underTest.get(key.putLong(0, 200_000 - live - 1), 0, value.clear())).isFalse();
+  }
+}
@@ -0,0 +1,139 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import org.junit.jupiter.api.Test;
+
+class BinaryOpenAddressingIndexTest {
+
+  @Test
+  void shouldFindKeyAssignedFromArrayWhenSearchingFromOffset() {
+    // Arrange
+    final var underTest = new BinaryOpenAddressingIndex(16, 10);
+    final var request = "GET key-000042 HTTP".getBytes(StandardCharsets.US_ASCII);
+    final var location = underTest.getExistingOrAssign("key-000042".getBytes(StandardCharsets.US_ASCII), 0);
+
+    // Act
+    final var found = underTest.get(request, 4);
+
+    // Assert
+    assertThat(found).isEqualTo(location);
+    assertThat(underTest.get(request, 3)).isEqualTo(BinaryOpenAddressingIndex.NO_SLOT);
+  }
+
+  @Test
+  void shouldFindKeyHeldInHeapAndDirectBuffersOfEitherOrder() {
+    // Arrange - 20 bytes, so both the 8 byte and the single byte comparisons are used
+    final var underTest = new BinaryOpenAddressingIndex(16, 20);
+    final var key = "0123456789abcdefghij".getBytes(StandardCharsets.US_ASCII);
+    final var location = underTest.getExistingOrAssign(key, 0);
+
+    final var heap = ByteBuffer.allocate(32).put(3, key);
+    final var bigEndian = ByteBuffer.allocateDirect(32).put(3, key);
+    final var littleEndian = ByteBuffer.allocateDirect(32).order(ByteOrder.LITTLE_ENDIAN).put(3, key);
+
+    // Act, Assert
+    assertThat(underTest.get(heap, 3)).isEqualTo(location);
+    assertThat(underTest.get(bigEndian, 3)).isEqualTo(location);
+    assertThat(underTest.get(littleEndian, 3)).isEqualTo(location);
+    assertThat(bigEndian.position()).isEqualTo(0);
+  }
+
+  @Test
+  void shouldAssignKeyHeldInDirectBuffer() {
+    // Arrange
+    final var underTest = new BinaryOpenAddressingIndex(16, 12);
+    final var key = "abcdefghijkl".getBytes(StandardCharsets.US_ASCII);
+    final var buffer = ByteBuffer.allocateDirect(16).put(4, key);
+
+    // Act
+    final var location = underTest.getExistingOrAssign(buffer, 4);
+
+    // Assert
+    final var copied = new byte[12];
+    underTest.copyKey(location, copied, 0);
+    assertThat(copied).isEqualTo(key);
+    assertThat(underTest.getExistingOrAssign(key, 0)).isEqualTo(location);
+  }
+
+  @Test
+  void shouldHashDirectBufferTheSameAsArray() {
+    // Arrange
+    final var key = "Nobody inspects the spammish repetition".getBytes(StandardCharsets.US_ASCII);
+    final var bigEndian = ByteBuffer.allocateDirect(key.length).put(0, key);
+    final var littleEndian = ByteBuffer.allocateDirect(key.length).order(ByteOrder.LITTLE_ENDIAN).put(0, key);
+
+    // Act, Assert
+    assertThat(XxHash32.hash(bigEndian, 0, key.length)).isEqualTo(0xe2293b2f);
+    assertThat(XxHash32.hash(littleEndian, 0, key.length)).isEqualTo(0xe2293b2f);
+  }
+
+  @Test
+  void shouldFillIndexToCapacityAndReportFullAfterwards() {
+    // Arrange
+    final var underTest = new BinaryOpenAddressingIndex(64, 8);
+    final var key = ByteBuffer.allocate(8);
+
+    // Act
+    for (long i = 0; i < 64; i++) {
+      assertThat(underTest.getExistingOrAssign(key.putLong(0, i), 0)).isNotEqualTo(BinaryOpenAddressingIndex.NO_SLOT);
+    }
+
+    // Assert
+    for (long i = 0; i < 64; i++) {
+      final var location = underTest.get(key.putLong(0, i), 0);
+      assertThat(key.getLong(0)).isEqualTo(i);
+      final var copied = ByteBuffer.allocate(8);
+      underTest.copyKey(location, copied.array(), 0);
+      assertThat(copied.getLong(0)).isEqualTo(i);
+    }
+    assertThat(underTest.getExistingOrAssign(key.putLong(0, 64), 0)).isEqualTo(BinaryOpenAddressingIndex.NO_SLOT);
+  }
+
+  @Test
+  void shouldReuseDeletedLocationOnceKeyDeleted() {
+    // Arrange
+    final var underTest = new BinaryOpenAddressingIndex(4, 8);
+    final var key = ByteBuffer.allocate(8);
+    for (long i = 0; i < 4; i++) {
+      underTest.getExistingOrAssign(key.putLong(0, i), 0);
+    }
+    final var deleted = underTest.get(key.putLong(0, 2), 0);
+
+    // Act
+    underTest.delete(key, 0);
+    final var location = underTest.getExistingOrAssign(key.putLong(0, 9), 0);
+
+    // Assert
+    assertThat(location).isEqualTo(deleted);
+    assertThat(underTest.get(key.putLong(0, 2), 0)).isEqualTo(BinaryOpenAddressingIndex.NO_SLOT);
+  }
+
+  @Test
+  void shouldRestoreEveryKeyToItsLocationFromSnapshot() throws IOException {
+    // Arrange
+    final var original = new BinaryOpenAddressingIndex(64, 8);
+    final var key = ByteBuffer.allocate(8);
+    for (long i = 0; i < 40; i++) {
+      original.getExistingOrAssign(key.putLong(0, i), 0);
+    }
+    final var bytes = new ByteArrayOutputStream();
+    original.snapshot(Channels.newChannel(bytes));
+    final var underTest = new BinaryOpenAddressingIndex(64, 8);
+
+    // Act
+    underTest.restore(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+
+    // Assert
+    for (long i = 0; i < 40; i++) {
+      assertThat(underTest.get(key.putLong(0, i), 0)).isEqualTo(original.get(key, 0));
+    }
+  }
+}
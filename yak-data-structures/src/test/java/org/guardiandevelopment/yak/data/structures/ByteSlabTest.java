@@ -0,0 +1,45 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+class ByteSlabTest {
+
+  @Test
+  void shouldFitLargestPowerOf2NumberOfSlotsIntoChunk() {
+    // Act - 100 / 12 = 8 slots
+    final var slotsPerChunk = ByteSlab.slotsPerChunk(64, 12, 100);
+
+    // Assert
+    assertThat(slotsPerChunk).isEqualTo(8);
+  }
+
+  @Test
+  void shouldNotHoldMoreSlotsPerChunkThanTotalSlots() {
+    // Act
+    final var slotsPerChunk = ByteSlab.slotsPerChunk(16, 8, Integer.MAX_VALUE);
+
+    // Assert
+    assertThat(slotsPerChunk).isEqualTo(16);
+  }
+
+  @Test
+  void shouldKeepSlotsIndependentAcrossChunks() {
+    // Arrange - 4 slots per chunk, 4 chunks
+    final var underTest = ByteSlab.allocateDirect(16, Long.BYTES, Long.BYTES * 4);
+
+    // Act
+    for (int slot = 0; slot < 16; slot++) {
+      underTest.copyIn(slot, ByteBuffer.allocate(Long.BYTES).putLong(0, slot * 10L));
+    }
+
+    // Assert
+    for (int slot = 0; slot < 16; slot++) {
+      final var dst = ByteBuffer.allocate(Long.BYTES);
+      underTest.copyOut(slot, dst);
+      assertThat(dst.getLong(0)).isEqualTo(slot * 10L);
+    }
+  }
+}
@@ -0,0 +1,133 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.ArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentOpenAddressingHashMapTest {
+
+  @Test
+  void shouldBeAbleToGetValueAssociatedWithKey() {
+    // Arrange
+    final var underTest = new ConcurrentOpenAddressingHashMap<Integer, String>(16, 4);
+
+    underTest.put(1, "test1");
+
+    // Act
+    final var result = underTest.get(1);
+
+    // Assert
+    assertThat(result).isEqualTo("test1");
+  }
+
+  @Test
+  void shouldReturnOldValueWhenReplacingKey() {
+    // Arrange
+    final var underTest = new ConcurrentOpenAddressingHashMap<Integer, String>(16, 4);
+
+    underTest.put(1, "test1");
+
+    // Act
+    final var old = underTest.put(1, "testNew1");
+
+    // Assert
+    assertThat(old).isEqualTo("test1");
+    assertThat(underTest.get(1)).isEqualTo("testNew1");
+  }
+
+  @Test
+  void shouldFindKeysWhoseProbePathCrossesIntoAnotherStripe() {
+    // Arrange - 1, 49 and 81 all start at location 1 of the first stripe, 49 is placed at location 4 and 81 at
+    // location 6, both in the second stripe
+    final var underTest = new ConcurrentOpenAddressingHashMap<Integer, String>(16, 4);
+
+    underTest.put(1, "test1");
+    underTest.put(49, "test49");
+    underTest.put(81, "test81");
+
+    // Act
+    final var old = underTest.delete(49);
+
+    // Assert
+    assertThat(old).isEqualTo("test49");
+    assertThat(underTest.get(1)).isEqualTo("test1");
+    assertThat(underTest.get(49)).isNull();
+    assertThat(underTest.get(81)).isEqualTo("test81");
+  }
+
+  @Test
+  void shouldReuseDeletedLocationWhenFull() {
+    // Arrange
+    final var underTest = new ConcurrentOpenAddressingHashMap<Integer, String>(4, 2);
+
+    for (int i = 0; i < 4; i++) {
+      underTest.put(i, "test" + i);
+    }
+    underTest.delete(2);
+
+    // Act
+    underTest.put(6, "test6");
+
+    // Assert
+    assertThat(underTest.get(6)).isEqualTo("test6");
+    assertThat(underTest.get(2)).isNull();
+    assertThatThrownBy(() -> underTest.put(10, "test10")).hasMessageContaining("hash map is full");
+  }
+
+  @Test
+  void shouldNeverReadValueOfAnotherKeyWhileWritersChurn() throws InterruptedException {
+    // Arrange - each writer owns a range of keys, flipping the value of every key between k and -k and deleting it,
+    // while readers check every value read belongs to the key read
+    final var underTest = new ConcurrentOpenAddressingHashMap<Integer, Integer>(1 << 10, 8);
+    final var writers = 4;
+    final var keysPerWriter = 150;
+    final var rounds = 200;
+    final var mismatches = new AtomicInteger();
+    final var writersDone = new CountDownLatch(writers);
+    final var threads = new ArrayList<Thread>();
+
+    for (int w = 0; w < writers; w++) {
+      final var first = w * keysPerWriter + 1;
+      threads.add(new Thread(() -> {
+        for (int round = 0; round < rounds; round++) {
+          for (int key = first; key < first + keysPerWriter; key++) {
+            underTest.put(key, round % 2 == 0 ? key : -key);
+            if ((key + round) % 3 == 0) {
+              underTest.delete(key);
+            }
+          }
+        }
+        writersDone.countDown();
+      }));
+    }
+    for (int r = 0; r < 2; r++) {
+      threads.add(new Thread(() -> {
+        while (writersDone.getCount() > 0) {
+          for (int key = 1; key <= writers * keysPerWriter; key++) {
+            final var value = underTest.get(key);
+            if (value != null && value != key && value != -key) {
+              mismatches.incrementAndGet();
+            }
+          }
+        }
+      }));
+    }
+
+    // Act
+    threads.forEach(Thread::start);
+    for (final var thread : threads) {
+      thread.join();
+    }
+
+    // Assert - the last round wrote -key, then deleted keys where (key + rounds - 1) % 3 == 0
+    assertThat(mismatches.get()).isEqualTo(0);
+    for (int key = 1; key <= writers * keysPerWriter; key++) {
+      final var expected = (key + rounds - 1) % 3 == 0 ? null : -key;
+      assertThat(underTest.get(key)).isEqualTo(expected);
+    }
+  }
+}
@@ -0,0 +1,146 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class CuckooHashMapTest {
+
+  @Test
+  void shouldBeAbleToGetValueAssociatedWithKey() {
+    // Arrange
+    final FixedSizeMap<String, String> underTest = new CuckooHashMap<>(8);
+
+    underTest.put("key1", "test1");
+
+    // Act
+    final var result = underTest.get("key1");
+
+    // Assert
+    assertThat(result).isEqualTo("test1");
+  }
+
+  @Test
+  void shouldReturnOldValueWhenReplacingKey() {
+    // Arrange
+    final var underTest = new CuckooHashMap<Integer, String>(8);
+
+    underTest.put(1, "test1");
+
+    // Act
+    final var old = underTest.put(1, "testNew1");
+
+    // Assert
+    assertThat(old).isEqualTo("test1");
+    assertThat(underTest.get(1)).isEqualTo("testNew1");
+    assertThat(underTest.size()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldKeepEveryKeyWhenKickingKeysToTheirOtherBucketNearlyFull() {
+    // Arrange
+    final var underTest = new CuckooHashMap<Integer, String>(1024);
+
+    // Act
+    var put = 0;
+    try {
+      while (put < 1024 + 8) {
+        underTest.put(put, "test" + put);
+        put++;
+      }
+    } catch (RuntimeException e) {
+      assertThat(e).hasMessage("hash map is full");
+    }
+
+    // Assert - a bucketized cuckoo table of 4 locations per bucket fills to over 90% before failing
+    assertThat(put).isGreaterThan(921);
+    assertThat(underTest.size()).isEqualTo(put);
+    for (int i = 0; i < put; i++) {
+      assertThat(underTest.get(i)).isEqualTo("test" + i);
+    }
+    assertThat(underTest.get(put)).isNull();
+  }
+
+  @Test
+  void shouldStashKeyWithBothBucketsFullAndMoveItBackOnceLocationIsEmptied() {
+    // Arrange - a single bucket, so both buckets of every key are the same 4 locations
+    final var underTest = new CuckooHashMap<Integer, String>(4);
+
+    for (int i = 0; i < 4; i++) {
+      underTest.put(i, "test" + i);
+    }
+
+    // Act
+    underTest.put(4, "test4");
+    final var stashedAfterPut = underTest.stashed();
+    final var stashedValue = underTest.get(4);
+    underTest.delete(0);
+
+    // Assert
+    assertThat(stashedAfterPut).isEqualTo(1);
+    assertThat(stashedValue).isEqualTo("test4");
+    assertThat(underTest.stashed()).isEqualTo(0);
+    assertThat(underTest.size()).isEqualTo(4);
+    for (int i = 1; i < 5; i++) {
+      assertThat(underTest.get(i)).isEqualTo("test" + i);
+    }
+  }
+
+  @Test
+  void shouldFailPutOnceStashIsFullAndLeaveEveryKey() {
+    // Arrange - the 4 locations of a single bucket and the 8 of the stash
+    final var underTest = new CuckooHashMap<Integer, String>(4);
+
+    for (int i = 0; i < 12; i++) {
+      underTest.put(i, "test" + i);
+    }
+
+    // Act, Assert
+    assertThatThrownBy(() -> underTest.put(12, "test12")).hasMessage("hash map is full");
+    assertThat(underTest.put(11, "testNew11")).isEqualTo("test11");
+    assertThat(underTest.delete(5)).isEqualTo("test5");
+    assertThat(underTest.delete(5)).isNull();
+    assertThat(underTest.size()).isEqualTo(11);
+    for (int i = 0; i < 11; i++) {
+      assertThat(underTest.get(i)).isEqualTo(i == 5 ? null : "test" + i);
+    }
+  }
+
+  @Test
+  void shouldOnlyCompareKeysOfTwoBucketsWhoseTagMatches() {
+    // Arrange
+    final var comparisons = new AtomicInteger();
+    final var underTest = new CuckooHashMap<CountingKey, String>(1024);
+
+    for (int i = 0; i < 900; i++) {
+      underTest.put(new CountingKey(i, comparisons), "test" + i);
+    }
+    comparisons.set(0);
+
+    // Act
+    for (int i = 900; i < 1900; i++) {
+      underTest.get(new CountingKey(i, comparisons));
+    }
+
+    // Assert - each miss examines at most 8 locations, of which only those with a matching tag are compared
+    assertThat(comparisons.get()).isLessThan(100);
+  }
+
+  private record CountingKey(int value, AtomicInteger comparisons) {
+
+    @Override
+    public boolean equals(Object o) {
+
+      comparisons.incrementAndGet();
+      return o instanceof CountingKey other && value == other.value;
+    }
+
+    @Override
+    public int hashCode() {
+
+      return value;
+    }
+  }
+}
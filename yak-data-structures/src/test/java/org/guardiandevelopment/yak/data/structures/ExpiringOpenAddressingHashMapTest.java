@@ -0,0 +1,111 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class ExpiringOpenAddressingHashMapTest {
+
+  private final AtomicLong clock = new AtomicLong(1_000);
+
+  @Test
+  void shouldBeAbleToGetValueBeforeItExpires() {
+    // Arrange
+    final var underTest = new ExpiringOpenAddressingHashMap<Integer, String>(4, EvictionPolicy.NONE, clock::get);
+
+    underTest.put(1, "test1", 100);
+    clock.addAndGet(99);
+
+    // Act
+    final var result = underTest.get(1);
+
+    // Assert
+    assertThat(result).isEqualTo("test1");
+  }
+
+  @Test
+  void shouldNotReturnValueOnceExpired() {
+    // Arrange
+    final var underTest = new ExpiringOpenAddressingHashMap<Integer, String>(4, EvictionPolicy.NONE, clock::get);
+
+    underTest.put(1, "test1", 100);
+    clock.addAndGet(100);
+
+    // Act
+    final var result = underTest.get(1);
+
+    // Assert
+    assertThat(result).isNull();
+  }
+
+  @Test
+  void shouldNeverExpireValuePutWithoutTimeToLive() {
+    // Arrange
+    final var underTest = new ExpiringOpenAddressingHashMap<Integer, String>(4, EvictionPolicy.NONE, clock::get);
+
+    underTest.put(1, "test1", 100);
+    underTest.put(1, "test2");
+    clock.addAndGet(1_000_000);
+    underTest.expire();
+
+    // Act
+    final var result = underTest.get(1);
+
+    // Assert
+    assertThat(result).isEqualTo("test2");
+  }
+
+  @Test
+  void shouldFreeLocationOfExpiredKeyForNewKey() {
+    // Arrange
+    final var underTest = new ExpiringOpenAddressingHashMap<Integer, String>(4, EvictionPolicy.NONE, clock::get);
+
+    underTest.put(0, "test0", 100);
+    underTest.put(1, "test1");
+    underTest.put(2, "test2");
+    underTest.put(3, "test3");
+    clock.addAndGet(100);
+
+    // Act - the map is full, until the expired key is removed
+    final var old = underTest.put(4, "test4", 100);
+
+    // Assert
+    assertThat(old).isNull();
+    assertThat(underTest.get(0)).isNull();
+    assertThat(underTest.get(4)).isEqualTo("test4");
+  }
+
+  @Test
+  void shouldReturnNullWhenDeletingExpiredKey() {
+    // Arrange
+    final var underTest = new ExpiringOpenAddressingHashMap<Integer, String>(4, EvictionPolicy.NONE, clock::get);
+
+    underTest.put(1, "test1", 100);
+    clock.addAndGet(150);
+
+    // Act
+    final var old = underTest.delete(1);
+
+    // Assert
+    assertThat(old).isNull();
+  }
+
+  @Test
+  void shouldNotExpireEntryOnceDeletedAndPutAgain() {
+    // Arrange
+    final var underTest = new ExpiringOpenAddressingHashMap<Integer, String>(4, EvictionPolicy.NONE, clock::get);
+
+    underTest.put(1, "test1", 100);
+    underTest.delete(1);
+    underTest.put(1, "test2", 500);
+    clock.addAndGet(200);
+    underTest.expire();
+
+    // Act
+    final var result = underTest.get(1);
+
+    // Assert
+    assertThat(result).isEqualTo("test2");
+  }
+}
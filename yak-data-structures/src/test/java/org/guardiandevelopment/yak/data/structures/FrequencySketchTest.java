@@ -0,0 +1,66 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class FrequencySketchTest {
+
+  @Test
+  void shouldEstimateZeroForHashNeverIncremented() {
+    // Arrange
+    final var underTest = new FrequencySketch(64);
+
+    // Act
+    final var frequency = underTest.frequency(42);
+
+    // Assert
+    assertThat(frequency).isEqualTo(0);
+  }
+
+  @Test
+  void shouldCountIncrementsOfHash() {
+    // Arrange
+    final var underTest = new FrequencySketch(64);
+
+    // Act
+    for (int i = 0; i < 5; i++) {
+      underTest.increment(42);
+    }
+
+    // Assert
+    assertThat(underTest.frequency(42)).isEqualTo(5);
+    assertThat(underTest.frequency(43)).isLessThanOrEqualTo(1);
+  }
+
+  @Test
+  void shouldSaturateAtFifteen() {
+    // Arrange
+    final var underTest = new FrequencySketch(64);
+
+    // Act
+    for (int i = 0; i < 100; i++) {
+      underTest.increment(42);
+    }
+
+    // Assert
+    assertThat(underTest.frequency(42)).isEqualTo(15);
+  }
+
+  @Test
+  void shouldHalveFrequenciesOnceSampleSizeReached() {
+    // Arrange - sample size is 10 * 16 = 160 increments
+    final var underTest = new FrequencySketch(16);
+    for (int i = 0; i < 8; i++) {
+      underTest.increment(42);
+    }
+
+    // Act
+    for (int i = 0; i < 160; i++) {
+      underTest.increment(1000 + i);
+    }
+
+    // Assert
+    assertThat(underTest.frequency(42)).isEqualTo(4);
+  }
+}
@@ -0,0 +1,58 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import org.junit.jupiter.api.Test;
+
+class HasherTest {
+
+  @Test
+  void shouldMatchReferenceXxHashOfBytes() {
+    // Arrange
+    final var hasher = Hasher.xxHash();
+
+    // Act
+    final var empty = hasher.hash(new byte[0]);
+    final var shortKey = hasher.hash("abc".getBytes(StandardCharsets.US_ASCII));
+    final var longKey = hasher.hash("Nobody inspects the spammish repetition".getBytes(StandardCharsets.US_ASCII));
+
+    // Assert - the reference xxHash32 values with a seed of 0
+    assertThat(empty).isEqualTo(0x02CC5D05);
+    assertThat(shortKey).isEqualTo(0x32D153FF);
+    assertThat(longKey).isEqualTo(0xE2293B2F);
+  }
+
+  @Test
+  void shouldCompareByteKeysByContent() {
+    // Arrange
+    final var underTest = new OpenAddressingIndex<byte[]>(16, Hasher.xxHash(), true);
+
+    final var location = underTest.getExistingOrAssign(new byte[] {1, 2, 3});
+
+    // Act
+    final var result = underTest.get(new byte[] {1, 2, 3});
+
+    // Assert
+    assertThat(result).isEqualTo(location);
+    assertThat(underTest.get(new byte[] {1, 2, 4})).isNull();
+  }
+
+  @Test
+  void shouldSpreadIdsSharingTheirLowBitsAcrossInitialLocations() {
+    // Arrange - ids that are all multiples of 64 share their lowest 6 bits, so the identity hash masks them all to 0
+    final var identity = new HashSet<Integer>();
+    final var murmur3 = new HashSet<Integer>();
+
+    // Act
+    for (int id = 0; id < 64 * 64; id += 64) {
+      identity.add(Hasher.<Integer>identity().hash(id) & 63);
+      murmur3.add(Hasher.<Integer>murmur3().hash(id) & 63);
+    }
+
+    // Assert
+    assertThat(identity).hasSize(1);
+    assertThat(murmur3.size()).isGreaterThan(32);
+  }
+}
@@ -0,0 +1,106 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import org.junit.jupiter.api.Test;
+
+class HierarchicalTimingWheelTest {
+
+  @Test
+  void shouldExpireLocationOnItsDeadline() {
+    // Arrange
+    final var expired = new ArrayList<Integer>();
+    final var underTest = new HierarchicalTimingWheel(8, 0);
+
+    underTest.schedule(1, 10);
+
+    // Act
+    underTest.advance(9, expired::add);
+    final var beforeDeadline = new ArrayList<>(expired);
+    underTest.advance(10, expired::add);
+
+    // Assert
+    assertThat(beforeDeadline).isEmpty();
+    assertThat(expired).containsExactly(1);
+    assertThat(underTest.deadline(1)).isEqualTo(HierarchicalTimingWheel.NEVER);
+  }
+
+  @Test
+  void shouldCascadeDeadlinesFarInTheFutureDownToTheirExactTick() {
+    // Arrange - deadlines on levels 1, 2 and 3 of the wheel
+    final var expired = new ArrayList<Integer>();
+    final var underTest = new HierarchicalTimingWheel(8, 100);
+
+    underTest.schedule(1, 100 + 64 * 3 + 5);
+    underTest.schedule(2, 100 + 4096 * 7 + 11);
+    underTest.schedule(3, 100 + 262_144 * 2 + 13);
+
+    // Act / Assert
+    underTest.advance(100 + 64 * 3 + 4, expired::add);
+    assertThat(expired).isEmpty();
+    underTest.advance(100 + 64 * 3 + 5, expired::add);
+    assertThat(expired).containsExactly(1);
+
+    underTest.advance(100 + 4096 * 7 + 10, expired::add);
+    assertThat(expired).containsExactly(1);
+    underTest.advance(100 + 4096 * 7 + 11, expired::add);
+    assertThat(expired).containsExactly(1, 2);
+
+    underTest.advance(100 + 262_144 * 2 + 12, expired::add);
+    assertThat(expired).containsExactly(1, 2);
+    underTest.advance(100 + 262_144 * 2 + 13, expired::add);
+    assertThat(expired).containsExactly(1, 2, 3);
+  }
+
+  @Test
+  void shouldNotExpireCancelledLocation() {
+    // Arrange
+    final var expired = new ArrayList<Integer>();
+    final var underTest = new HierarchicalTimingWheel(8, 0);
+
+    underTest.schedule(1, 10);
+    underTest.schedule(2, 10);
+    underTest.cancel(1);
+
+    // Act
+    underTest.advance(1000, expired::add);
+
+    // Assert
+    assertThat(expired).containsExactly(2);
+  }
+
+  @Test
+  void shouldExpireOverdueDeadlineOnNextTick() {
+    // Arrange
+    final var expired = new ArrayList<Integer>();
+    final var underTest = new HierarchicalTimingWheel(8, 50);
+
+    underTest.schedule(1, 10);
+
+    // Act
+    underTest.advance(51, expired::add);
+
+    // Assert
+    assertThat(expired).containsExactly(1);
+  }
+
+  @Test
+  void shouldReplaceExistingScheduleWhenRescheduled() {
+    // Arrange
+    final var expired = new ArrayList<Integer>();
+    final var underTest = new HierarchicalTimingWheel(8, 0);
+
+    underTest.schedule(1, 10);
+    underTest.schedule(1, 5000);
+
+    // Act
+    underTest.advance(4999, expired::add);
+    final var beforeDeadline = new ArrayList<>(expired);
+    underTest.advance(5000, expired::add);
+
+    // Assert
+    assertThat(beforeDeadline).isEmpty();
+    assertThat(expired).containsExactly(1);
+  }
+}
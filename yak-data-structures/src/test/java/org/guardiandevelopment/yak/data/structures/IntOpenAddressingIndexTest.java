@@ -0,0 +1,176 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import org.junit.jupiter.api.Test;
+
+class IntOpenAddressingIndexTest {
+
+  @Test
+  void shouldInsertKeyIntoStartingLocationIfEmpty() {
+    // Arrange - 16 % 16 = location 0
+    final var underTest = new IntOpenAddressingIndex(16);
+
+    // Act
+    final var location = underTest.getExistingOrAssign(16);
+
+    // Assert
+    assertThat(location).isEqualTo(0);
+  }
+
+  @Test
+  void shouldReturnExistingLocationIfKeyAlreadyAssigned() {
+    // Arrange
+    final var underTest = new IntOpenAddressingIndex(8);
+
+    underTest.getExistingOrAssign(8);  // 8 % 8 = location 0
+    underTest.getExistingOrAssign(16); // 16 % 8 = location 0, ((16 * 0x9E3779B9) >>> 29) | 1 = 7
+
+    // Act
+    final var location = underTest.getExistingOrAssign(16);
+
+    // Assert
+    assertThat(location).isEqualTo(7);
+  }
+
+  @Test
+  void shouldInsertKeyInNextEmptyPositionIfInitialPositionTaken() {
+    // Arrange
+    final var underTest = new IntOpenAddressingIndex(8);
+
+    underTest.getExistingOrAssign(8); // 8 % 8 = location 0
+
+    // Act - ((16 * 0x9E3779B9) >>> 29) | 1 = 7
+    // 0 + 7 = next position 7
+    final var location = underTest.getExistingOrAssign(16);
+
+    // Assert
+    assertThat(location).isEqualTo(7);
+  }
+
+  @Test
+  void shouldInsertKeyInFirstDeletedPositionIfNoEmptyOrExistingLocationsAvailable() {
+    // Arrange
+    final var underTest = new IntOpenAddressingIndex(4);
+
+    underTest.getExistingOrAssign(0);
+    underTest.getExistingOrAssign(1);
+    underTest.getExistingOrAssign(2);
+    underTest.getExistingOrAssign(3);
+
+    underTest.delete(3);
+
+    // Act - 6 % 4 = location 2, ((6 * 0x9E3779B9) >>> 30) | 1 = 3
+    final var location = underTest.getExistingOrAssign(6);
+
+    // Assert
+    assertThat(location).isEqualTo(3);
+  }
+
+  @Test
+  void shouldReturnNoSlotIfAllPositionsTakenAndNoDeletedPositionsAvailable() {
+    // Arrange
+    final var underTest = new IntOpenAddressingIndex(4);
+
+    underTest.getExistingOrAssign(0);
+    underTest.getExistingOrAssign(1);
+    underTest.getExistingOrAssign(2);
+    underTest.getExistingOrAssign(3);
+
+    // Act
+    final var location = underTest.getExistingOrAssign(6);
+
+    // Assert
+    assertThat(location).isEqualTo(IntOpenAddressingIndex.NO_SLOT);
+  }
+
+  @Test
+  void shouldReturnKeyWhenSearchIsNeededForKey() {
+    // Arrange
+    final var underTest = new IntOpenAddressingIndex(4);
+
+    underTest.getExistingOrAssign(2); // 2 % 4 = location 2
+    underTest.getExistingOrAssign(6); // 6 % 4 = location 2
+
+    // Act - ((6 * 0x9E3779B9) >>> 30) | 1 = 3
+    // (2 + 3) % 4 = 1
+    final var existing = underTest.get(6);
+
+    // Assert
+    assertThat(existing).isEqualTo(1);
+  }
+
+  @Test
+  void shouldReturnNoSlotIfKeyDoesNotExist() {
+    // Arrange
+    final var underTest = new IntOpenAddressingIndex(4);
+
+    underTest.getExistingOrAssign(2);
+
+    // Act
+    final var existing = underTest.get(6);
+
+    // Assert
+    assertThat(existing).isEqualTo(IntOpenAddressingIndex.NO_SLOT);
+  }
+
+  @Test
+  void shouldNotFindKeyOnceDeleted() {
+    // Arrange
+    final var underTest = new IntOpenAddressingIndex(4);
+
+    underTest.getExistingOrAssign(2);
+    underTest.getExistingOrAssign(6);
+
+    // Act
+    final var deleted = underTest.delete(2);
+
+    // Assert
+    assertThat(deleted).isTrue();
+    assertThat(underTest.get(2)).isEqualTo(IntOpenAddressingIndex.NO_SLOT);
+    assertThat(underTest.get(6)).isEqualTo(1);
+  }
+
+  @Test
+  void shouldHandleKeysUsingTheFullRangeOfLongValues() {
+    // Arrange
+    final var underTest = new IntOpenAddressingIndex(16);
+    final var keys = new int[] {Integer.MIN_VALUE, Integer.MAX_VALUE, -1, 0, 1 << 20, -(1 << 20)};
+
+    // Act
+    final var locations = new int[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      locations[i] = underTest.getExistingOrAssign(keys[i]);
+    }
+
+    // Assert
+    for (int i = 0; i < keys.length; i++) {
+      assertThat(locations[i]).isNotEqualTo(IntOpenAddressingIndex.NO_SLOT);
+      assertThat(underTest.get(keys[i])).isEqualTo(locations[i]);
+    }
+  }
+
+  @Test
+  void shouldRestoreEveryKeyToItsLocationFromSnapshot() throws IOException {
+    // Arrange
+    final var original = new IntOpenAddressingIndex(64);
+    for (int key = 0; key < 40; key++) {
+      original.getExistingOrAssign(key * 7);
+    }
+    final var bytes = new ByteArrayOutputStream();
+    original.snapshot(Channels.newChannel(bytes));
+    final var underTest = new IntOpenAddressingIndex(64);
+
+    // Act
+    underTest.restore(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+
+    // Assert
+    for (int key = 0; key < 40; key++) {
+      assertThat(underTest.get(key * 7)).isEqualTo(original.get(key * 7));
+    }
+  }
+}
@@ -0,0 +1,156 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class JournalTest {
+
+  private static final Duration SYNC_INTERVAL = Duration.ofMillis(10);
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void shouldReplayPutsAndDeletesIntoMapAfterReopening() throws IOException {
+    // Arrange
+    final var path = tempDir.resolve("journal");
+    try (var map = open(path, new OpenAddressingHashMap<>(64))) {
+      for (int i = 0; i < 40; i++) {
+        map.put(i, "value-" + i);
+      }
+      map.put(3, "updated");
+      map.put(4, null);
+      map.delete(5);
+    }
+
+    // Act
+    final var replayed = new OpenAddressingHashMap<Integer, String>(64);
+    try (var underTest = open(path, replayed)) {
+
+      // Assert
+      assertThat(underTest.get(3)).isEqualTo("updated");
+      assertThat(underTest.get(4)).isNull();
+      assertThat(underTest.get(5)).isNull();
+      assertThat(replayed.size()).isEqualTo(39);
+      for (int i = 6; i < 40; i++) {
+        assertThat(underTest.get(i)).isEqualTo("value-" + i);
+      }
+    }
+  }
+
+  @Test
+  void shouldStopReplayAtTornRecordAndAppendAfterLastIntactRecord() throws IOException {
+    // Arrange
+    final var path = tempDir.resolve("journal");
+    try (var map = open(path, new OpenAddressingHashMap<>(64))) {
+      map.put(1, "one");
+      map.put(2, "two");
+    }
+    try (var channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+      channel.truncate(channel.size() - 2);
+    }
+
+    // Act
+    try (var map = open(path, new OpenAddressingHashMap<>(64))) {
+      assertThat(map.get(2)).isNull();
+      map.put(3, "three");
+    }
+    final var underTest = new OpenAddressingHashMap<Integer, String>(64);
+    open(path, underTest).close();
+
+    // Assert
+    assertThat(underTest.get(1)).isEqualTo("one");
+    assertThat(underTest.get(2)).isNull();
+    assertThat(underTest.get(3)).isEqualTo("three");
+  }
+
+  @Test
+  void shouldStopReplayAtRecordFailingChecksum() throws IOException {
+    // Arrange
+    final var path = tempDir.resolve("journal");
+    try (var map = open(path, new OpenAddressingHashMap<>(64))) {
+      map.put(1, "one");
+      map.put(2, "two");
+      map.put(3, "three");
+    }
+    final var bytes = Files.readAllBytes(path);
+    final var secondValue = new String(bytes, StandardCharsets.ISO_8859_1).indexOf("two");
+    bytes[secondValue] ^= 1;
+    Files.write(path, bytes);
+
+    // Act
+    final var underTest = new OpenAddressingHashMap<Integer, String>(64);
+    open(path, underTest).close();
+
+    // Assert
+    assertThat(underTest.get(1)).isEqualTo("one");
+    assertThat(underTest.get(2)).isNull();
+    assertThat(underTest.get(3)).isNull();
+  }
+
+  @Test
+  void shouldWriteRecordsOnceSyncIntervalElapses() throws IOException, InterruptedException {
+    // Arrange
+    final var path = tempDir.resolve("journal");
+    try (var underTest = open(path, new OpenAddressingHashMap<>(64))) {
+
+      // Act
+      underTest.put(1, "one");
+
+      // Assert
+      final var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+      while (Files.size(path) == Journal.HEADER_SIZE && System.nanoTime() < deadline) {
+        TimeUnit.MILLISECONDS.sleep(1);
+      }
+      assertThat(Files.size(path)).isGreaterThan((long) Journal.HEADER_SIZE);
+    }
+  }
+
+  @Test
+  void shouldDropRecordsOnceTruncated() throws IOException {
+    // Arrange
+    final var path = tempDir.resolve("journal");
+    try (var map = open(path, new OpenAddressingHashMap<>(64))) {
+      map.put(1, "one");
+      map.journal().sync();
+
+      // Act
+      map.journal().truncate();
+      map.put(2, "two");
+    }
+
+    // Assert
+    final var underTest = new OpenAddressingHashMap<Integer, String>(64);
+    open(path, underTest).close();
+    assertThat(underTest.get(1)).isNull();
+    assertThat(underTest.get(2)).isEqualTo("two");
+  }
+
+  @Test
+  void shouldRefuseFileNotHoldingJournal() throws IOException {
+    // Arrange
+    final var path = tempDir.resolve("journal");
+    Files.write(path, new byte[] {1, 2, 3, 4, 5, 6, 7, 8, 9});
+
+    // Act, Assert
+    assertThatThrownBy(() -> open(path, new OpenAddressingHashMap<>(64)))
+        .isInstanceOf(IOException.class)
+        .hasMessage("file is not a yak journal");
+  }
+
+  private static JournaledMap<Integer, String> open(final Path path, final FixedSizeMap<Integer, String> map)
+      throws IOException {
+    return JournaledMap.open(map, path, SlotCodec.integers(), SlotCodec.strings(), SYNC_INTERVAL);
+  }
+}
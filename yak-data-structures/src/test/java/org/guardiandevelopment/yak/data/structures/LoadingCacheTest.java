@@ -0,0 +1,201 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class LoadingCacheTest {
+
+  // loads only run once the test runs them, so the order of loads and misses is fixed
+  private final List<Runnable> loads = new ArrayList<>();
+
+  @Test
+  void shouldShareOneLoadBetweenConcurrentMissesOfKey() {
+    // Arrange
+    final var calls = new AtomicInteger();
+    final var underTest = new LoadingCache<Integer, String>(
+        new OpenAddressingHashMap<>(16), key -> "value-" + key + "-" + calls.incrementAndGet(), loads::add);
+
+    // Act
+    final var first = underTest.get(7);
+    final var second = underTest.get(7);
+    runLoads();
+
+    // Assert
+    assertThat(second).isSameAs(first);
+    assertThat(first.join()).isEqualTo("value-7-1");
+    assertThat(underTest.get(7).join()).isEqualTo("value-7-1");
+    assertThat(calls.get()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldLoadKeyAgainOnceLoadFailed() {
+    // Arrange
+    final var calls = new AtomicInteger();
+    final var underTest = new LoadingCache<Integer, String>(new OpenAddressingHashMap<>(16), key -> {
+      if (calls.incrementAndGet() == 1) {
+        throw new IllegalStateException("backing store unavailable");
+      }
+      return "value-" + key;
+    }, loads::add);
+    final var failed = underTest.get(7);
+    runLoads();
+
+    // Act
+    final var retried = underTest.get(7);
+    runLoads();
+
+    // Assert
+    assertThat(failed.isCompletedExceptionally()).isTrue();
+    assertThat(retried.join()).isEqualTo("value-7");
+  }
+
+  @Test
+  void shouldFailLoadAndLoadKeyAgainOnceLoaderThrowsError() {
+    // Arrange
+    final var calls = new AtomicInteger();
+    final var underTest = new LoadingCache<Integer, String>(new OpenAddressingHashMap<>(16), key -> {
+      if (calls.incrementAndGet() == 1) {
+        throw new AssertionError("broken loader");
+      }
+      return "value-" + key;
+    }, loads::add);
+    final var failed = underTest.get(7);
+    runLoads();
+
+    // Act
+    final var retried = underTest.get(7);
+    runLoads();
+
+    // Assert
+    assertThat(failed.isCompletedExceptionally()).isTrue();
+    assertThat(retried).isNotSameAs(failed);
+    assertThat(retried.join()).isEqualTo("value-7");
+  }
+
+  @Test
+  void shouldLoadAllMissesInOneBatchJoiningLoadsInFlight() {
+    // Arrange
+    final var batches = new ArrayList<List<Integer>>();
+    final var underTest = new LoadingCache<Integer, String>(new OpenAddressingHashMap<>(16), new CacheLoader<>() {
+
+      @Override
+      public String load(final Integer key) {
+        return "single-" + key;
+      }
+
+      @Override
+      public Map<Integer, String> loadAll(final List<Integer> keys) {
+
+        batches.add(keys);
+        final var values = new HashMap<Integer, String>();
+        keys.forEach(key -> values.put(key, "batch-" + key));
+        return values;
+      }
+    }, loads::add);
+    underTest.put(1, "cached");
+    final var inFlight = underTest.get(2);
+
+    // Act
+    final var all = underTest.getAll(List.of(1, 2, 3, 4));
+    runLoads();
+
+    // Assert
+    assertThat(batches).containsExactly(List.of(3, 4));
+    assertThat(inFlight.join()).isEqualTo("single-2");
+    assertThat(all.join()).isEqualTo(Map.of(1, "cached", 2, "single-2", 3, "batch-3", 4, "batch-4"));
+  }
+
+  @Test
+  void shouldCompleteBatchWithoutValuesWhenLoaderReturnsNoMap() {
+    // Arrange
+    final var calls = new AtomicInteger();
+    final var underTest = new LoadingCache<Integer, String>(new OpenAddressingHashMap<>(16), new CacheLoader<>() {
+
+      @Override
+      public String load(final Integer key) {
+        return "single-" + key;
+      }
+
+      @Override
+      public Map<Integer, String> loadAll(final List<Integer> keys) {
+        return calls.incrementAndGet() == 1 ? null : Map.of(3, "batch-3");
+      }
+    }, loads::add);
+
+    // Act
+    final var all = underTest.getAll(List.of(3, 4));
+    runLoads();
+    final var retried = underTest.getAll(List.of(3, 4));
+    runLoads();
+
+    // Assert
+    assertThat(all.join()).isEqualTo(Map.of());
+    assertThat(retried.join()).isEqualTo(Map.of(3, "batch-3"));
+  }
+
+  @Test
+  void shouldFailBatchAndLoadKeysAgainOnceCachingLoadedValueThrows() {
+    // Arrange - a map failing an assertion on its first put
+    final var map = new OpenAddressingHashMap<Integer, String>(16);
+    final var puts = new AtomicInteger();
+    final var underTest = new LoadingCache<Integer, String>(new FixedSizeMap<>() {
+
+      @Override
+      public String get(final Integer key) {
+        return map.get(key);
+      }
+
+      @Override
+      public String put(final Integer key, final String value) {
+
+        if (puts.incrementAndGet() == 1) {
+          throw new AssertionError("broken map");
+        }
+        return map.put(key, value);
+      }
+
+      @Override
+      public String delete(final Integer key) {
+        return map.delete(key);
+      }
+    }, key -> "value-" + key, loads::add);
+    final var failed = underTest.getAll(List.of(3, 4));
+    runLoads();
+
+    // Act
+    final var retried = underTest.getAll(List.of(3, 4));
+    runLoads();
+
+    // Assert
+    assertThat(failed.isCompletedExceptionally()).isTrue();
+    assertThat(retried.join()).isEqualTo(Map.of(3, "value-3", 4, "value-4"));
+  }
+
+  @Test
+  void shouldKeepValuePutWhileLoadOfKeyInFlight() {
+    // Arrange
+    final var underTest = new LoadingCache<Integer, String>(new OpenAddressingHashMap<>(16), key -> "loaded", loads::add);
+    final var load = underTest.get(7);
+
+    // Act
+    underTest.put(7, "put");
+    runLoads();
+
+    // Assert
+    assertThat(load.join()).isEqualTo("loaded");
+    assertThat(underTest.get(7).join()).isEqualTo("put");
+  }
+
+  private void runLoads() {
+
+    final var running = new ArrayList<>(loads);
+    loads.clear();
+    running.forEach(Runnable::run);
+  }
+}
@@ -0,0 +1,178 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import org.junit.jupiter.api.Test;
+
+class LongOpenAddressingIndexTest {
+
+  @Test
+  void shouldInsertKeyIntoStartingLocationIfEmpty() {
+    // Arrange - 16 % 16 = location 0
+    final var underTest = new LongOpenAddressingIndex(16);
+
+    // Act
+    final var location = underTest.getExistingOrAssign(16L);
+
+    // Assert
+    assertThat(location).isEqualTo(0);
+  }
+
+  @Test
+  void shouldReturnExistingLocationIfKeyAlreadyAssigned() {
+    // Arrange
+    final var underTest = new LongOpenAddressingIndex(8);
+
+    underTest.getExistingOrAssign(8L);  // 8 % 8 = location 0
+    underTest.getExistingOrAssign(16L); // 16 % 8 = location 0, ((16 * 0x9E3779B9) >>> 29) | 1 = 7
+
+    // Act
+    final var location = underTest.getExistingOrAssign(16L);
+
+    // Assert
+    assertThat(location).isEqualTo(7);
+  }
+
+  @Test
+  void shouldInsertKeyInNextEmptyPositionIfInitialPositionTaken() {
+    // Arrange
+    final var underTest = new LongOpenAddressingIndex(8);
+
+    underTest.getExistingOrAssign(8L); // 8 % 8 = location 0
+
+    // Act - ((16 * 0x9E3779B9) >>> 29) | 1 = 7
+    // 0 + 7 = next position 7
+    final var location = underTest.getExistingOrAssign(16L);
+
+    // Assert
+    assertThat(location).isEqualTo(7);
+  }
+
+  @Test
+  void shouldInsertKeyInFirstDeletedPositionIfNoEmptyOrExistingLocationsAvailable() {
+    // Arrange
+    final var underTest = new LongOpenAddressingIndex(4);
+
+    underTest.getExistingOrAssign(0L);
+    underTest.getExistingOrAssign(1L);
+    underTest.getExistingOrAssign(2L);
+    underTest.getExistingOrAssign(3L);
+
+    underTest.delete(3L);
+
+    // Act - 6 % 4 = location 2, ((6 * 0x9E3779B9) >>> 30) | 1 = 3
+    final var location = underTest.getExistingOrAssign(6L);
+
+    // Assert
+    assertThat(location).isEqualTo(3);
+  }
+
+  @Test
+  void shouldReturnNoSlotIfAllPositionsTakenAndNoDeletedPositionsAvailable() {
+    // Arrange
+    final var underTest = new LongOpenAddressingIndex(4);
+
+    underTest.getExistingOrAssign(0L);
+    underTest.getExistingOrAssign(1L);
+    underTest.getExistingOrAssign(2L);
+    underTest.getExistingOrAssign(3L);
+
+    // Act
+    final var location = underTest.getExistingOrAssign(6L);
+
+    // Assert
+    assertThat(location).isEqualTo(LongOpenAddressingIndex.NO_SLOT);
+  }
+
+  @Test
+  void shouldReturnKeyWhenSearchIsNeededForKey() {
+    // Arrange
+    final var underTest = new LongOpenAddressingIndex(4);
+
+    underTest.getExistingOrAssign(2L); // 2 % 4 = location 2
+    underTest.getExistingOrAssign(6L); // 6 % 4 = location 2
+
+    // Act - ((6 * 0x9E3779B9) >>> 30) | 1 = 3
+    // (2 + 3) % 4 = 1
+    final var existing = underTest.get(6L);
+
+    // Assert
+    assertThat(existing).isEqualTo(1);
+  }
+
+  @Test
+  void shouldReturnNoSlotIfKeyDoesNotExist() {
+    // Arrange
+    final var underTest = new LongOpenAddressingIndex(4);
+
+    underTest.getExistingOrAssign(2L);
+
+    // Act
+    final var existing = underTest.get(6L);
+
+    // Assert
+    assertThat(existing).isEqualTo(LongOpenAddressingIndex.NO_SLOT);
+  }
+
+  @Test
+  void shouldNotFindKeyOnceDeleted() {
+    // Arrange
+    final var underTest = new LongOpenAddressingIndex(4);
+
+    underTest.getExistingOrAssign(2L);
+    underTest.getExistingOrAssign(6L);
+
+    // Act
+    final var deleted = underTest.delete(2L);
+
+    // Assert
+    assertThat(deleted).isTrue();
+    assertThat(underTest.get(2L)).isEqualTo(LongOpenAddressingIndex.NO_SLOT);
+    assertThat(underTest.get(6L)).isEqualTo(1);
+  }
+
+  @Test
+  void shouldHandleKeysUsingTheFullRangeOfLongValues() {
+    // Arrange
+    final var underTest = new LongOpenAddressingIndex(16);
+    final var keys = new long[] {Long.MIN_VALUE, Long.MAX_VALUE, -1L, 0L, 1L << 40, -(1L << 40)};
+
+    // Act
+    final var locations = new int[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      locations[i] = underTest.getExistingOrAssign(keys[i]);
+    }
+
+    // Assert
+    for (int i = 0; i < keys.length; i++) {
+      assertThat(locations[i]).isNotEqualTo(LongOpenAddressingIndex.NO_SLOT);
+      assertThat(underTest.get(keys[i])).isEqualTo(locations[i]);
+    }
+  }
+
+  @Test
+  void shouldRestoreEveryKeyToItsLocationFromSnapshot() throws IOException {
+    // Arrange
+    final var original = new LongOpenAddressingIndex(1 << 18);
+    for (long key = 0; key < 200_000; key++) {
+      original.getExistingOrAssign(key * 31);
+    }
+    original.delete(31L);
+    final var bytes = new ByteArrayOutputStream();
+    original.snapshot(Channels.newChannel(bytes));
+    final var underTest = new LongOpenAddressingIndex(1 << 18);
+
+    // Act
+    underTest.restore(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+
+    // Assert
+    assertThat(underTest.get(31L)).isEqualTo(LongOpenAddressingIndex.NO_SLOT);
+    for (long key = 2; key < 200_000; key++) {
+      assertThat(underTest.get(key * 31)).isEqualTo(original.get(key * 31));
+    }
+  }
+}
@@ -0,0 +1,130 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class MappedLongValueStoreTest {
+
+  @TempDir
+  Path tempDir;
+
+  @Test
+  void shouldBeAbleToGetValueAssociatedWithKey() throws IOException {
+    // Arrange
+    try (var underTest = MappedLongValueStore.open(tempDir.resolve("store"), 16, Long.BYTES)) {
+
+      underTest.put(2L, ByteBuffer.allocate(Long.BYTES).putLong(0, 42L));
+
+      // Act
+      final var dst = ByteBuffer.allocate(Long.BYTES);
+      final var found = underTest.get(2L, dst);
+
+      // Assert
+      assertThat(found).isTrue();
+      assertThat(dst.getLong(0)).isEqualTo(42L);
+    }
+  }
+
+  @Test
+  void shouldFindKeysAndValuesAfterReopening() throws IOException {
+    // Arrange
+    final var path = tempDir.resolve("store");
+    try (var store = MappedLongValueStore.open(path, 16, Long.BYTES)) {
+      for (long key = 0; key < 12; key++) {
+        store.put(key * 16, ByteBuffer.allocate(Long.BYTES).putLong(0, key));
+      }
+      store.delete(16L);
+    }
+
+    // Act
+    try (var underTest = MappedLongValueStore.open(path, 16, Long.BYTES)) {
+
+      // Assert
+      assertThat(underTest.get(16L, ByteBuffer.allocate(Long.BYTES))).isFalse();
+      for (long key = 2; key < 12; key++) {
+        final var dst = ByteBuffer.allocate(Long.BYTES);
+        assertThat(underTest.get(key * 16, dst)).isTrue();
+        assertThat(dst.getLong(0)).isEqualTo(key);
+      }
+    }
+  }
+
+  @Test
+  void shouldReuseDeletedLocationForNewKey() throws IOException {
+    // Arrange
+    try (var underTest = MappedLongValueStore.open(tempDir.resolve("store"), 4, Integer.BYTES)) {
+      for (long key = 0; key < 4; key++) {
+        underTest.put(key, ByteBuffer.allocate(Integer.BYTES));
+      }
+      underTest.delete(3L);
+
+      // Act
+      final var stored = underTest.put(6L, ByteBuffer.allocate(Integer.BYTES).putInt(0, 6));
+
+      // Assert
+      final var dst = ByteBuffer.allocate(Integer.BYTES);
+      assertThat(stored).isTrue();
+      assertThat(underTest.get(6L, dst)).isTrue();
+      assertThat(dst.getInt(0)).isEqualTo(6);
+      assertThat(underTest.put(7L, ByteBuffer.allocate(Integer.BYTES))).isFalse();
+    }
+  }
+
+  @Test
+  void shouldOnlyReportFullOnceEveryLocationIsTaken() throws IOException {
+    // Arrange - 8 % 8 = location 0, the even locations are taken, so colliding keys must reach the odd ones
+    try (var underTest = MappedLongValueStore.open(tempDir.resolve("store"), 8, Integer.BYTES)) {
+      for (long key = 0; key < 8; key += 2) {
+        underTest.put(key, ByteBuffer.allocate(Integer.BYTES));
+      }
+
+      // Act
+      var stored = 0;
+      for (long key = 8; key <= 32; key += 8) {
+        if (underTest.put(key, ByteBuffer.allocate(Integer.BYTES).putInt(0, (int) key))) {
+          stored++;
+        }
+      }
+
+      // Assert
+      assertThat(stored).isEqualTo(4);
+      for (long key = 8; key <= 32; key += 8) {
+        final var dst = ByteBuffer.allocate(Integer.BYTES);
+        assertThat(underTest.get(key, dst)).isTrue();
+        assertThat(dst.getInt(0)).isEqualTo((int) key);
+      }
+      assertThat(underTest.put(40L, ByteBuffer.allocate(Integer.BYTES))).isFalse();
+    }
+  }
+
+  @Test
+  void shouldRejectFileHoldingStoreOfDifferentValueSize() throws IOException {
+    // Arrange
+    final var path = tempDir.resolve("store");
+    MappedLongValueStore.open(path, 16, Long.BYTES).close();
+
+    // Act / Assert
+    assertThatThrownBy(() -> MappedLongValueStore.open(path, 16, Integer.BYTES))
+        .isInstanceOf(IOException.class)
+        .hasMessageContaining("expected 16 values of 4 bytes");
+  }
+
+  @Test
+  void shouldRejectFileThatIsNotAStore() throws IOException {
+    // Arrange
+    final var path = tempDir.resolve("store");
+    Files.write(path, new byte[MappedLongValueStore.HEADER_SIZE]);
+
+    // Act / Assert
+    assertThatThrownBy(() -> MappedLongValueStore.open(path, 16, Long.BYTES))
+        .isInstanceOf(IOException.class)
+        .hasMessageContaining("not a yak mapped store");
+  }
+}
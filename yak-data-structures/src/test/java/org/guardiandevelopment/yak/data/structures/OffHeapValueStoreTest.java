@@ -0,0 +1,119 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.ByteBuffer;
+import org.junit.jupiter.api.Test;
+
+class OffHeapValueStoreTest {
+
+  @Test
+  void shouldBeAbleToGetValueAssociatedWithKey() {
+    // Arrange
+    final var underTest = new OffHeapValueStore<Integer>(4, Long.BYTES);
+
+    underTest.put(2, ByteBuffer.allocate(Long.BYTES).putLong(0, 42L));
+
+    // Act
+    final var dst = ByteBuffer.allocate(Long.BYTES);
+    final var found = underTest.get(2, dst);
+
+    // Assert
+    assertThat(found).isTrue();
+    assertThat(dst.position()).isEqualTo(Long.BYTES);
+    assertThat(dst.getLong(0)).isEqualTo(42L);
+  }
+
+  @Test
+  void shouldAdvanceSourcePositionPastStoredValue() {
+    // Arrange
+    final var underTest = new OffHeapValueStore<Integer>(4, Integer.BYTES);
+    final var src = ByteBuffer.allocate(Integer.BYTES * 2).putInt(0, 1).putInt(Integer.BYTES, 2);
+
+    // Act
+    underTest.put(1, src);
+    underTest.put(2, src);
+
+    // Assert
+    final var dst = ByteBuffer.allocate(Integer.BYTES * 2);
+    underTest.get(2, dst);
+    underTest.get(1, dst);
+    assertThat(src.remaining()).isEqualTo(0);
+    assertThat(dst.getInt(0)).isEqualTo(2);
+    assertThat(dst.getInt(Integer.BYTES)).isEqualTo(1);
+  }
+
+  @Test
+  void shouldBeAbleToReplaceValueAssociatedWithKey() {
+    // Arrange
+    final var underTest = new OffHeapValueStore<Integer>(4, Long.BYTES);
+
+    underTest.put(1, ByteBuffer.allocate(Long.BYTES).putLong(0, 1L));
+
+    // Act
+    underTest.put(1, ByteBuffer.allocate(Long.BYTES).putLong(0, 2L));
+
+    // Assert
+    final var dst = ByteBuffer.allocate(Long.BYTES);
+    underTest.get(1, dst);
+    assertThat(dst.getLong(0)).isEqualTo(2L);
+  }
+
+  @Test
+  void shouldLeaveDestinationUntouchedWhenKeyDoesNotExist() {
+    // Arrange
+    final var underTest = new OffHeapValueStore<Integer>(4, Long.BYTES);
+    final var dst = ByteBuffer.allocate(Long.BYTES).putLong(0, 7L);
+
+    // Act
+    final var found = underTest.get(1, dst);
+
+    // Assert
+    assertThat(found).isFalse();
+    assertThat(dst.position()).isEqualTo(0);
+    assertThat(dst.getLong(0)).isEqualTo(7L);
+  }
+
+  @Test
+  void shouldNotFindValueOnceDeleted() {
+    // Arrange
+    final var underTest = new OffHeapValueStore<Integer>(4, Long.BYTES);
+
+    underTest.put(1, ByteBuffer.allocate(Long.BYTES));
+
+    // Act
+    final var deleted = underTest.delete(1);
+
+    // Assert
+    assertThat(deleted).isTrue();
+    assertThat(underTest.delete(1)).isFalse();
+    assertThat(underTest.get(1, ByteBuffer.allocate(Long.BYTES))).isFalse();
+  }
+
+  @Test
+  void shouldReturnFalseWhenStoreIsFull() {
+    // Arrange
+    final var underTest = new OffHeapValueStore<Integer>(4, Long.BYTES);
+    for (int i = 0; i < 4; i++) {
+      underTest.put(i, ByteBuffer.allocate(Long.BYTES));
+    }
+
+    // Act
+    final var stored = underTest.put(6, ByteBuffer.allocate(Long.BYTES));
+
+    // Assert
+    assertThat(stored).isFalse();
+  }
+
+  @Test
+  void shouldRejectSourceShorterThanValueSizeWithoutAssigningKey() {
+    // Arrange
+    final var underTest = new OffHeapValueStore<Integer>(4, Long.BYTES);
+
+    // Act / Assert
+    assertThatThrownBy(() -> underTest.put(1, ByteBuffer.allocate(Integer.BYTES)))
+        .isInstanceOf(IndexOutOfBoundsException.class);
+    assertThat(underTest.get(1, ByteBuffer.allocate(Long.BYTES))).isFalse();
+  }
+}
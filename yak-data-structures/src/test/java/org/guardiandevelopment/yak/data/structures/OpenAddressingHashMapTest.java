@@ -1,7 +1,25 @@
 package org.guardiandevelopment.yak.data.structures;
 
 import static org.assertj.core.api.Assertions.assertThat;
-
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.sun.management.ThreadMXBean;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.StreamSupport;
 import org.junit.jupiter.api.Test;
 
 class OpenAddressingHashMapTest {
@@ -186,6 +204,574 @@ class OpenAddressingHashMapTest {
     assertThat(result4).isEqualTo("test4");
   }
 
+  @Test
+  void shouldReturnNullWhenPuttingNewKeyIntoDeletedSlot() {
+    // Arrange
+    final var underTest = new OpenAddressingHashMap<Integer, String>(4);
+
+    underTest.put(1, "test1");
+    underTest.delete(1);
+
+    // Act
+    final var old = underTest.put(5, "test5");
+
+    // Assert
+    assertThat(old).isNull();
+    assertThat(underTest.get(1)).isNull();
+    assertThat(underTest.get(5)).isEqualTo("test5");
+  }
+
+  @Test
+  void shouldKeepValueOfKeyMovedByCompaction() {
+    // Arrange - 1 and 321 both start at location 1, 321 moves on by ((321 * 0x9E3779B9) >>> 26) | 1 = 25 to location
+    // 26, so deleting 1 leaves a deleted marker in front of 321, past the few locations compacted by the delete itself
+    final var underTest = new OpenAddressingHashMap<Integer, String>(64);
+
+    underTest.put(1, "test1");
+    underTest.put(321, "test321");
+    underTest.delete(1);
+
+    // Act
+    final var relocated = underTest.compact();
+
+    // Assert
+    assertThat(relocated).isEqualTo(1);
+    assertThat(underTest.tombstones()).isEqualTo(0);
+    assertThat(underTest.get(321)).isEqualTo("test321");
+    assertThat(underTest.size()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldKeepDeletedMarkersFewUnderSteadyDeleteChurn() {
+    // Arrange - a sliding window of half the table, where every put of a new key follows a delete of the oldest key
+    final var random = new Random(42);
+    final var keys = random.ints(20_000, 0, 1 << 20).distinct().toArray();
+
+    final var underTest = new OpenAddressingHashMap<Integer, Integer>(64);
+    for (int i = 0; i < 32; i++) {
+      underTest.put(keys[i], keys[i]);
+    }
+
+    // Act
+    var mostTombstones = 0;
+    for (int i = 32; i < keys.length; i++) {
+      underTest.delete(keys[i - 32]);
+      underTest.put(keys[i], keys[i]);
+      mostTombstones = Math.max(mostTombstones, underTest.tombstones());
+    }
+
+    // Assert
+    assertThat(mostTombstones).isLessThan(16);
+    assertThat(underTest.size()).isEqualTo(32);
+    for (int i = keys.length - 32; i < keys.length; i++) {
+      assertThat(underTest.get(keys[i])).isEqualTo(keys[i]);
+    }
+  }
+
+  @Test
+  void shouldNotAllocateWhenOverwritingExistingKeys() {
+    // Arrange
+    final var underTest = new OpenAddressingHashMap<Integer, String>(1024);
+    final var keys = new Integer[512];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = i * 3;
+      underTest.put(keys[i], "initial");
+    }
+
+    final var threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    final var threadId = Thread.currentThread().getId();
+
+    // Act
+    final var before = threads.getThreadAllocatedBytes(threadId);
+    for (int round = 0; round < 100; round++) {
+      for (final var key : keys) {
+        underTest.put(key, "updated");
+      }
+    }
+    final var allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+    // Assert - allow for the measurement itself, but not an allocation per put
+    assertThat(allocated).isLessThan(keys.length * 100L);
+  }
+
+  @Test
+  void shouldEvictToMakeRoomWhenFullWithClockEviction() {
+    // Arrange
+    final var underTest = new OpenAddressingHashMap<Integer, String>(4, EvictionPolicy.CLOCK);
+
+    underTest.put(0, "test0");
+    underTest.put(1, "test1");
+    underTest.put(2, "test2");
+    underTest.put(3, "test3");
+
+    underTest.get(0);
+    underTest.get(1);
+    underTest.get(3);
+
+    // Act - 6 % 4 = location 2, which holds the only key not referenced
+    final var old = underTest.put(6, "test6");
+
+    // Assert
+    assertThat(old).isNull();
+    assertThat(underTest.get(2)).isNull();
+    assertThat(underTest.get(6)).isEqualTo("test6");
+    assertThat(underTest.get(0)).isEqualTo("test0");
+    assertThat(underTest.get(1)).isEqualTo("test1");
+    assertThat(underTest.get(3)).isEqualTo("test3");
+  }
+
+  @Test
+  void shouldKeepAcceptingNewKeysAtCapacityWithClockEviction() {
+    // Arrange
+    final var underTest = new OpenAddressingHashMap<Integer, Integer>(16, EvictionPolicy.CLOCK);
+
+    // Act
+    for (int i = 0; i < 1000; i++) {
+      underTest.put(i, i);
+    }
+
+    // Assert
+    assertThat(underTest.get(999)).isEqualTo(999);
+  }
+
+  @Test
+  void shouldLeaveMapUnchangedWhenNewKeyRefusedAdmission() {
+    // Arrange
+    final var evicted = new ArrayList<String>();
+    final var underTest = new OpenAddressingHashMap<Integer, String>(
+        4, EvictionPolicy.CLOCK, (candidate, victim) -> false, (key, value) -> evicted.add(value));
+
+    underTest.put(0, "test0");
+    underTest.put(1, "test1");
+    underTest.put(2, "test2");
+    underTest.put(3, "test3");
+
+    // Act
+    final var old = underTest.put(6, "test6");
+
+    // Assert
+    assertThat(old).isNull();
+    assertThat(evicted).containsExactly("test6");
+    assertThat(underTest.get(6)).isNull();
+    assertThat(underTest.get(2)).isEqualTo("test2");
+  }
+
+  @Test
+  void shouldNotifyListenerOfEvictedEntry() {
+    // Arrange
+    final var evicted = new ArrayList<String>();
+    final var underTest = new OpenAddressingHashMap<Integer, String>(
+        4, EvictionPolicy.CLOCK, (candidate, victim) -> true, (key, value) -> evicted.add(key + "=" + value));
+
+    underTest.put(0, "test0");
+    underTest.put(1, "test1");
+    underTest.put(2, "test2");
+    underTest.put(3, "test3");
+
+    // Act - 6 % 4 = location 2, which holds an unreferenced key
+    underTest.put(6, "test6");
+
+    // Assert
+    assertThat(evicted).containsExactly("2=test2");
+  }
+
+  @Test
+  void shouldDoubleWhenKeysExceedLoadFactor() {
+    // Arrange
+    final var underTest = new OpenAddressingHashMap<Integer, String>(8, 0.5f);
+    for (int i = 0; i < 4; i++) {
+      underTest.put(i, "test" + i);
+    }
+
+    // Act
+    underTest.put(4, "test4");
+
+    // Assert
+    assertThat(underTest.capacity()).isEqualTo(16);
+    assertThat(underTest.size()).isEqualTo(5);
+    for (int i = 0; i < 5; i++) {
+      assertThat(underTest.get(i)).isEqualTo("test" + i);
+    }
+  }
+
+  @Test
+  void shouldReachKeysNotYetMovedWhileGrowing() {
+    // Arrange - the put of key 32 grows the hash map, and only moves the keys of the first 8 locations
+    final var underTest = new OpenAddressingHashMap<Integer, String>(64, 0.5f);
+    for (int i = 0; i <= 32; i++) {
+      underTest.put(i, "test" + i);
+    }
+
+    // Act
+    final var replaced = underTest.put(40, "test40");
+    final var deleted = underTest.delete(50);
+
+    // Assert
+    assertThat(underTest.capacity()).isEqualTo(128);
+    assertThat(replaced).isNull();
+    assertThat(deleted).isNull();
+    assertThat(underTest.put(30, "replaced")).isEqualTo("test30");
+    assertThat(underTest.delete(31)).isEqualTo("test31");
+    assertThat(underTest.get(30)).isEqualTo("replaced");
+    assertThat(underTest.get(31)).isNull();
+    assertThat(underTest.get(32)).isEqualTo("test32");
+    assertThat(underTest.size()).isEqualTo(33);
+  }
+
+  @Test
+  void shouldKeepEveryKeyWhileGrowingRepeatedly() {
+    // Arrange
+    final var random = new Random(15);
+    final var expected = new HashMap<Integer, Integer>();
+    final var underTest = new OpenAddressingHashMap<Integer, Integer>(4, 0.75f, Hasher.murmur3(), true);
+
+    // Act
+    for (int i = 0; i < 50_000; i++) {
+      final var key = random.nextInt(20_000);
+      if (random.nextInt(4) == 0) {
+        assertThat(underTest.delete(key)).isEqualTo(expected.remove(key));
+      } else {
+        assertThat(underTest.put(key, i)).isEqualTo(expected.put(key, i));
+      }
+    }
+
+    // Assert
+    assertThat(underTest.size()).isEqualTo(expected.size());
+    for (int key = 0; key < 20_000; key++) {
+      assertThat(underTest.get(key)).isEqualTo(expected.get(key));
+    }
+  }
+
+  @Test
+  void shouldPutAndGetEveryKeyInBatch() {
+    // Arrange
+    final var underTest = new OpenAddressingHashMap<Integer, String>(256);
+    final var keys = new Integer[150];
+    final var values = new String[keys.length];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = i * 3;
+      values[i] = "test" + i;
+    }
+    underTest.putAll(keys, values);
+    keys[0] = 1;
+    final var results = new String[keys.length];
+
+    // Act
+    final var found = underTest.getAll(keys, results);
+
+    // Assert
+    assertThat(found).isEqualTo(149);
+    assertThat(results[0]).isNull();
+    for (int i = 1; i < keys.length; i++) {
+      assertThat(results[i]).isEqualTo("test" + i);
+    }
+    assertThat(underTest.size()).isEqualTo(150);
+  }
+
+  @Test
+  void shouldGrowWhenBatchCrossesLoadFactor() {
+    // Arrange
+    final var underTest = new OpenAddressingHashMap<Integer, Integer>(16, 0.75f);
+    final var keys = new Integer[100];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = i;
+    }
+
+    // Act
+    underTest.putAll(keys, keys);
+    final var results = new Integer[keys.length];
+    final var found = underTest.getAll(keys, results);
+
+    // Assert
+    assertThat(found).isEqualTo(100);
+    assertThat(results).containsExactly(keys);
+    assertThat(underTest.capacity()).isEqualTo(256);
+  }
+
+  @Test
+  void shouldRestoreEveryEntryAndDeletedMarkerFromSnapshot() throws IOException {
+    // Arrange - enough keys for the snapshot to span several chunks
+    final var original = new OpenAddressingHashMap<Integer, String>(1 << 18, Hasher.murmur3(), true);
+    for (int i = 0; i < 200_000; i++) {
+      original.put(i, "test" + i);
+    }
+    for (int i = 0; i < 200_000; i += 3) {
+      original.delete(i);
+    }
+    original.put(7, null);
+    final var file = Files.createTempFile("yak", ".snapshot");
+
+    try (var channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+      original.snapshot(channel, SlotCodec.integers(), SlotCodec.strings());
+    }
+    final var underTest = new OpenAddressingHashMap<Integer, String>(1 << 18, Hasher.murmur3(), true);
+    underTest.put(-1, "overwritten");
+
+    // Act
+    try (var channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      underTest.restore(channel, SlotCodec.integers(), SlotCodec.strings());
+    } finally {
+      Files.delete(file);
+    }
+
+    // Assert
+    assertThat(underTest.size()).isEqualTo(original.size());
+    assertThat(underTest.tombstones()).isEqualTo(original.tombstones());
+    assertThat(underTest.get(-1)).isNull();
+    assertThat(underTest.get(7)).isNull();
+    for (int i = 0; i < 200_000; i++) {
+      assertThat(underTest.get(i)).isEqualTo(original.get(i));
+    }
+    underTest.delete(1);
+    assertThat(underTest.get(1)).isNull();
+    assertThat(underTest.get(2)).isEqualTo("test2");
+  }
+
+  @Test
+  void shouldRefuseSnapshotOfDifferentSizeAndKeepEntries() throws IOException {
+    // Arrange
+    final var original = new OpenAddressingHashMap<Integer, String>(16);
+    original.put(1, "test1");
+    final var bytes = new ByteArrayOutputStream();
+    original.snapshot(Channels.newChannel(bytes), SlotCodec.integers(), SlotCodec.strings());
+    final var underTest = new OpenAddressingHashMap<Integer, String>(32);
+    underTest.put(2, "test2");
+
+    // Act, Assert
+    assertThatThrownBy(() -> underTest.restore(
+        Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())), SlotCodec.integers(), SlotCodec.strings()))
+        .isInstanceOf(IOException.class)
+        .hasMessageContaining("16 locations");
+    assertThat(underTest.get(2)).isEqualTo("test2");
+  }
+
+  @Test
+  void shouldTakeSizeOfSnapshotWhenGrowable() throws IOException {
+    // Arrange
+    final var original = new OpenAddressingHashMap<Integer, String>(4, 0.75f);
+    for (int i = 0; i < 100; i++) {
+      original.put(i, "test" + i);
+    }
+    final var bytes = new ByteArrayOutputStream();
+    original.snapshot(Channels.newChannel(bytes), SlotCodec.integers(), SlotCodec.strings());
+    final var underTest = new OpenAddressingHashMap<Integer, String>(4, 0.75f);
+
+    // Act
+    underTest.restore(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())), SlotCodec.integers(), SlotCodec.strings());
+
+    // Assert
+    assertThat(underTest.capacity()).isEqualTo(original.capacity());
+    for (int i = 0; i < 100; i++) {
+      assertThat(underTest.get(i)).isEqualTo("test" + i);
+    }
+  }
+
+  @Test
+  void shouldRefuseSnapshotOfSizeNotPowerOf2WhenGrowableAndKeepEntries() throws IOException {
+    // Arrange - the size follows the magic and version
+    final var original = new OpenAddressingHashMap<Integer, String>(16, 0.75f);
+    original.put(1, "test1");
+    final var bytes = new ByteArrayOutputStream();
+    original.snapshot(Channels.newChannel(bytes), SlotCodec.integers(), SlotCodec.strings());
+    final var corrupt = ByteBuffer.wrap(bytes.toByteArray()).putInt(8, -16).array();
+    final var underTest = new OpenAddressingHashMap<Integer, String>(16, 0.75f);
+    underTest.put(2, "test2");
+
+    // Act, Assert
+    assertThatThrownBy(() -> underTest.restore(
+        Channels.newChannel(new ByteArrayInputStream(corrupt)), SlotCodec.integers(), SlotCodec.strings()))
+        .isInstanceOf(IOException.class)
+        .hasMessageContaining("-16 locations");
+    assertThat(underTest.get(2)).isEqualTo("test2");
+    assertThat(underTest.capacity()).isEqualTo(16);
+  }
+
+  @Test
+  void shouldBeLeftEmptyWhenSnapshotIsTruncated() throws IOException {
+    // Arrange
+    final var original = new OpenAddressingHashMap<Integer, String>(16);
+    original.put(1, "test1");
+    original.put(2, "test2");
+    final var bytes = new ByteArrayOutputStream();
+    original.snapshot(Channels.newChannel(bytes), SlotCodec.integers(), SlotCodec.strings());
+    final var truncated = Arrays.copyOf(bytes.toByteArray(), bytes.size() - 3);
+    final var underTest = new OpenAddressingHashMap<Integer, String>(16);
+    underTest.put(3, "test3");
+
+    // Act, Assert
+    assertThatThrownBy(() -> underTest.restore(
+        Channels.newChannel(new ByteArrayInputStream(truncated)), SlotCodec.integers(), SlotCodec.strings()))
+        .isInstanceOf(EOFException.class);
+    assertThat(underTest.size()).isEqualTo(0);
+    assertThat(underTest.get(1)).isNull();
+    assertThat(underTest.get(3)).isNull();
+  }
+
+  @Test
+  void shouldVisitEveryEntryOnceWithCursorWithoutAllocating() {
+    // Arrange
+    final var underTest = new OpenAddressingHashMap<Integer, Integer>(1024);
+    for (int i = 0; i < 600; i++) {
+      underTest.put(i, i % 7 == 0 ? null : i * 2);
+    }
+    for (int i = 0; i < 600; i += 3) {
+      underTest.delete(i);
+    }
+    final var visited = new HashMap<Integer, Integer>();
+    final var cursor = underTest.cursor();
+    while (cursor.next()) {
+      visited.put(cursor.key(), cursor.value());
+    }
+
+    final var threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+    final var threadId = Thread.currentThread().getId();
+
+    // Act
+    final var before = threads.getThreadAllocatedBytes(threadId);
+    var sum = 0L;
+    for (int round = 0; round < 100; round++) {
+      final var scan = underTest.cursor();
+      while (scan.next()) {
+        sum += scan.key();
+      }
+    }
+    final var allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+    // Assert - one cursor per scan, nothing per entry
+    assertThat(visited.size()).isEqualTo(400);
+    for (int i = 0; i < 600; i++) {
+      if (i % 3 != 0) {
+        assertThat(visited.containsKey(i)).isTrue();
+        assertThat(visited.get(i)).isEqualTo(i % 7 == 0 ? null : i * 2);
+      }
+    }
+    assertThat(sum).isGreaterThan(0L);
+    assertThat(allocated).isLessThan(400 * 100L);
+  }
+
+  @Test
+  void shouldDeleteEntriesMatchingPredicateInOneScan() {
+    // Arrange
+    final var underTest = new OpenAddressingHashMap<Integer, String>(256);
+    for (int i = 0; i < 200; i++) {
+      underTest.put(i, i % 2 == 0 ? "even" : "odd");
+    }
+
+    // Act
+    final var removed = underTest.removeIf((key, value) -> value.equals("even"));
+
+    // Assert
+    assertThat(removed).isEqualTo(100);
+    assertThat(underTest.size()).isEqualTo(100);
+    for (int i = 0; i < 200; i++) {
+      assertThat(underTest.get(i)).isEqualTo(i % 2 == 0 ? null : "odd");
+    }
+  }
+
+  @Test
+  void shouldAggregateEveryEntryInParallelAcrossSplitRanges() {
+    // Arrange
+    final var underTest = new OpenAddressingHashMap<Long, Long>(1 << 16);
+    for (long i = 0; i < 40_000; i++) {
+      underTest.put(i, i * 3);
+    }
+
+    // Act
+    final var sum = StreamSupport.stream(underTest.spliterator(), true)
+        .mapToLong(Map.Entry::getValue)
+        .sum();
+    final var prefix = underTest.spliterator();
+    final var suffix = prefix.trySplit();
+
+    // Assert
+    assertThat(sum).isEqualTo(3L * 40_000 * 39_999 / 2);
+    assertThat(suffix).isNotNull();
+    final var count = new long[1];
+    prefix.forEachRemaining(entry -> count[0]++);
+    suffix.forEachRemaining(entry -> count[0]++);
+    assertThat(count[0]).isEqualTo(40_000L);
+  }
+
+  @Test
+  void shouldVisitEveryEntryOfGrowingHashMapWithCursor() {
+    // Arrange
+    final var underTest = new OpenAddressingHashMap<Integer, Integer>(16, 0.75f);
+    for (int i = 0; i < 13; i++) {
+      underTest.put(i, i);
+    }
+
+    // Act
+    final var cursor = underTest.cursor();
+    var count = 0;
+    while (cursor.next()) {
+      assertThat(cursor.value()).isEqualTo(cursor.key());
+      count++;
+    }
+
+    // Assert
+    assertThat(count).isEqualTo(13);
+    assertThat(underTest.capacity()).isEqualTo(32);
+  }
+
+  @Test
+  void shouldHandEntriesRefusedByLimitedProbingToOverflowListener() {
+    // Arrange
+    final var overflowed = new ArrayList<String>();
+    final var underTest = new OpenAddressingHashMap<Integer, String>(8);
+    underTest.limitProbing(8, 0.5f, (key, value) -> overflowed.add(key + "=" + value));
+
+    // Act
+    for (int i = 0; i < 6; i++) {
+      underTest.put(i, "test" + i);
+    }
+    underTest.putAll(new Integer[] {6}, new String[] {"test6"});
+
+    // Assert
+    assertThat(overflowed).containsExactly("4=test4", "5=test5", "6=test6");
+    assertThat(underTest.size()).isEqualTo(4);
+    assertThat(underTest.get(4)).isNull();
+    assertThat(underTest.put(3, "updated")).isEqualTo("test3");
+  }
+
+  @Test
+  void shouldOnlyEvictKeyBeforeFreeLocationWhenAtMaximumLoad() {
+    // Arrange - 0 is at location 0, 8 at location 7, 4 at location 4 and 5 at location 5, the maximum of 4 keys
+    final var underTest = new OpenAddressingHashMap<Integer, String>(8, EvictionPolicy.CLOCK);
+    underTest.limitProbing(8, 0.5f);
+
+    underTest.put(0, "a");
+    underTest.put(8, "b");
+    underTest.put(4, "c");
+    underTest.put(5, "d");
+
+    underTest.get(0);
+    underTest.get(8);
+
+    // Act - 16 probes locations 0, 7 and the empty 6, where a search for it stops, so a key beyond 6 cannot make room
+    final var old = underTest.put(16, "e");
+
+    // Assert - every key was referenced before the empty location, so the first is evicted
+    assertThat(old).isNull();
+    assertThat(underTest.get(16)).isEqualTo("e");
+    assertThat(underTest.size()).isEqualTo(4);
+    assertThat(underTest.get(0)).isNull();
+    assertThat(underTest.get(8)).isEqualTo("b");
+    assertThat(underTest.get(4)).isEqualTo("c");
+    assertThat(underTest.get(5)).isEqualTo("d");
+  }
+
+  @Test
+  void shouldFailPutRefusedByLimitedProbingWithoutOverflowListener() {
+    // Arrange
+    final var underTest = new OpenAddressingHashMap<Integer, String>(8);
+    underTest.limitProbing(1, 1f);
+    underTest.put(0, "test0");
+
+    // Act, Assert - 8 % 8 = location 0, already held, and no further location may be probed
+    assertThatThrownBy(() -> underTest.put(8, "test8")).hasMessage("hash map is full");
+    assertThat(underTest.get(0)).isEqualTo("test0");
+  }
+
   private record HashCollider(int hashCodeValue) {
 
     @Override
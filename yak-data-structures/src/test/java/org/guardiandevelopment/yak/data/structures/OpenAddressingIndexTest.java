@@ -1,7 +1,16 @@
 package org.guardiandevelopment.yak.data.structures;
 
 import static org.assertj.core.api.Assertions.assertThat;
-
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.junit.jupiter.api.Test;
 
 class OpenAddressingIndexTest {
@@ -43,12 +52,12 @@ class OpenAddressingIndexTest {
 
     underTest.getExistingOrAssign(key1);
 
-    // Act - 1 + (16 % 7) = 3
-    // 0 + 3 = next position 3
+    // Act - ((16 * 0x9E3779B9) >>> 29) | 1 = 7
+    // 0 + 7 = next position 7
     final var location = underTest.getExistingOrAssign(key2);
 
     // Assert
-    assertThat(location).isEqualTo(3);
+    assertThat(location).isEqualTo(7);
   }
 
   @Test
@@ -61,12 +70,12 @@ class OpenAddressingIndexTest {
     underTest.getExistingOrAssign(key1);
     underTest.getExistingOrAssign(key2);
 
-    // Act - 1 + (16 % 7) = 3
-    // 0 + 3 = next position 3
+    // Act - ((16 * 0x9E3779B9) >>> 29) | 1 = 7
+    // 0 + 7 = next position 7
     final var location = underTest.getExistingOrAssign(key2);
 
     // Assert
-    assertThat(location).isEqualTo(3);
+    assertThat(location).isEqualTo(7);
   }
 
   @Test
@@ -167,8 +176,8 @@ class OpenAddressingIndexTest {
     underTest.getExistingOrAssign(key1);
     underTest.getExistingOrAssign(key2);
 
-    // Act - 1 + (6 % 3) = 1
-    // (2 + 1) % 4 = next position 3
+    // Act - ((6 * 0x9E3779B9) >>> 30) | 1 = 3
+    // (2 + 3) % 4 = next position 1
     final var deleted = underTest.delete(key2);
 
     // Assert
@@ -184,8 +193,8 @@ class OpenAddressingIndexTest {
 
     underTest.getExistingOrAssign(key1);
 
-    // Act - 1 + (6 % 3) = 1
-    // (2 + 1) % 4 = next position 3
+    // Act - ((6 * 0x9E3779B9) >>> 30) | 1 = 3
+    // (2 + 3) % 4 = next position 1
     final var deleted = underTest.delete(key2);
 
     // Assert
@@ -206,7 +215,7 @@ class OpenAddressingIndexTest {
     underTest.getExistingOrAssign(key3);
     underTest.getExistingOrAssign(key4);
 
-    // Act - 1 + (18 % 3) = 1
+    // Act - ((18 * 0x9E3779B9) >>> 30) | 1 = 1
     // (2 + 1) % 4 = next position 3, 0, 1, 2
     final var nonExistingKey = new FixedHashCodeOf(18); // 18 % 4 = location 2
 
@@ -242,12 +251,12 @@ class OpenAddressingIndexTest {
     underTest.getExistingOrAssign(key1);
     underTest.getExistingOrAssign(key2);
 
-    // Act - 1 + (6 % 3) = 1
-    // 2 + 1 = 3
+    // Act - ((6 * 0x9E3779B9) >>> 30) | 1 = 3
+    // (2 + 3) % 4 = 1
     final var existing = underTest.get(key2);
 
     // Assert
-    assertThat(existing).isEqualTo(3);
+    assertThat(existing).isEqualTo(1);
   }
 
   @Test
@@ -296,6 +305,367 @@ class OpenAddressingIndexTest {
     assertThat(existing).isNull();
   }
 
+  @Test
+  void shouldEvictFirstUnreferencedKeyOnProbePathWhenFull() {
+    // Arrange
+    final var evicted = new ArrayList<FixedHashCodeOf>();
+    final var underTest = new OpenAddressingIndex<FixedHashCodeOf>(
+        4, EvictionPolicy.CLOCK, (key, location) -> evicted.add(key));
+    final var keys = fill(underTest);
+
+    underTest.get(keys.get(0));
+    underTest.get(keys.get(1));
+    underTest.get(keys.get(3));
+
+    final var newKey = new FixedHashCodeOf(6); // 6 % 4 = location 2, ((6 * 0x9E3779B9) >>> 30) | 1 = 3
+
+    // Act
+    final var location = underTest.getExistingOrAssign(newKey);
+
+    // Assert
+    assertThat(location).isEqualTo(2);
+    assertThat(evicted).containsExactly(keys.get(2));
+    assertThat(underTest.get(keys.get(2))).isNull();
+    assertThat(underTest.get(newKey)).isEqualTo(2);
+  }
+
+  @Test
+  void shouldGiveReferencedKeysSecondChanceWhenEvicting() {
+    // Arrange
+    final var evicted = new ArrayList<FixedHashCodeOf>();
+    final var underTest = new OpenAddressingIndex<FixedHashCodeOf>(
+        4, EvictionPolicy.CLOCK, (key, location) -> evicted.add(key));
+    final var keys = fill(underTest);
+
+    underTest.get(keys.get(2));
+
+    // Act - ((6 * 0x9E3779B9) >>> 30) | 1 = 3, location 2 is referenced so is passed over, location 1 is not
+    final var location = underTest.getExistingOrAssign(new FixedHashCodeOf(6));
+
+    // Assert
+    assertThat(location).isEqualTo(1);
+    assertThat(evicted).containsExactly(keys.get(1));
+    assertThat(underTest.get(keys.get(2))).isEqualTo(2);
+  }
+
+  @Test
+  void shouldEvictKeyAtStartingLocationWhenAllKeysReferenced() {
+    // Arrange
+    final var underTest = new OpenAddressingIndex<FixedHashCodeOf>(4, EvictionPolicy.CLOCK);
+    final var keys = fill(underTest);
+    keys.forEach(underTest::get);
+
+    final var newKey = new FixedHashCodeOf(6); // 6 % 4 = location 2, ((6 * 0x9E3779B9) >>> 30) | 1 = 3
+
+    // Act
+    final var first = underTest.getExistingOrAssign(newKey);
+    underTest.get(newKey);
+
+    // 10 % 4 = location 2, ((10 * 0x9E3779B9) >>> 30) | 1 = 1, so the probe path is 2, 3, 0, 1
+    final var second = underTest.getExistingOrAssign(new FixedHashCodeOf(10));
+
+    // Assert - the first sweep cleared every reference, so the second evicts the first key after the new key
+    assertThat(first).isEqualTo(2);
+    assertThat(second).isEqualTo(3);
+  }
+
+  @Test
+  void shouldNotEvictWhenKeyAlreadyPresentInFullIndex() {
+    // Arrange
+    final var evicted = new ArrayList<FixedHashCodeOf>();
+    final var underTest = new OpenAddressingIndex<FixedHashCodeOf>(
+        4, EvictionPolicy.CLOCK, (key, location) -> evicted.add(key));
+    final var keys = fill(underTest);
+
+    // Act
+    final var location = underTest.getExistingOrAssign(keys.get(3));
+
+    // Assert
+    assertThat(location).isEqualTo(3);
+    assertThat(evicted).isEmpty();
+  }
+
+  @Test
+  void shouldNotLeaveDeletedMarkerWhenNoKeyPassesThroughLocation() {
+    // Arrange
+    final var underTest = new OpenAddressingIndex<Integer>(16);
+
+    underTest.getExistingOrAssign(1);
+
+    // Act
+    underTest.delete(1);
+
+    // Assert
+    assertThat(underTest.size()).isEqualTo(0);
+    assertThat(underTest.tombstones()).isEqualTo(0);
+  }
+
+  @Test
+  void shouldClearDeletedMarkerOnceLastKeyPassingThroughIsDeleted() {
+    // Arrange - 1 and 17 both start at location 1, so 17 passes through location 1 on its way to location 2
+    final var underTest = new OpenAddressingIndex<Integer>(16);
+
+    underTest.getExistingOrAssign(1);
+    underTest.getExistingOrAssign(17);
+    underTest.delete(1);
+    final var tombstonesWhilePassedThrough = underTest.tombstones();
+
+    // Act
+    underTest.delete(17);
+
+    // Assert
+    assertThat(tombstonesWhilePassedThrough).isEqualTo(1);
+    assertThat(underTest.tombstones()).isEqualTo(0);
+  }
+
+  @Test
+  void shouldMoveKeyBackToDeletedLocationOnItsProbePathWhenCompacting() {
+    // Arrange
+    final var underTest = new OpenAddressingIndex<Integer>(16);
+    final var relocations = new ArrayList<int[]>();
+
+    underTest.getExistingOrAssign(1);
+    underTest.getExistingOrAssign(17);
+    underTest.delete(1);
+
+    // Act
+    final var relocated = underTest.compact((from, to) -> relocations.add(new int[] {from, to}));
+
+    // Assert
+    assertThat(relocated).isEqualTo(1);
+    assertThat(relocations.get(0)).containsExactly(10, 1);
+    assertThat(underTest.get(17)).isEqualTo(1);
+    assertThat(underTest.tombstones()).isEqualTo(0);
+  }
+
+  @Test
+  void shouldOnlyExamineRequestedLocationsWhenCompactingIncrementally() {
+    // Arrange
+    final var underTest = new OpenAddressingIndex<Integer>(16);
+
+    underTest.getExistingOrAssign(1);
+    underTest.getExistingOrAssign(17);
+    underTest.delete(1);
+
+    // Act - ((17 * 0x9E3779B9) >>> 28) | 1 = 9, 17 is at location 10, so the first 10 locations leave it in place and
+    // the eleventh moves it
+    final var firstSlice = underTest.compact(10, (from, to) -> {
+    });
+    final var secondSlice = underTest.compact(1, (from, to) -> {
+    });
+
+    // Assert
+    assertThat(firstSlice).isEqualTo(0);
+    assertThat(secondSlice).isEqualTo(1);
+    assertThat(underTest.get(17)).isEqualTo(1);
+  }
+
+  @Test
+  void shouldHoldKeysOfNegativeHashCode() {
+    // Arrange - -7 & 3 = location 1, -3 & 3 = location 1, ((-3 * 0x9E3779B9) >>> 30) | 1 = 1, so -3 moves on to
+    // location 2
+    final var underTest = new OpenAddressingIndex<FixedHashCodeOf>(4);
+
+    underTest.getExistingOrAssign(new FixedHashCodeOf(-7));
+    underTest.getExistingOrAssign(new FixedHashCodeOf(-3));
+
+    // Act
+    final var result = underTest.get(new FixedHashCodeOf(-3));
+
+    // Assert
+    assertThat(underTest.get(new FixedHashCodeOf(-7))).isEqualTo(1);
+    assertThat(result).isEqualTo(2);
+  }
+
+  @Test
+  void shouldOnlyCompareKeysOfEqualHashWhenCachingHashes() {
+    // Arrange - 4 and 8 both start at location 0, ((8 * 0x9E3779B9) >>> 30) | 1 = 3, so 8 moves on to location 3
+    final var comparisons = new AtomicInteger();
+    final var underTest = new OpenAddressingIndex<FixedHashCodeOf>(4, new Hasher<>() {
+
+      @Override
+      public int hash(final FixedHashCodeOf key) {
+        return key.hashCode();
+      }
+
+      @Override
+      public boolean equals(final FixedHashCodeOf key, final FixedHashCodeOf other) {
+        comparisons.incrementAndGet();
+        return key.equals(other);
+      }
+    }, true);
+
+    underTest.getExistingOrAssign(new FixedHashCodeOf(4));
+
+    // Act
+    final var location = underTest.getExistingOrAssign(new FixedHashCodeOf(8));
+
+    // Assert
+    assertThat(location).isEqualTo(3);
+    assertThat(comparisons.get()).isEqualTo(0);
+  }
+
+  private static List<FixedHashCodeOf> fill(final OpenAddressingIndex<FixedHashCodeOf> index) {
+
+    final var keys = new ArrayList<FixedHashCodeOf>();
+    for (int i = 0; i < 4; i++) {
+      final var key = new FixedHashCodeOf(i); // i % 4 = location i
+      index.getExistingOrAssign(key);
+      keys.add(key);
+    }
+    return keys;
+  }
+
+  @Test
+  void shouldGetLocationOfEveryKeyInBatch() {
+    // Arrange - more keys than one batch, with a null and a missing key
+    final var underTest = new OpenAddressingIndex<Integer>(256);
+    final var keys = new Integer[100];
+    for (int i = 0; i < keys.length; i++) {
+      keys[i] = i * 7;
+      underTest.getExistingOrAssign(keys[i]);
+    }
+    keys[10] = null;
+    keys[90] = 1_000;
+    final var slots = new int[keys.length];
+
+    // Act
+    final var found = underTest.getAll(keys, slots);
+
+    // Assert
+    assertThat(found).isEqualTo(98);
+    assertThat(slots[10]).isEqualTo(OpenAddressingIndex.NO_SLOT);
+    assertThat(slots[90]).isEqualTo(OpenAddressingIndex.NO_SLOT);
+    for (int i = 0; i < keys.length; i++) {
+      if (i != 10 && i != 90) {
+        assertThat(slots[i]).isEqualTo(underTest.get(keys[i]));
+      }
+    }
+  }
+
+  @Test
+  void shouldAssignKeysInBatchInOrderOfKeys() {
+    // Arrange - 4 and 8 both start at location 0, a repeated key keeps its first assignment
+    final var underTest = new OpenAddressingIndex<Integer>(4);
+    final var keys = new Integer[] {4, 8, 4, null, 1, 2};
+    final var slots = new int[keys.length];
+
+    // Act
+    underTest.getExistingOrAssignAll(keys, slots);
+
+    // Assert - ((8 * 0x9E3779B9) >>> 30) | 1 = 3, so 8 moves on to location 3
+    assertThat(slots).containsExactly(0, 3, 0, OpenAddressingIndex.NO_SLOT, 1, 2);
+    assertThat(underTest.size()).isEqualTo(4);
+  }
+
+  @Test
+  void shouldRestoreEveryKeyToItsLocationFromSnapshot() throws IOException {
+    // Arrange
+    final var original = new OpenAddressingIndex<String>(64);
+    for (int i = 0; i < 40; i++) {
+      original.getExistingOrAssign("key" + i);
+    }
+    original.delete("key3");
+    final var bytes = new ByteArrayOutputStream();
+    original.snapshot(Channels.newChannel(bytes), SlotCodec.strings());
+    final var underTest = new OpenAddressingIndex<String>(64);
+
+    // Act
+    underTest.restore(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())), SlotCodec.strings());
+
+    // Assert
+    assertThat(underTest.size()).isEqualTo(39);
+    assertThat(underTest.get("key3")).isNull();
+    for (int i = 0; i < 40; i++) {
+      assertThat(underTest.get("key" + i)).isEqualTo(original.get("key" + i));
+    }
+  }
+
+  @Test
+  void shouldRefuseSnapshotHoldingUnknownLocationStateAndBeLeftEmpty() throws IOException {
+    // Arrange - an empty index, so the snapshot ends with the state of its last location
+    final var bytes = new ByteArrayOutputStream();
+    new OpenAddressingIndex<String>(4).snapshot(Channels.newChannel(bytes), SlotCodec.strings());
+    final var corrupt = bytes.toByteArray();
+    corrupt[corrupt.length - 1] = 7;
+    final var underTest = new OpenAddressingIndex<String>(4);
+    underTest.getExistingOrAssign("key");
+
+    // Act, Assert
+    assertThatThrownBy(() -> underTest.restore(Channels.newChannel(new ByteArrayInputStream(corrupt)), SlotCodec.strings()))
+        .isInstanceOf(IOException.class)
+        .hasMessageContaining("unknown state 7");
+    assertThat(underTest.size()).isEqualTo(0);
+  }
+
+  @Test
+  void shouldRefuseNewKeyWithNoFreeLocationWithinMaxProbeLength() {
+    // Arrange
+    final var underTest = new OpenAddressingIndex<FixedHashCodeOf>(8);
+    underTest.limitProbing(2, 1f);
+    underTest.getExistingOrAssign(new FixedHashCodeOf(0)); // 0 % 8 = location 0
+    underTest.getExistingOrAssign(new FixedHashCodeOf(7)); // 7 % 8 = location 7
+
+    // Act - 8 % 8 = location 0, ((8 * 0x9E3779B9) >>> 29) | 1 = 7, so location 7 is the second and last location probed
+    final var location = underTest.getExistingOrAssign(new FixedHashCodeOf(8));
+
+    // Assert
+    assertThat(location).isNull();
+    assertThat(underTest.size()).isEqualTo(2);
+    assertThat(underTest.getExistingOrAssign(new FixedHashCodeOf(2))).isEqualTo(2);
+  }
+
+  @Test
+  void shouldRefuseNewKeyOnceMaxLoadIsHeldButKeepExistingKeys() {
+    // Arrange
+    final var underTest = new OpenAddressingIndex<Integer>(8);
+    underTest.limitProbing(8, 0.5f);
+    for (int i = 0; i < 4; i++) {
+      underTest.getExistingOrAssign(i);
+    }
+
+    // Act
+    final var location = underTest.getExistingOrAssign(4);
+
+    // Assert
+    assertThat(location).isNull();
+    assertThat(underTest.getExistingOrAssign(2)).isEqualTo(underTest.get(2));
+    assertThat(underTest.size()).isEqualTo(4);
+  }
+
+  @Test
+  void shouldOnlySearchAsFarAsLongestProbeOfAnyKey() {
+    // Arrange
+    final var underTest = new OpenAddressingIndex<FixedHashCodeOf>(16);
+    underTest.getExistingOrAssign(new FixedHashCodeOf(0));  // 0 % 16 = location 0
+    final var firstProbe = underTest.longestProbe();
+
+    // Act - 16 % 16 = location 0, ((16 * 0x9E3779B9) >>> 28) | 1 = 15, so assigned location 15 on the second probe
+    underTest.getExistingOrAssign(new FixedHashCodeOf(16));
+
+    // Assert
+    assertThat(firstProbe).isEqualTo(1);
+    assertThat(underTest.longestProbe()).isEqualTo(2);
+    assertThat(underTest.get(new FixedHashCodeOf(16))).isEqualTo(15);
+    assertThat(underTest.get(new FixedHashCodeOf(32))).isNull();
+  }
+
+  @Test
+  void shouldNotGiveSequentialIdsBelowTableSizeTheSameProbeIncrement() {
+    // Arrange - under the identity hasher sequential ids are their own hashes, all below the size of the table
+    final var size = 1 << 10;
+    final var increments = new HashSet<Integer>();
+
+    // Act
+    for (int id = 0; id < size; id++) {
+      increments.add(IntegerExtensions.probeIncrement(id, Integer.numberOfTrailingZeros(size), size - 1));
+    }
+
+    // Assert - the increments are spread over the odd values up to the size, rather than all being 1
+    assertThat(increments.size()).isGreaterThan(size / 4);
+    assertThat(increments.stream().allMatch(increment -> (increment & 1) == 1)).isTrue();
+  }
+
   private record FixedHashCodeOf(int hashCodeValue) {
 
     @Override
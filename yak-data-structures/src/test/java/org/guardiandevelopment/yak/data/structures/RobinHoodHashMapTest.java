@@ -0,0 +1,113 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import org.junit.jupiter.api.Test;
+
+class RobinHoodHashMapTest {
+
+  @Test
+  void shouldBeAbleToGetValueAssociatedWithKey() {
+    // Arrange
+    final FixedSizeMap<Integer, String> underTest = new RobinHoodHashMap<>(4);
+
+    underTest.put(1, "test1");
+
+    // Act
+    final var result = underTest.get(1);
+
+    // Assert
+    assertThat(result).isEqualTo("test1");
+  }
+
+  @Test
+  void shouldReturnOldValueWhenReplacingKey() {
+    // Arrange
+    final var underTest = new RobinHoodHashMap<Integer, String>(4);
+
+    underTest.put(1, "test1");
+
+    // Act
+    final var old = underTest.put(1, "testNew1");
+
+    // Assert
+    assertThat(old).isEqualTo("test1");
+    assertThat(underTest.get(1)).isEqualTo("testNew1");
+    assertThat(underTest.size()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldFindKeyDisplacedByPoorerKey() {
+    // Arrange - 2 starts at location 2, then 9 starting at location 1 is pushed to location 2 by 1, and takes it from
+    // 2, which is closer to its initial location
+    final var underTest = new RobinHoodHashMap<Integer, String>(8);
+
+    underTest.put(2, "test2");
+    underTest.put(1, "test1");
+    underTest.put(9, "test9");
+
+    // Act
+    final var result1 = underTest.get(1);
+    final var result2 = underTest.get(2);
+    final var result9 = underTest.get(9);
+
+    // Assert
+    assertThat(result1).isEqualTo("test1");
+    assertThat(result2).isEqualTo("test2");
+    assertThat(result9).isEqualTo("test9");
+  }
+
+  @Test
+  void shouldShiftFollowingKeysBackOnDelete() {
+    // Arrange - 1, 5 and 9 all start at location 1
+    final var underTest = new RobinHoodHashMap<Integer, String>(4);
+
+    underTest.put(1, "test1");
+    underTest.put(5, "test5");
+    underTest.put(9, "test9");
+
+    // Act
+    final var old = underTest.delete(1);
+
+    // Assert
+    assertThat(old).isEqualTo("test1");
+    assertThat(underTest.get(1)).isNull();
+    assertThat(underTest.get(5)).isEqualTo("test5");
+    assertThat(underTest.get(9)).isEqualTo("test9");
+    assertThat(underTest.size()).isEqualTo(2);
+  }
+
+  @Test
+  void shouldReturnNullWhenDeletingMissingKey() {
+    // Arrange
+    final var underTest = new RobinHoodHashMap<Integer, String>(4);
+
+    underTest.put(1, "test1");
+
+    // Act
+    final var old = underTest.delete(5);
+
+    // Assert
+    assertThat(old).isNull();
+    assertThat(underTest.get(1)).isEqualTo("test1");
+  }
+
+  @Test
+  void shouldFillEveryLocationBeforeReportingFull() {
+    // Arrange
+    final var underTest = new RobinHoodHashMap<Integer, String>(4);
+
+    for (int i = 0; i < 4; i++) {
+      underTest.put(i * 4, "test" + i);
+    }
+
+    // Act
+    final var old = underTest.put(8, "testNew2");
+
+    // Assert
+    assertThat(old).isEqualTo("test2");
+    assertThat(underTest.get(12)).isEqualTo("test3");
+    assertThatThrownBy(() -> underTest.put(16, "test4")).hasMessageContaining("hash map is full");
+  }
+}
@@ -0,0 +1,123 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class SingleWriterOpenAddressingIndexTest {
+
+  @Test
+  void shouldAssignSameLocationToExistingKey() {
+    // Arrange
+    final var underTest = new SingleWriterOpenAddressingIndex<Integer>(16);
+
+    final var assigned = underTest.getExistingOrAssign(3);
+
+    // Act
+    final var result = underTest.getExistingOrAssign(3);
+
+    // Assert
+    assertThat(result).isEqualTo(3);
+    assertThat(underTest.get(3)).isEqualTo(assigned);
+  }
+
+  @Test
+  void shouldReuseDeletedLocationPassedOnProbePath() {
+    // Arrange - 1, 17 and 33 all start at location 1, 17 is placed at location 1 + 9 = 10, and 33 next probes 1 + 7 = 8
+    final var underTest = new SingleWriterOpenAddressingIndex<Integer>(16);
+
+    underTest.getExistingOrAssign(1);
+    underTest.getExistingOrAssign(17);
+    underTest.delete(1);
+
+    // Act
+    final var result = underTest.getExistingOrAssign(33);
+
+    // Assert
+    assertThat(result).isEqualTo(1);
+    assertThat(underTest.get(1)).isNull();
+    assertThat(underTest.get(17)).isEqualTo(10);
+  }
+
+  @Test
+  void shouldOnlyInitializeNewlyAssignedLocations() {
+    // Arrange
+    final var underTest = new SingleWriterOpenAddressingIndex<Integer>(16);
+    final var initialized = new AtomicInteger();
+
+    underTest.getExistingOrAssign(5, location -> initialized.incrementAndGet());
+
+    // Act
+    underTest.getExistingOrAssign(5, location -> initialized.incrementAndGet());
+
+    // Assert
+    assertThat(initialized.get()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldReturnNullWhenFull() {
+    // Arrange
+    final var underTest = new SingleWriterOpenAddressingIndex<Integer>(2);
+
+    underTest.getExistingOrAssign(0);
+    underTest.getExistingOrAssign(1);
+
+    // Act
+    final var result = underTest.getExistingOrAssign(2);
+
+    // Assert
+    assertThat(result).isNull();
+  }
+
+  @Test
+  void shouldNeverHideStableKeysOrUnpublishedValuesFromReaders() throws InterruptedException {
+    // Arrange - stable keys stay present, while churn keys are assigned and deleted so their probe paths leave
+    // deleted locations behind that are reused, readers must always find every stable key and its value
+    final var size = 1 << 10;
+    final var underTest = new SingleWriterOpenAddressingIndex<Integer>(size);
+    final var values = new int[size];
+    final var stableKeys = 256;
+    for (int key = 0; key < stableKeys; key++) {
+      final var value = key;
+      underTest.getExistingOrAssign(key, location -> values[location] = value);
+    }
+
+    final var done = new AtomicBoolean();
+    final var failures = new AtomicInteger();
+    final var readers = new Thread[2];
+    for (int r = 0; r < readers.length; r++) {
+      readers[r] = new Thread(() -> {
+        while (!done.get()) {
+          for (int key = 0; key < stableKeys; key++) {
+            final var location = underTest.get(key);
+            if (location == null || values[location] != key) {
+              failures.incrementAndGet();
+            }
+          }
+        }
+      });
+    }
+
+    // Act
+    for (final var reader : readers) {
+      reader.start();
+    }
+    for (int round = 0; round < 2_000; round++) {
+      for (int key = 0; key < 256; key++) {
+        final var churnKey = stableKeys + (round % 4) * 256 + key;
+        final var value = churnKey;
+        underTest.getExistingOrAssign(churnKey, location -> values[location] = value);
+        underTest.delete(stableKeys + ((round + 2) % 4) * 256 + key);
+      }
+    }
+    done.set(true);
+    for (final var reader : readers) {
+      reader.join();
+    }
+
+    // Assert
+    assertThat(failures.get()).isEqualTo(0);
+  }
+}
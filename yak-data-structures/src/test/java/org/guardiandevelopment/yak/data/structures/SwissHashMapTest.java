@@ -0,0 +1,134 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class SwissHashMapTest {
+
+  @Test
+  void shouldBeAbleToGetValueAssociatedWithKey() {
+    // Arrange
+    final FixedSizeMap<String, String> underTest = new SwissHashMap<>(8);
+
+    underTest.put("key1", "test1");
+
+    // Act
+    final var result = underTest.get("key1");
+
+    // Assert
+    assertThat(result).isEqualTo("test1");
+  }
+
+  @Test
+  void shouldReturnOldValueWhenReplacingKey() {
+    // Arrange
+    final var underTest = new SwissHashMap<Integer, String>(8);
+
+    underTest.put(1, "test1");
+
+    // Act
+    final var old = underTest.put(1, "testNew1");
+
+    // Assert
+    assertThat(old).isEqualTo("test1");
+    assertThat(underTest.get(1)).isEqualTo("testNew1");
+    assertThat(underTest.size()).isEqualTo(1);
+  }
+
+  @Test
+  void shouldMarkLocationEmptyOnDeleteWhileGroupHasEmptyLocation() {
+    // Arrange
+    final var underTest = new SwissHashMap<Integer, String>(8);
+
+    underTest.put(1, "test1");
+    underTest.put(2, "test2");
+
+    // Act
+    final var old = underTest.delete(1);
+
+    // Assert
+    assertThat(old).isEqualTo("test1");
+    assertThat(underTest.get(1)).isNull();
+    assertThat(underTest.get(2)).isEqualTo("test2");
+    assertThat(underTest.tombstones()).isEqualTo(0);
+  }
+
+  @Test
+  void shouldMarkLocationDeletedOnceGroupHasBeenFull() {
+    // Arrange - a single group of 8, which once full, may have been passed by a search
+    final var underTest = new SwissHashMap<Integer, String>(8);
+
+    for (int i = 0; i < 8; i++) {
+      underTest.put(i, "test" + i);
+    }
+
+    // Act
+    underTest.delete(3);
+    final var tombstonesAfterDelete = underTest.tombstones();
+    underTest.put(8, "test8");
+
+    // Assert
+    assertThat(tombstonesAfterDelete).isEqualTo(1);
+    assertThat(underTest.get(8)).isEqualTo("test8");
+    assertThat(underTest.tombstones()).isEqualTo(0);
+    assertThat(underTest.size()).isEqualTo(8);
+    assertThatThrownBy(() -> underTest.put(9, "test9")).hasMessageContaining("hash map is full");
+  }
+
+  @Test
+  void shouldFindKeysInEveryGroupWhenNearlyFull() {
+    // Arrange
+    final var underTest = new SwissHashMap<Integer, Integer>(64);
+
+    for (int i = 0; i < 60; i++) {
+      underTest.put(i * 31, i);
+    }
+
+    // Act
+    underTest.delete(31);
+
+    // Assert
+    assertThat(underTest.get(31)).isNull();
+    for (int i = 2; i < 60; i++) {
+      assertThat(underTest.get(i * 31)).isEqualTo(i);
+    }
+  }
+
+  @Test
+  void shouldOnlyCompareKeysWhoseHashBitsMatch() {
+    // Arrange - 48 keys in 64 locations, each with 1 in 128 chance of a fingerprint matching a missing key
+    final var underTest = new SwissHashMap<CountingKey, Integer>(64);
+    final var comparisons = new AtomicInteger();
+
+    for (int i = 0; i < 48; i++) {
+      underTest.put(new CountingKey(i * 2, comparisons), i);
+    }
+
+    // Act
+    for (int i = 0; i < 1_000; i++) {
+      underTest.get(new CountingKey(i * 2 + 1, comparisons));
+    }
+
+    // Assert
+    assertThat(comparisons.get()).isLessThan(100);
+  }
+
+  private record CountingKey(int value, AtomicInteger comparisons) {
+
+    @Override
+    public boolean equals(Object o) {
+
+      comparisons.incrementAndGet();
+      return o instanceof CountingKey other && other.value == value;
+    }
+
+    @Override
+    public int hashCode() {
+
+      return value;
+    }
+  }
+}
@@ -0,0 +1,111 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.lang.management.ManagementFactory;
+import org.junit.jupiter.api.Test;
+
+class TableMetricsTest {
+
+  @Test
+  void shouldBucketProbeLengthsByPowersOf2() {
+    // Act, Assert
+    assertThat(TableMetrics.probeLengthBucket(1)).isEqualTo(0);
+    assertThat(TableMetrics.probeLengthBucket(2)).isEqualTo(1);
+    assertThat(TableMetrics.probeLengthBucket(3)).isEqualTo(2);
+    assertThat(TableMetrics.probeLengthBucket(4)).isEqualTo(2);
+    assertThat(TableMetrics.probeLengthBucket(5)).isEqualTo(3);
+    assertThat(TableMetrics.probeLengthBucket(64)).isEqualTo(6);
+    assertThat(TableMetrics.probeLengthBucket(65)).isEqualTo(7);
+    assertThat(TableMetrics.probeLengthBucket(1 << 20)).isEqualTo(7);
+  }
+
+  @Test
+  void shouldRecordOperationsAndProbeLengthsOfIndex() {
+    // Arrange - 0 and 16 both start at location 0, ((16 * 0x9E3779B9) >>> 29) | 1 = 7, so 16 is found on the second
+    // probe, and once 0 is deleted its marker stays for 16 to pass through, so deleting 0 again moves on to the empty
+    // location 1
+    final var underTest = new OpenAddressingIndex<Integer>(8);
+    final var metrics = underTest.enableMetrics();
+    underTest.getExistingOrAssign(0);
+    underTest.getExistingOrAssign(16);
+
+    // Act
+    underTest.get(16);
+    underTest.get(1);
+    underTest.delete(0);
+    underTest.delete(0);
+
+    // Assert
+    final var snapshot = metrics.snapshot();
+    assertThat(snapshot.puts()).isEqualTo(2);
+    assertThat(snapshot.hits()).isEqualTo(1);
+    assertThat(snapshot.misses()).isEqualTo(1);
+    assertThat(snapshot.deletes()).isEqualTo(1);
+    assertThat(snapshot.size()).isEqualTo(1);
+    assertThat(snapshot.tombstones()).isEqualTo(1);
+    assertThat(snapshot.capacity()).isEqualTo(8);
+    assertThat(snapshot.probeLengthHistogram()).containsExactly(3, 3, 0, 0, 0, 0, 0, 0);
+  }
+
+  @Test
+  void shouldRecordFailedPutOfFullHashMap() {
+    // Arrange
+    final var underTest = new OpenAddressingHashMap<Integer, String>(2);
+    final var metrics = underTest.enableMetrics();
+    underTest.put(0, "test0");
+    underTest.put(1, "test1");
+
+    // Act
+    assertThatThrownBy(() -> underTest.put(2, "test2")).hasMessageContaining("full");
+
+    // Assert
+    assertThat(metrics.getPuts()).isEqualTo(2);
+    assertThat(metrics.getFailures()).isEqualTo(1);
+    assertThat(metrics.snapshot().occupancy()).isEqualTo(1.0);
+  }
+
+  @Test
+  void shouldKeepRecordingIntoSameMetricsOnceHashMapGrows() {
+    // Arrange
+    final var underTest = new OpenAddressingHashMap<Integer, String>(4, 0.5f);
+    final var metrics = underTest.enableMetrics();
+
+    // Act
+    for (int i = 0; i < 10; i++) {
+      underTest.put(i, "test" + i);
+    }
+    for (int i = 0; i < 20; i++) {
+      underTest.get(i);
+    }
+
+    // Assert
+    final var snapshot = metrics.snapshot();
+    assertThat(snapshot.puts()).isEqualTo(10);
+    assertThat(snapshot.hitRatio()).isEqualTo(0.5);
+    assertThat(snapshot.size()).isEqualTo(10);
+    assertThat(snapshot.capacity()).isEqualTo(underTest.capacity());
+  }
+
+  @Test
+  void shouldExposeMetricsThroughJmx() throws Exception {
+    // Arrange
+    final var underTest = new OpenAddressingHashMap<Integer, String>(16);
+    final var name = underTest.enableMetrics().register("shouldExposeMetricsThroughJmx");
+    underTest.put(1, "test1");
+    underTest.get(1);
+
+    try {
+      // Act
+      final var server = ManagementFactory.getPlatformMBeanServer();
+
+      // Assert
+      assertThat(server.getAttribute(name, "Hits")).isEqualTo(1L);
+      assertThat(server.getAttribute(name, "Size")).isEqualTo(1);
+      assertThat(server.getAttribute(name, "Capacity")).isEqualTo(16);
+    } finally {
+      ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+    }
+  }
+}
@@ -0,0 +1,84 @@
+package org.guardiandevelopment.yak.data.structures;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import org.junit.jupiter.api.Test;
+
+class WindowTinyLfuHashMapTest {
+
+  @Test
+  void shouldBeAbleToGetValueAssociatedWithKey() {
+    // Arrange
+    final var underTest = new WindowTinyLfuHashMap<Integer, String>(16, 2);
+
+    underTest.put(1, "test1");
+
+    // Act
+    final var result = underTest.get(1);
+
+    // Assert
+    assertThat(result).isEqualTo("test1");
+  }
+
+  @Test
+  void shouldBeAbleToReplaceValueOnceMovedToMainMap() {
+    // Arrange - putting 3 more keys through a window of 2 moves key 1 into the main map
+    final var underTest = new WindowTinyLfuHashMap<Integer, String>(16, 2);
+
+    underTest.put(1, "test1");
+    underTest.put(2, "test2");
+    underTest.put(3, "test3");
+    underTest.put(4, "test4");
+
+    // Act
+    final var old = underTest.put(1, "testNew1");
+
+    // Assert
+    assertThat(old).isEqualTo("test1");
+    assertThat(underTest.get(1)).isEqualTo("testNew1");
+  }
+
+  @Test
+  void shouldReturnOldValueOnDelete() {
+    // Arrange
+    final var underTest = new WindowTinyLfuHashMap<Integer, String>(16, 2);
+
+    underTest.put(1, "test1");
+
+    // Act
+    final var old = underTest.delete(1);
+
+    // Assert
+    assertThat(old).isEqualTo("test1");
+    assertThat(underTest.get(1)).isNull();
+  }
+
+  @Test
+  void shouldKeepFrequentlyUsedKeysThroughScanOfKeysSeenOnce() {
+    // Arrange
+    final var evicted = new ArrayList<Integer>();
+    final var underTest = new WindowTinyLfuHashMap<Integer, Integer>(64, 4, (key, value) -> evicted.add(key));
+
+    for (int hot = 0; hot < 32; hot++) {
+      underTest.put(hot, hot);
+    }
+    for (int round = 0; round < 5; round++) {
+      for (int hot = 0; hot < 32; hot++) {
+        underTest.get(hot);
+      }
+    }
+
+    // Act - the hot keys keep being read while the scan runs
+    for (int scan = 1000; scan < 11000; scan++) {
+      underTest.put(scan, scan);
+      underTest.get(scan % 32);
+    }
+
+    // Assert
+    for (int hot = 0; hot < 32; hot++) {
+      assertThat(underTest.get(hot)).isEqualTo(hot);
+    }
+    assertThat(evicted.stream().filter(key -> key < 32).count()).isEqualTo(0L);
+  }
+}
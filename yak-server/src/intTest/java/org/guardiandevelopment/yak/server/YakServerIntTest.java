@@ -0,0 +1,210 @@
+package org.guardiandevelopment.yak.server;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+import org.guardiandevelopment.yak.data.structures.BinaryKeyValueStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class YakServerIntTest {
+
+  private static final int KEY_LENGTH = 8;
+  private static final int VALUE_SIZE = 16;
+
+  private YakServer server;
+  private SocketChannel client;
+
+  @BeforeEach
+  void setUp() throws IOException {
+    server = YakServer.start(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), new BinaryKeyValueStore(1024, KEY_LENGTH, VALUE_SIZE));
+    client = SocketChannel.open(server.address());
+  }
+
+  @AfterEach
+  void tearDown() throws IOException {
+    client.close();
+    server.close();
+  }
+
+  @Test
+  void shouldGetValueSetByPreviousRequest() throws IOException {
+    // Arrange
+    send(set(1, key(7), value(42)));
+    assertThat(receive().getShort(BinaryProtocol.STATUS_OFFSET)).isEqualTo(BinaryProtocol.NO_ERROR);
+
+    // Act
+    send(get(BinaryProtocol.GET, 2, key(7)));
+    final var response = receive();
+
+    // Assert
+    assertThat(response.get(BinaryProtocol.MAGIC_OFFSET)).isEqualTo(BinaryProtocol.RESPONSE_MAGIC);
+    assertThat(response.getShort(BinaryProtocol.STATUS_OFFSET)).isEqualTo(BinaryProtocol.NO_ERROR);
+    assertThat(response.getInt(BinaryProtocol.OPAQUE_OFFSET)).isEqualTo(2);
+    assertThat(response.get(BinaryProtocol.EXTRAS_LENGTH_OFFSET)).isEqualTo((byte) BinaryProtocol.GET_EXTRAS_LENGTH);
+    assertThat(response.getLong(BinaryProtocol.HEADER_SIZE + BinaryProtocol.GET_EXTRAS_LENGTH)).isEqualTo(42L);
+  }
+
+  @Test
+  void shouldAnswerPipelinedQuietGetsOnlyForHitsThenNoop() throws IOException {
+    // Arrange
+    send(set(1, key(1), value(10)), set(2, key(3), value(30)));
+    receive();
+    receive();
+
+    // Act
+    send(
+        get(BinaryProtocol.GETQ, 10, key(1)),
+        get(BinaryProtocol.GETQ, 11, key(2)),
+        get(BinaryProtocol.GETQ, 12, key(3)),
+        header(BinaryProtocol.NOOP, 13, 0, 0, 0));
+
+    // Assert
+    final var first = receive();
+    assertThat(first.getInt(BinaryProtocol.OPAQUE_OFFSET)).isEqualTo(10);
+    assertThat(first.getLong(BinaryProtocol.HEADER_SIZE + BinaryProtocol.GET_EXTRAS_LENGTH)).isEqualTo(10L);
+    final var second = receive();
+    assertThat(second.getInt(BinaryProtocol.OPAQUE_OFFSET)).isEqualTo(12);
+    assertThat(second.getLong(BinaryProtocol.HEADER_SIZE + BinaryProtocol.GET_EXTRAS_LENGTH)).isEqualTo(30L);
+    final var noop = receive();
+    assertThat(noop.get(BinaryProtocol.OPCODE_OFFSET)).isEqualTo(BinaryProtocol.NOOP);
+    assertThat(noop.getInt(BinaryProtocol.OPAQUE_OFFSET)).isEqualTo(13);
+  }
+
+  @Test
+  void shouldNotFindKeyOnceDeleted() throws IOException {
+    // Arrange
+    send(set(1, key(5), value(50)));
+    receive();
+
+    // Act
+    send(delete(2, key(5)), delete(3, key(5)), get(BinaryProtocol.GET, 4, key(5)));
+
+    // Assert
+    assertThat(receive().getShort(BinaryProtocol.STATUS_OFFSET)).isEqualTo(BinaryProtocol.NO_ERROR);
+    assertThat(receive().getShort(BinaryProtocol.STATUS_OFFSET)).isEqualTo(BinaryProtocol.KEY_NOT_FOUND);
+    assertThat(receive().getShort(BinaryProtocol.STATUS_OFFSET)).isEqualTo(BinaryProtocol.KEY_NOT_FOUND);
+  }
+
+  @Test
+  void shouldRefuseValueOfWrongSizeAndKeepServingConnection() throws IOException {
+    // Act
+    final var wrongSize = ByteBuffer.allocate(VALUE_SIZE - 1);
+    final var tooLarge = ByteBuffer.allocate(1 << 20);
+    send(set(1, key(1), wrongSize), set(2, key(1), tooLarge), header((byte) 0x55, 3, 0, 0, 0), set(4, key(1), value(1)));
+
+    // Assert
+    assertThat(receive().getShort(BinaryProtocol.STATUS_OFFSET)).isEqualTo(BinaryProtocol.INVALID_ARGUMENTS);
+    assertThat(receive().getShort(BinaryProtocol.STATUS_OFFSET)).isEqualTo(BinaryProtocol.VALUE_TOO_LARGE);
+    assertThat(receive().getShort(BinaryProtocol.STATUS_OFFSET)).isEqualTo(BinaryProtocol.UNKNOWN_COMMAND);
+    final var stored = receive();
+    assertThat(stored.getInt(BinaryProtocol.OPAQUE_OFFSET)).isEqualTo(4);
+    assertThat(stored.getShort(BinaryProtocol.STATUS_OFFSET)).isEqualTo(BinaryProtocol.NO_ERROR);
+  }
+
+  @Test
+  void shouldAnswerEveryRequestOfPipelineLargerThanConnectionBuffers() throws IOException {
+    // Arrange - written from another thread, as the server stops reading while the answers are not being read
+    final var requests = 20_000;
+    final var writer = CompletableFuture.runAsync(() -> {
+      try {
+        for (int i = 0; i < requests; i++) {
+          send(set(i, key(i % 1000), value(i)));
+        }
+      } catch (IOException e) {
+        throw new RuntimeException(e);
+      }
+    });
+
+    // Act, Assert
+    for (int i = 0; i < requests; i++) {
+      final var response = receive();
+      assertThat(response.getInt(BinaryProtocol.OPAQUE_OFFSET)).isEqualTo(i);
+      assertThat(response.getShort(BinaryProtocol.STATUS_OFFSET)).isEqualTo(BinaryProtocol.NO_ERROR);
+    }
+    writer.join();
+  }
+
+  private void send(final ByteBuffer... requests) throws IOException {
+
+    for (final var request : requests) {
+      while (request.hasRemaining()) {
+        client.write(request);
+      }
+    }
+  }
+
+  // reads one whole response, header and body
+  private ByteBuffer receive() throws IOException {
+
+    final var header = readFully(ByteBuffer.allocate(BinaryProtocol.HEADER_SIZE));
+    final var response = ByteBuffer.allocate(BinaryProtocol.HEADER_SIZE + header.getInt(BinaryProtocol.BODY_LENGTH_OFFSET));
+    readFully(response.put(header.flip()));
+    return response;
+  }
+
+  private ByteBuffer readFully(final ByteBuffer buffer) throws IOException {
+
+    while (buffer.hasRemaining()) {
+      if (client.read(buffer) < 0) {
+        throw new IOException("server closed the connection");
+      }
+    }
+    return buffer;
+  }
+
+  private static ByteBuffer set(final int opaque, final ByteBuffer key, final ByteBuffer value) {
+
+    final var bodyLength = BinaryProtocol.SET_EXTRAS_LENGTH + key.remaining() + value.remaining();
+    return header(BinaryProtocol.SET, opaque, key.remaining(), BinaryProtocol.SET_EXTRAS_LENGTH, bodyLength)
+        .putInt(0)
+        .putInt(0)
+        .put(key)
+        .put(value)
+        .flip();
+  }
+
+  private static ByteBuffer get(final byte opcode, final int opaque, final ByteBuffer key) {
+    return header(opcode, opaque, key.remaining(), 0, key.remaining()).put(key).flip();
+  }
+
+  private static ByteBuffer delete(final int opaque, final ByteBuffer key) {
+    return header(BinaryProtocol.DELETE, opaque, key.remaining(), 0, key.remaining()).put(key).flip();
+  }
+
+  // a request header, with the buffer positioned after it ready for the body
+  private static ByteBuffer header(
+      final byte opcode,
+      final int opaque,
+      final int keyLength,
+      final int extrasLength,
+      final int bodyLength) {
+
+    final var request = ByteBuffer.allocate(BinaryProtocol.HEADER_SIZE + bodyLength)
+        .put(BinaryProtocol.REQUEST_MAGIC)
+        .put(opcode)
+        .putShort((short) keyLength)
+        .put((byte) extrasLength)
+        .put((byte) 0)
+        .putShort((short) 0)
+        .putInt(bodyLength)
+        .putInt(opaque)
+        .putLong(0L);
+    return bodyLength == 0 ? request.flip() : request;
+  }
+
+  private static ByteBuffer key(final long key) {
+    return ByteBuffer.allocate(KEY_LENGTH).putLong(0, key);
+  }
+
+  private static ByteBuffer value(final long value) {
+    return ByteBuffer.allocate(VALUE_SIZE).putLong(0, value);
+  }
+}
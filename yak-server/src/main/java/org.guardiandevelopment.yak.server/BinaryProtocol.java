@@ -0,0 +1,44 @@
+package org.guardiandevelopment.yak.server;
+
+/**
+ * The subset of the memcached binary protocol served, every request and response starts with a header of
+ * {@link #HEADER_SIZE} bytes, followed by a body of extras, key and value.
+ */
+final class BinaryProtocol {
+
+  static final int HEADER_SIZE = 24;
+
+  static final byte REQUEST_MAGIC = (byte) 0x80;
+  static final byte RESPONSE_MAGIC = (byte) 0x81;
+
+  // offsets into the header, shared by requests and responses
+  static final int MAGIC_OFFSET = 0;
+  static final int OPCODE_OFFSET = 1;
+  static final int KEY_LENGTH_OFFSET = 2;
+  static final int EXTRAS_LENGTH_OFFSET = 4;
+  static final int STATUS_OFFSET = 6;
+  static final int BODY_LENGTH_OFFSET = 8;
+  static final int OPAQUE_OFFSET = 12;
+  static final int CAS_OFFSET = 16;
+
+  static final byte GET = 0x00;
+  static final byte SET = 0x01;
+  static final byte DELETE = 0x04;
+  static final byte GETQ = 0x09;
+  static final byte NOOP = 0x0a;
+
+  // a get answers with flags as extras, a set carries flags and expiry
+  static final int GET_EXTRAS_LENGTH = 4;
+  static final int SET_EXTRAS_LENGTH = 8;
+
+  static final short NO_ERROR = 0x0000;
+  static final short KEY_NOT_FOUND = 0x0001;
+  static final short VALUE_TOO_LARGE = 0x0003;
+  static final short INVALID_ARGUMENTS = 0x0004;
+  static final short UNKNOWN_COMMAND = 0x0081;
+  static final short OUT_OF_MEMORY = 0x0082;
+  static final short NOT_SUPPORTED = 0x0083;
+
+  private BinaryProtocol() {
+  }
+}
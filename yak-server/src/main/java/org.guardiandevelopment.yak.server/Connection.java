@@ -0,0 +1,250 @@
+package org.guardiandevelopment.yak.server;
+
+import static org.guardiandevelopment.yak.server.BinaryProtocol.BODY_LENGTH_OFFSET;
+import static org.guardiandevelopment.yak.server.BinaryProtocol.CAS_OFFSET;
+import static org.guardiandevelopment.yak.server.BinaryProtocol.DELETE;
+import static org.guardiandevelopment.yak.server.BinaryProtocol.EXTRAS_LENGTH_OFFSET;
+import static org.guardiandevelopment.yak.server.BinaryProtocol.GET;
+import static org.guardiandevelopment.yak.server.BinaryProtocol.GETQ;
+import static org.guardiandevelopment.yak.server.BinaryProtocol.GET_EXTRAS_LENGTH;
+import static org.guardiandevelopment.yak.server.BinaryProtocol.HEADER_SIZE;
+import static org.guardiandevelopment.yak.server.BinaryProtocol.INVALID_ARGUMENTS;
+import static org.guardiandevelopment.yak.server.BinaryProtocol.KEY_LENGTH_OFFSET;
+import static org.guardiandevelopment.yak.server.BinaryProtocol.KEY_NOT_FOUND;
+import static org.guardiandevelopment.yak.server.BinaryProtocol.MAGIC_OFFSET;
+import static org.guardiandevelopment.yak.server.BinaryProtocol.NOOP;
+import static org.guardiandevelopment.yak.server.BinaryProtocol.NOT_SUPPORTED;
+import static org.guardiandevelopment.yak.server.BinaryProtocol.NO_ERROR;
+import static org.guardiandevelopment.yak.server.BinaryProtocol.OPAQUE_OFFSET;
+import static org.guardiandevelopment.yak.server.BinaryProtocol.OPCODE_OFFSET;
+import static org.guardiandevelopment.yak.server.BinaryProtocol.OUT_OF_MEMORY;
+import static org.guardiandevelopment.yak.server.BinaryProtocol.REQUEST_MAGIC;
+import static org.guardiandevelopment.yak.server.BinaryProtocol.RESPONSE_MAGIC;
+import static org.guardiandevelopment.yak.server.BinaryProtocol.SET;
+import static org.guardiandevelopment.yak.server.BinaryProtocol.SET_EXTRAS_LENGTH;
+import static org.guardiandevelopment.yak.server.BinaryProtocol.STATUS_OFFSET;
+import static org.guardiandevelopment.yak.server.BinaryProtocol.UNKNOWN_COMMAND;
+import static org.guardiandevelopment.yak.server.BinaryProtocol.VALUE_TOO_LARGE;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.SocketChannel;
+import org.guardiandevelopment.yak.data.structures.BinaryKeyValueStore;
+
+/**
+ * A client connection, answering each complete request held in its read buffer in the order received, so a client
+ * can pipeline many requests without waiting for each answer.
+ *
+ * <p>
+ * Keys and values are read straight from the direct read buffer by the store, and values copied straight into the
+ * direct write buffer, so serving a request never allocates. While the write buffer cannot be written out, the
+ * connection stops reading, holding back a client sending faster than it reads.
+ * </p>
+ */
+final class Connection {
+
+  private static final int MIN_BUFFER_SIZE = 64 * 1024;
+
+  private final SocketChannel channel;
+  private final BinaryKeyValueStore store;
+  private final int keyLength;
+  private final int valueSize;
+  private final int maxBodyLength;
+  private final int maxResponseSize;
+
+  // in is held ready for reading from the channel, out ready for writing responses into
+  private final ByteBuffer in;
+  private final ByteBuffer out;
+
+  // the bytes of a request too large to buffer still to be skipped, once it has been answered
+  private long discarding;
+
+  Connection(final SocketChannel channel, final BinaryKeyValueStore store) {
+
+    this.channel = channel;
+    this.store = store;
+    this.keyLength = store.keyLength();
+    this.valueSize = store.valueSize();
+    this.maxBodyLength = SET_EXTRAS_LENGTH + keyLength + valueSize;
+    this.maxResponseSize = HEADER_SIZE + GET_EXTRAS_LENGTH + valueSize;
+    this.in = ByteBuffer.allocateDirect(Math.max(MIN_BUFFER_SIZE, HEADER_SIZE + maxBodyLength));
+    this.out = ByteBuffer.allocateDirect(Math.max(MIN_BUFFER_SIZE, maxResponseSize));
+  }
+
+  /**
+   * Reads whatever has arrived if readable, answers every complete request and writes out the answers.
+   *
+   * @param key the selection key of the connection, whose interest is switched between reading and writing
+   * @return false once the client has closed the connection
+   * @throws IOException if the channel fails, or the client breaks the protocol
+   */
+  boolean service(final SelectionKey key) throws IOException {
+
+    if (key.isReadable() && channel.read(in) < 0) {
+      return false;
+    }
+
+    var waitingForRoom = true;
+    while (waitingForRoom) {
+      in.flip();
+      waitingForRoom = answer();
+      in.compact();
+
+      out.flip();
+      channel.write(out);
+      out.compact();
+
+      // the client is not reading its answers, stop reading its requests until it does
+      if (out.position() > 0) {
+        key.interestOps(SelectionKey.OP_WRITE);
+        return true;
+      }
+    }
+
+    key.interestOps(SelectionKey.OP_READ);
+    return true;
+  }
+
+  // answers complete requests until none remain, returning true if it stopped early for lack of room in out
+  private boolean answer() throws IOException {
+
+    while (true) {
+      if (discarding > 0) {
+        final var skipped = (int) Math.min(discarding, in.remaining());
+        in.position(in.position() + skipped);
+        discarding -= skipped;
+        if (discarding > 0) {
+          return false;
+        }
+      }
+
+      if (in.remaining() < HEADER_SIZE) {
+        return false;
+      }
+      if (out.remaining() < maxResponseSize) {
+        return true;
+      }
+
+      final var start = in.position();
+      if (in.get(start + MAGIC_OFFSET) != REQUEST_MAGIC) {
+        throw new ProtocolException("request does not start with the memcached binary request magic");
+      }
+
+      final var opcode = in.get(start + OPCODE_OFFSET);
+      final var bodyLength = Integer.toUnsignedLong(in.getInt(start + BODY_LENGTH_OFFSET));
+      final var opaque = in.getInt(start + OPAQUE_OFFSET);
+
+      // a body larger than any this store accepts is answered without buffering it, then skipped
+      if (bodyLength > maxBodyLength) {
+        respond(opcode, opcode == SET ? VALUE_TOO_LARGE : INVALID_ARGUMENTS, opaque);
+        in.position(start + HEADER_SIZE);
+        discarding = bodyLength;
+        continue;
+      }
+      if (in.remaining() < HEADER_SIZE + bodyLength) {
+        return false;
+      }
+
+      final var extrasLength = in.get(start + EXTRAS_LENGTH_OFFSET) & 0xFF;
+      final var keyOffset = start + HEADER_SIZE + extrasLength;
+      final var requestKeyLength = in.getShort(start + KEY_LENGTH_OFFSET) & 0xFFFF;
+      final var end = start + HEADER_SIZE + (int) bodyLength;
+
+      switch (opcode) {
+        case GET, GETQ -> get(opcode, opaque, keyOffset, requestKeyLength, end);
+        case SET -> set(opaque, extrasLength, keyOffset, requestKeyLength, end, in.getLong(start + CAS_OFFSET));
+        case DELETE -> delete(opaque, keyOffset, requestKeyLength, end);
+        case NOOP -> respond(opcode, NO_ERROR, opaque);
+        default -> respond(opcode, UNKNOWN_COMMAND, opaque);
+      }
+      in.position(end);
+    }
+  }
+
+  private void get(final byte opcode, final int opaque, final int keyOffset, final int requestKeyLength, final int end) {
+
+    if (keyOffset + requestKeyLength != end) {
+      respond(opcode, INVALID_ARGUMENTS, opaque);
+      return;
+    }
+
+    // a key of any other length can never have been stored
+    final var start = out.position();
+    if (requestKeyLength == keyLength) {
+      out.position(start + HEADER_SIZE).putInt(0);
+      if (store.get(in, keyOffset, out)) {
+        writeHeader(start, opcode, NO_ERROR, GET_EXTRAS_LENGTH, GET_EXTRAS_LENGTH + valueSize, opaque);
+        return;
+      }
+      out.position(start);
+    }
+
+    // a quiet get only answers a hit
+    if (opcode != GETQ) {
+      respond(opcode, KEY_NOT_FOUND, opaque);
+    }
+  }
+
+  // the flags and expiry of a set are ignored, every entry is held until deleted or overwritten and read with no flags
+  private void set(
+      final int opaque,
+      final int extrasLength,
+      final int keyOffset,
+      final int requestKeyLength,
+      final int end,
+      final long cas) {
+
+    if (cas != 0) {
+      respond(SET, NOT_SUPPORTED, opaque);
+      return;
+    }
+    if (extrasLength != SET_EXTRAS_LENGTH || requestKeyLength != keyLength
+        || end - keyOffset - requestKeyLength != valueSize) {
+      respond(SET, INVALID_ARGUMENTS, opaque);
+      return;
+    }
+
+    in.position(keyOffset + requestKeyLength);
+    respond(SET, store.put(in, keyOffset, in) ? NO_ERROR : OUT_OF_MEMORY, opaque);
+  }
+
+  private void delete(final int opaque, final int keyOffset, final int requestKeyLength, final int end) {
+
+    if (keyOffset + requestKeyLength != end) {
+      respond(DELETE, INVALID_ARGUMENTS, opaque);
+      return;
+    }
+
+    final var deleted = requestKeyLength == keyLength && store.delete(in, keyOffset);
+    respond(DELETE, deleted ? NO_ERROR : KEY_NOT_FOUND, opaque);
+  }
+
+  private void respond(final byte opcode, final short status, final int opaque) {
+
+    final var start = out.position();
+    writeHeader(start, opcode, status, 0, 0, opaque);
+    out.position(start + HEADER_SIZE);
+  }
+
+  // writes a response header at start, leaving the position of out untouched
+  private void writeHeader(
+      final int start,
+      final byte opcode,
+      final short status,
+      final int extrasLength,
+      final int bodyLength,
+      final int opaque) {
+
+    out.put(start + MAGIC_OFFSET, RESPONSE_MAGIC)
+        .put(start + OPCODE_OFFSET, opcode)
+        .putShort(start + KEY_LENGTH_OFFSET, (short) 0)
+        .put(start + EXTRAS_LENGTH_OFFSET, (byte) extrasLength)
+        .put(start + EXTRAS_LENGTH_OFFSET + 1, (byte) 0)
+        .putShort(start + STATUS_OFFSET, status)
+        .putInt(start + BODY_LENGTH_OFFSET, bodyLength)
+        .putInt(start + OPAQUE_OFFSET, opaque)
+        .putLong(start + CAS_OFFSET, 0L);
+  }
+}
@@ -0,0 +1,164 @@
+package org.guardiandevelopment.yak.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import org.guardiandevelopment.yak.data.structures.BinaryKeyValueStore;
+
+/**
+ * Provides a cache server embedded in the process, serving a {@link BinaryKeyValueStore} over TCP using the get, getq,
+ * set, delete and noop commands of the memcached binary protocol, so any memcached binary client can share it.
+ *
+ * <p>
+ * A single thread serves every connection through a non-blocking selector, and is the only thread to touch the store
+ * once the server has started, so the store needs no locking. Each connection answers its requests in the order they
+ * arrive, so clients may pipeline them, typically a run of quiet gets ended by a noop.
+ * </p>
+ * <p>
+ * Every key and value must be of the length the store was created with: a set of any other length is refused with
+ * invalid arguments, and a get or delete of a key of any other length is not found. The flags and expiry of a set are
+ * not held, every entry is read back with no flags and is held until deleted or overwritten, and a set carrying a CAS
+ * is not supported. A set into a full store is refused with out of memory.
+ * </p>
+ */
+public final class YakServer implements Closeable {
+
+  private final ServerSocketChannel server;
+  private final Selector selector;
+  private final BinaryKeyValueStore store;
+  private final Thread thread;
+
+  private volatile boolean running = true;
+
+  private YakServer(final ServerSocketChannel server, final Selector selector, final BinaryKeyValueStore store) {
+
+    this.server = server;
+    this.selector = selector;
+    this.store = store;
+    this.thread = new Thread(this::run, "yak-server");
+  }
+
+  /**
+   * Binds to the address and starts serving the store, from a thread of its own.
+   *
+   * @param address the address to listen on, with port 0 choosing any free port
+   * @param store   the store to serve, which must not be touched by any other thread once started
+   * @return the running server
+   * @throws IOException if the address cannot be bound
+   */
+  public static YakServer start(final InetSocketAddress address, final BinaryKeyValueStore store) throws IOException {
+
+    final var selector = Selector.open();
+    final var server = ServerSocketChannel.open();
+    try {
+      server.bind(address);
+      server.configureBlocking(false);
+      server.register(selector, SelectionKey.OP_ACCEPT);
+    } catch (IOException | RuntimeException e) {
+      server.close();
+      selector.close();
+      throw e;
+    }
+
+    final var yakServer = new YakServer(server, selector, store);
+    yakServer.thread.start();
+    return yakServer;
+  }
+
+  /**
+   * Returns the address the server is listening on, including the port chosen when started with port 0.
+   *
+   * @return the bound address
+   * @throws IOException if the address cannot be read
+   */
+  public InetSocketAddress address() throws IOException {
+    return (InetSocketAddress) server.getLocalAddress();
+  }
+
+  /**
+   * Stops serving, closing every connection, and waits for the server thread to finish.
+   *
+   * @throws IOException if interrupted while waiting for the server thread
+   */
+  @Override
+  public void close() throws IOException {
+
+    running = false;
+    selector.wakeup();
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("interrupted while waiting for the server to stop", e);
+    }
+  }
+
+  private void run() {
+
+    try {
+      while (running) {
+        selector.select(this::onSelected);
+      }
+    } catch (IOException e) {
+      // the selector failed, nothing more can be served
+    } finally {
+      for (final var key : selector.keys()) {
+        closeQuietly(key);
+      }
+      closeQuietly(selector);
+    }
+  }
+
+  private void onSelected(final SelectionKey key) {
+
+    if (key.isAcceptable()) {
+      accept();
+      return;
+    }
+
+    // a failing connection is closed alone, the server carries on serving the rest
+    final var connection = (Connection) key.attachment();
+    try {
+      if (!connection.service(key)) {
+        closeQuietly(key);
+      }
+    } catch (IOException e) {
+      closeQuietly(key);
+    }
+  }
+
+  private void accept() {
+
+    try {
+      final var channel = server.accept();
+      if (channel == null) {
+        return;
+      }
+
+      channel.configureBlocking(false);
+      channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+      channel.register(selector, SelectionKey.OP_READ, new Connection(channel, store));
+    } catch (IOException e) {
+      // the client went away before it could be accepted
+    }
+  }
+
+  private static void closeQuietly(final SelectionKey key) {
+
+    key.cancel();
+    closeQuietly(key.channel());
+  }
+
+  private static void closeQuietly(final Closeable closeable) {
+
+    try {
+      closeable.close();
+    } catch (IOException e) {
+      // nothing more can be done with a channel that fails to close
+    }
+  }
+}